@@ -3,10 +3,12 @@ package com.example.timedisplay;
 import android.content.Context;
 import android.content.SharedPreferences;
 
-import com.example.timedisplay.health.database.HealthDatabase;
+import com.example.timedisplay.health.database.YearPartitions;
 import com.example.timedisplay.health.model.DietRecord;
 import com.example.timedisplay.health.model.ExerciseRecord;
 import com.example.timedisplay.health.model.SleepRecord;
+import com.example.timedisplay.health.stats.HealthStatistics;
+import com.example.timedisplay.health.stats.StatisticsService;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -19,19 +21,20 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 public class DataManager {
     private static final String PREFS_NAME = "health_data_prefs";
     private static final String KEY_LAST_BACKUP = "last_backup_time";
+    private static final long SUMMARY_TIMEOUT_MS = 30_000;
     
     private Context context;
     private SharedPreferences prefs;
-    private HealthDatabase database;
     
     public DataManager(Context context) {
         this.context = context.getApplicationContext();
         this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        this.database = HealthDatabase.getDatabase(context);
     }
     
     // 导出数据为JSON格式
@@ -41,8 +44,8 @@ public class DataManager {
             SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
             
             // 导出饮食记录
-            List<DietRecord> dietRecords = database.healthDao()
-                    .getDietRecordsBetweenSync(startDate, endDate);
+            YearPartitions partitions = new YearPartitions(context);
+            List<DietRecord> dietRecords = partitions.getDietRecordsBetween(startDate, endDate);
             JSONArray dietArray = new JSONArray();
             for (DietRecord record : dietRecords) {
                 JSONObject obj = new JSONObject();
@@ -57,8 +60,7 @@ public class DataManager {
             root.put("dietRecords", dietArray);
             
             // 导出运动记录
-            List<ExerciseRecord> exerciseRecords = database.healthDao()
-                    .getExerciseRecordsBetweenSync(startDate, endDate);
+            List<ExerciseRecord> exerciseRecords = partitions.getExerciseRecordsBetween(startDate, endDate);
             JSONArray exerciseArray = new JSONArray();
             for (ExerciseRecord record : exerciseRecords) {
                 JSONObject obj = new JSONObject();
@@ -72,8 +74,7 @@ public class DataManager {
             root.put("exerciseRecords", exerciseArray);
             
             // 导出睡眠记录
-            List<SleepRecord> sleepRecords = database.healthDao()
-                    .getSleepRecordsBetweenSync(startDate, endDate);
+            List<SleepRecord> sleepRecords = partitions.getSleepRecordsBetween(startDate, endDate);
             JSONArray sleepArray = new JSONArray();
             for (SleepRecord record : sleepRecords) {
                 JSONObject obj = new JSONObject();
@@ -120,33 +121,20 @@ public class DataManager {
         return file;
     }
     
-    // 获取统计数据摘要
-    public StatisticsSummary getStatisticsSummary(Date startDate, Date endDate) {
+    // 获取统计数据摘要（按日汇总表读取）
+    // 三类统计在读线程池上并行计算，在后台线程上调用；超时后取消未完成的查询并抛出 TimeoutException
+    public StatisticsSummary getStatisticsSummary(Date startDate, Date endDate)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        HealthStatistics.ComprehensiveStats stats = StatisticsService.get(context)
+                .compute(startDate, endDate, "", SUMMARY_TIMEOUT_MS);
         StatisticsSummary summary = new StatisticsSummary();
         
-        List<DietRecord> dietRecords = database.healthDao()
-                .getDietRecordsBetweenSync(startDate, endDate);
-        summary.dietCount = dietRecords.size();
-        summary.totalCalories = 0;
-        for (DietRecord r : dietRecords) {
-            summary.totalCalories += r.getCalories();
-        }
-        
-        List<ExerciseRecord> exerciseRecords = database.healthDao()
-                .getExerciseRecordsBetweenSync(startDate, endDate);
-        summary.exerciseCount = exerciseRecords.size();
-        summary.totalExerciseMinutes = 0;
-        for (ExerciseRecord r : exerciseRecords) {
-            summary.totalExerciseMinutes += r.getDurationMinutes();
-        }
-        
-        List<SleepRecord> sleepRecords = database.healthDao()
-                .getSleepRecordsBetweenSync(startDate, endDate);
-        summary.sleepCount = sleepRecords.size();
-        summary.totalSleepHours = 0;
-        for (SleepRecord r : sleepRecords) {
-            summary.totalSleepHours += r.getDurationHours();
-        }
+        summary.dietCount = stats.dietStats.recordCount;
+        summary.totalCalories = stats.dietStats.totalCalories;
+        summary.exerciseCount = stats.exerciseStats.recordCount;
+        summary.totalExerciseMinutes = stats.exerciseStats.totalDurationMinutes;
+        summary.sleepCount = stats.sleepStats.recordCount;
+        summary.totalSleepHours = stats.sleepStats.avgDurationHours * stats.sleepStats.recordCount;
         
         return summary;
     }
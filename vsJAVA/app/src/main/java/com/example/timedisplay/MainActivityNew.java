@@ -29,11 +29,17 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.FileProvider;
 
+import com.example.timedisplay.health.database.HealthDao;
 import com.example.timedisplay.health.database.HealthDatabase;
+import com.example.timedisplay.health.database.RecordArchiver;
+import com.example.timedisplay.health.database.WriteBatcher;
+import com.example.timedisplay.health.database.YearPartitions;
 import com.example.timedisplay.health.model.DietRecord;
 import com.example.timedisplay.health.model.ExerciseRecord;
-import com.example.timedisplay.health.model.SleepRecord;
+import com.example.timedisplay.health.model.PeriodComparison;
 import com.example.timedisplay.health.pdf.PdfReportGenerator;
+import com.example.timedisplay.health.stats.HealthStatistics;
+import com.example.timedisplay.health.stats.StatisticsCache;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.tabs.TabLayout;
 
@@ -50,6 +56,8 @@ import java.util.Locale;
 
 public class MainActivityNew extends AppCompatActivity {
 
+    private static final long FLUSH_TIMEOUT_MS = 500;
+
     private ClockView clockView;
     private FrameLayout clockContainer;
     private TextView tvCurrentCategory;
@@ -94,6 +102,20 @@ public class MainActivityNew extends AppCompatActivity {
         setupClockClickListener();
         setupTopRightButtons();
         updateTheme(0);
+        
+        // 后台归档超过保留期的旧记录；开启按年分区时改为把已结束的年份搬进分区文件
+        new RecordArchiver(this).runIfDue(report -> runOnUiThread(() -> Toast.makeText(this,
+                "已归档 " + report.getArchivedTotal() + " 条历史记录，详情见健康记录菜单中的归档报告",
+                Toast.LENGTH_LONG).show()));
+        new YearPartitions(this).runIfDue();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // 离开界面前把合并中的写入落盘
+        WriteBatcher.get(this).flushAndWait(FLUSH_TIMEOUT_MS);
+        new RecordArchiver(this).compactIfIdle();
     }
 
     private void initViews() {
@@ -194,7 +216,7 @@ public class MainActivityNew extends AppCompatActivity {
             public void onTabSelected(TabLayout.Tab tab) {
                 int position = tab.getPosition();
                 chartView.setThemeColor(themeColors[position]);
-                loadStatisticsData(position, "week", tvMetric1Value, tvMetric2Value, tvMetric3Value);
+                loadStatisticsData(position, "week", chartView, tvMetric1Value, tvMetric2Value, tvMetric3Value);
             }
 
             @Override
@@ -212,7 +234,7 @@ public class MainActivityNew extends AppCompatActivity {
             else if (v == btnMonth) range = "month";
             else if (v == btnCustom) range = "custom";
             
-            loadStatisticsData(tabCategory.getSelectedTabPosition(), range, 
+            loadStatisticsData(tabCategory.getSelectedTabPosition(), range, chartView,
                     tvMetric1Value, tvMetric2Value, tvMetric3Value);
         };
         
@@ -227,18 +249,28 @@ public class MainActivityNew extends AppCompatActivity {
         }
 
         // 加载初始数据
-        loadStatisticsData(0, "week", tvMetric1Value, tvMetric2Value, tvMetric3Value);
+        loadStatisticsData(0, "week", chartView, tvMetric1Value, tvMetric2Value, tvMetric3Value);
 
         dialog.show();
     }
 
-    private void loadStatisticsData(int category, String timeRange, 
+    private void loadStatisticsData(int category, String timeRange, StatisticsChartView chartView,
                                     TextView tvMetric1, TextView tvMetric2, TextView tvMetric3) {
         // 检查TextView是否为null
         if (tvMetric1 == null || tvMetric2 == null || tvMetric3 == null) {
             return;
         }
         
+        // 结束时间取到下一个整分钟，同一分钟内反复切换类别和范围得到相同的缓存键
+        Date endDate = new Date((System.currentTimeMillis() / 60000 + 1) * 60000);
+        Date startDate = getStartDateForRange(timeRange, endDate);
+        StatisticsCache cache = StatisticsCache.get(this);
+        StatisticsCache.Result cached = cache.get(category, startDate.getTime(), endDate.getTime());
+        if (cached != null) {
+            showStatisticsResult(cached, chartView, tvMetric1, tvMetric2, tvMetric3);
+            return;
+        }
+        
         // 在UI线程显示加载中
         runOnUiThread(() -> {
             tvMetric1.setText("-");
@@ -247,54 +279,50 @@ public class MainActivityNew extends AppCompatActivity {
         });
         
         // 在后台线程加载数据
-        HealthDatabase.databaseWriteExecutor.execute(() -> {
+        HealthDatabase.databaseReadExecutor.execute(() -> {
             try {
-                Date endDate = new Date();
-                Date startDate = getStartDateForRange(timeRange);
+                long generation = cache.generation(category);
+                // 上一个等长周期，用于计算趋势
+                Date previousStartDate = new Date(2 * startDate.getTime() - endDate.getTime());
                 
                 int count = 0;
                 double avg = 0;
                 String trend = "→";
+                List<Float> series = new ArrayList<>();
+                HealthDao dao = HealthDatabase.getDatabase(this).healthDao();
                 
-                if (category == 0) {
+                if (category == StatisticsCache.CATEGORY_DIET) {
                     // 饮食统计
-                    List<DietRecord> records = HealthDatabase.getDatabase(this)
-                            .healthDao().getDietRecordsBetweenSync(startDate, endDate);
-                    count = records.size();
-                    double totalCalories = 0;
-                    for (DietRecord r : records) totalCalories += r.getCalories();
-                    avg = count > 0 ? totalCalories / count : 0;
-                } else if (category == 1) {
+                    PeriodComparison comparison = dao.compareDietPeriods(previousStartDate, startDate, endDate);
+                    count = comparison.currentCount;
+                    avg = comparison.getCurrentAverage();
+                    trend = comparison.getTrendText();
+                    HealthStatistics.DietStats daily = HealthStatistics.calculateDailyDietStats(
+                            dao.getDailyDietTotalsBetween(startDate, endDate), startDate, endDate);
+                    for (double value : daily.dailyCalories) series.add((float) value);
+                } else if (category == StatisticsCache.CATEGORY_EXERCISE) {
                     // 运动统计
-                    List<ExerciseRecord> records = HealthDatabase.getDatabase(this)
-                            .healthDao().getExerciseRecordsBetweenSync(startDate, endDate);
-                    count = records.size();
-                    long totalDuration = 0;
-                    for (ExerciseRecord r : records) totalDuration += r.getDurationMinutes();
-                    avg = count > 0 ? totalDuration / count : 0;
-                } else if (category == 2) {
+                    PeriodComparison comparison = dao.compareExercisePeriods(previousStartDate, startDate, endDate);
+                    count = comparison.currentCount;
+                    avg = comparison.getCurrentAverage();
+                    trend = comparison.getTrendText();
+                    HealthStatistics.ExerciseStats daily = HealthStatistics.calculateDailyExerciseStats(
+                            dao.getDailyExerciseTotalsBetween(startDate, endDate), startDate, endDate);
+                    for (long value : daily.dailyDuration) series.add((float) value);
+                } else if (category == StatisticsCache.CATEGORY_SLEEP) {
                     // 作息统计
-                    List<SleepRecord> records = HealthDatabase.getDatabase(this)
-                            .healthDao().getSleepRecordsBetweenSync(startDate, endDate);
-                    count = records.size();
-                    double totalHours = 0;
-                    for (SleepRecord r : records) totalHours += r.getDurationHours();
-                    avg = count > 0 ? totalHours / count : 0;
+                    PeriodComparison comparison = dao.compareSleepPeriods(previousStartDate, startDate, endDate);
+                    count = comparison.currentCount;
+                    avg = comparison.getCurrentAverage() / 60.0;
+                    trend = comparison.getTrendText();
+                    HealthStatistics.SleepStats daily = HealthStatistics.calculateDailySleepStats(
+                            dao.getDailySleepTotalsBetween(startDate, endDate), startDate, endDate);
+                    for (double value : daily.dailyDuration) series.add((float) value);
                 }
                 
-                final int finalCount = count;
-                final double finalAvg = avg;
-                final String finalTrend = trend;
-                
-                runOnUiThread(() -> {
-                    try {
-                        tvMetric1.setText(String.valueOf(finalCount));
-                        tvMetric2.setText(String.format(Locale.getDefault(), "%.1f", finalAvg));
-                        tvMetric3.setText(finalTrend);
-                    } catch (Exception e) {
-                        // 忽略UI更新错误
-                    }
-                });
+                StatisticsCache.Result result = new StatisticsCache.Result(count, avg, trend, series);
+                cache.put(category, startDate.getTime(), endDate.getTime(), generation, result);
+                runOnUiThread(() -> showStatisticsResult(result, chartView, tvMetric1, tvMetric2, tvMetric3));
             } catch (Exception e) {
                 // 数据库查询出错
                 runOnUiThread(() -> {
@@ -310,8 +338,21 @@ public class MainActivityNew extends AppCompatActivity {
         });
     }
 
-    private Date getStartDateForRange(String range) {
+    private void showStatisticsResult(StatisticsCache.Result result, StatisticsChartView chartView,
+                                      TextView tvMetric1, TextView tvMetric2, TextView tvMetric3) {
+        try {
+            chartView.setData(result.series);
+            tvMetric1.setText(String.valueOf(result.count));
+            tvMetric2.setText(String.format(Locale.getDefault(), "%.1f", result.average));
+            tvMetric3.setText(result.trend);
+        } catch (Exception e) {
+            // 忽略UI更新错误
+        }
+    }
+
+    private Date getStartDateForRange(String range, Date endDate) {
         Calendar cal = Calendar.getInstance();
+        cal.setTime(endDate);
         switch (range) {
             case "day":
                 cal.add(Calendar.DAY_OF_YEAR, -1);
@@ -359,43 +400,34 @@ public class MainActivityNew extends AppCompatActivity {
         Date startDate = new Date();
         startDate.setTime(endDate.getTime() - 7 * 24 * 60 * 60 * 1000);
 
-        HealthDatabase.databaseWriteExecutor.execute(() -> {
-            List<DietRecord> dietRecords = HealthDatabase.getDatabase(this)
-                    .healthDao().getDietRecordsBetweenSync(startDate, endDate);
-            List<ExerciseRecord> exerciseRecords = HealthDatabase.getDatabase(this)
-                    .healthDao().getExerciseRecordsBetweenSync(startDate, endDate);
-
-            PdfReportGenerator.generateHealthReport(
-                    this,
-                    dietRecords,
-                    exerciseRecords,
-                    new ArrayList<>(),
-                    startDate,
-                    endDate,
-                    "周",
-                    null,
-                    new PdfReportGenerator.PdfGenerationCallback() {
-                        @Override
-                        public void onSuccess(String filePath) {
-                            progressDialog.dismiss();
-                            runOnUiThread(() -> {
-                                Toast.makeText(MainActivityNew.this,
-                                        "PDF已保存: " + filePath, Toast.LENGTH_LONG).show();
-                                shareFile(new File(filePath), "application/pdf");
-                            });
-                        }
-
-                        @Override
-                        public void onError(String error) {
-                            progressDialog.dismiss();
-                            runOnUiThread(() -> {
-                                Toast.makeText(MainActivityNew.this,
-                                        "导出失败: " + error, Toast.LENGTH_LONG).show();
-                            });
-                        }
+        // 报告在自己的线程上读取统计和明细，不用先把记录加载出来
+        PdfReportGenerator.generateHealthReport(
+                this,
+                startDate,
+                endDate,
+                "周",
+                null,
+                new PdfReportGenerator.PdfGenerationCallback() {
+                    @Override
+                    public void onSuccess(String filePath) {
+                        progressDialog.dismiss();
+                        runOnUiThread(() -> {
+                            Toast.makeText(MainActivityNew.this,
+                                    "PDF已保存: " + filePath, Toast.LENGTH_LONG).show();
+                            shareFile(new File(filePath), "application/pdf");
+                        });
                     }
-            );
-        });
+
+                    @Override
+                    public void onError(String error) {
+                        progressDialog.dismiss();
+                        runOnUiThread(() -> {
+                            Toast.makeText(MainActivityNew.this,
+                                    "导出失败: " + error, Toast.LENGTH_LONG).show();
+                        });
+                    }
+                }
+        );
     }
 
     private void exportAsImage() {
@@ -653,17 +685,26 @@ public class MainActivityNew extends AppCompatActivity {
     }
 
     private void saveDietRecord(DietRecord record) {
-        HealthDatabase.databaseWriteExecutor.execute(() -> {
-            HealthDatabase.getDatabase(this).healthDao().insertDietRecord(record);
-            runOnUiThread(() -> Toast.makeText(this, "饮食记录已保存", Toast.LENGTH_SHORT).show());
-        });
+        WriteBatcher.get(this).submit(dao -> dao.addDietRecord(record), saveToast("饮食记录"));
     }
 
     private void saveExerciseRecord(ExerciseRecord record) {
-        HealthDatabase.databaseWriteExecutor.execute(() -> {
-            HealthDatabase.getDatabase(this).healthDao().insertExerciseRecord(record);
-            runOnUiThread(() -> Toast.makeText(this, "运动记录已保存", Toast.LENGTH_SHORT).show());
-        });
+        WriteBatcher.get(this).submit(dao -> dao.addExerciseRecord(record), saveToast("运动记录"));
+    }
+
+    // 只有这条记录真正提交后才提示已保存
+    private WriteBatcher.Callback saveToast(String label) {
+        return new WriteBatcher.Callback() {
+            @Override
+            public void onCommitted() {
+                runOnUiThread(() -> Toast.makeText(MainActivityNew.this, label + "已保存", Toast.LENGTH_SHORT).show());
+            }
+
+            @Override
+            public void onFailed(RuntimeException error) {
+                runOnUiThread(() -> Toast.makeText(MainActivityNew.this, label + "保存失败", Toast.LENGTH_LONG).show());
+            }
+        };
     }
 
     private void updateLastRecord(String text) {
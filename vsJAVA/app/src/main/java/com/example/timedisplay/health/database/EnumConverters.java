@@ -0,0 +1,51 @@
+package com.example.timedisplay.health.database;
+
+import androidx.room.TypeConverter;
+
+import com.example.timedisplay.health.model.DietRecord;
+import com.example.timedisplay.health.model.ExerciseRecord;
+import com.example.timedisplay.health.model.SleepRecord;
+
+// 枚举按固定整数编码存储，睡眠质量存评分、运动强度存等级
+public class EnumConverters {
+
+    @TypeConverter
+    public static DietRecord.MealType toMealType(Integer code) {
+        return code == null ? null : DietRecord.MealType.fromCode(code);
+    }
+
+    @TypeConverter
+    public static Integer fromMealType(DietRecord.MealType type) {
+        return type == null ? null : type.getCode();
+    }
+
+    @TypeConverter
+    public static ExerciseRecord.ExerciseType toExerciseType(Integer code) {
+        return code == null ? null : ExerciseRecord.ExerciseType.fromCode(code);
+    }
+
+    @TypeConverter
+    public static Integer fromExerciseType(ExerciseRecord.ExerciseType type) {
+        return type == null ? null : type.getCode();
+    }
+
+    @TypeConverter
+    public static ExerciseRecord.IntensityLevel toIntensityLevel(Integer level) {
+        return level == null ? null : ExerciseRecord.IntensityLevel.fromLevel(level);
+    }
+
+    @TypeConverter
+    public static Integer fromIntensityLevel(ExerciseRecord.IntensityLevel intensity) {
+        return intensity == null ? null : intensity.getLevel();
+    }
+
+    @TypeConverter
+    public static SleepRecord.SleepQuality toSleepQuality(Integer score) {
+        return score == null ? null : SleepRecord.SleepQuality.fromScore(score);
+    }
+
+    @TypeConverter
+    public static Integer fromSleepQuality(SleepRecord.SleepQuality quality) {
+        return quality == null ? null : quality.getScore();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.timedisplay.health.database;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+// 本地日历日编号：1970-01-01 为第 0 天
+public class EpochDay {
+
+    public static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    public static long of(long millis) {
+        return of(millis, TimeZone.getDefault());
+    }
+
+    // 逐条换算大量记录时由调用方取一次时区传进来，TimeZone.getDefault() 每次都会加锁并克隆
+    public static long of(long millis, TimeZone zone) {
+        long localMillis = millis + zone.getOffset(millis);
+        long day = localMillis / MILLIS_PER_DAY;
+        if (localMillis % MILLIS_PER_DAY < 0) {
+            day--;
+        }
+        return day;
+    }
+
+    public static long of(Date date) {
+        return of(date.getTime());
+    }
+
+    // 本地时间的当日分钟数，0..1439
+    public static int minuteOfDay(long millis) {
+        long localMillis = millis + TimeZone.getDefault().getOffset(millis);
+        long inDay = localMillis % MILLIS_PER_DAY;
+        if (inDay < 0) {
+            inDay += MILLIS_PER_DAY;
+        }
+        return (int) (inDay / (60 * 1000));
+    }
+
+    public static long toStartMillis(long epochDay) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.setTimeInMillis(epochDay * MILLIS_PER_DAY);
+
+        Calendar local = Calendar.getInstance();
+        local.clear();
+        local.set(utc.get(Calendar.YEAR), utc.get(Calendar.MONTH), utc.get(Calendar.DAY_OF_MONTH));
+        return local.getTimeInMillis();
+    }
+
+    // yyyyMM，与 monthly_aggregates.month 的格式相同
+    public static int monthOf(long epochDay) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.setTimeInMillis(epochDay * MILLIS_PER_DAY);
+        return utc.get(Calendar.YEAR) * 100 + utc.get(Calendar.MONTH) + 1;
+    }
+
+    public static long firstDayOfMonth(int month) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.clear();
+        utc.set(month / 100, month % 100 - 1, 1);
+        return utc.getTimeInMillis() / MILLIS_PER_DAY;
+    }
+
+    public static int nextMonth(int month) {
+        return month % 100 == 12 ? (month / 100 + 1) * 100 + 1 : month + 1;
+    }
+
+    public static Date toDate(long epochDay) {
+        return new Date(toStartMillis(epochDay));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.timedisplay.health.database;
+
+import android.database.Cursor;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.example.timedisplay.health.model.FoodItem;
+
+// 内置食物库：修改 FoodItem.getDefaultFoods 后递增 VERSION，打开数据库时会按名称增量更新
+public class FoodCatalog {
+
+    public static final int VERSION = 1;
+
+    static void sync(SupportSQLiteDatabase db) {
+        int installed;
+        try (Cursor cursor = db.query("SELECT MAX(catalogVersion) FROM food_items WHERE isCustom = 0")) {
+            installed = cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getInt(0) : -1;
+        }
+        if (installed >= VERSION) return;
+
+        db.beginTransaction();
+        try {
+            SupportSQLiteStatement update = db.compileStatement("UPDATE food_items SET "
+                    + "caloriesPer100g = ?, proteinPer100g = ?, carbsPer100g = ?, fatPer100g = ?, "
+                    + "category = ?, searchTokens = ?, catalogVersion = ? WHERE name = ? AND isCustom = 0");
+            SupportSQLiteStatement insert = db.compileStatement("INSERT INTO food_items (name, "
+                    + "caloriesPer100g, proteinPer100g, carbsPer100g, fatPer100g, category, isCustom, "
+                    + "isFavorite, searchTokens, catalogVersion) VALUES (?, ?, ?, ?, ?, ?, 0, 0, ?, ?)");
+            for (FoodItem food : FoodItem.getDefaultFoods()) {
+                // 新建的数据库里没有旧数据，不需要先尝试更新
+                if (installed >= 0) {
+                    update.clearBindings();
+                    update.bindDouble(1, food.getCaloriesPer100g());
+                    update.bindDouble(2, food.getProteinPer100g());
+                    update.bindDouble(3, food.getCarbsPer100g());
+                    update.bindDouble(4, food.getFatPer100g());
+                    update.bindString(5, food.getCategory());
+                    update.bindString(6, food.getSearchTokens());
+                    update.bindLong(7, VERSION);
+                    update.bindString(8, food.getName());
+                    if (update.executeUpdateDelete() > 0) continue;
+                }
+                insert.clearBindings();
+                insert.bindString(1, food.getName());
+                insert.bindDouble(2, food.getCaloriesPer100g());
+                insert.bindDouble(3, food.getProteinPer100g());
+                insert.bindDouble(4, food.getCarbsPer100g());
+                insert.bindDouble(5, food.getFatPer100g());
+                insert.bindString(6, food.getCategory());
+                insert.bindString(7, food.getSearchTokens());
+                insert.bindLong(8, VERSION);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.timedisplay.health.database;
+
+import android.icu.text.Transliterator;
+import android.os.Build;
+
+import androidx.annotation.Nullable;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+// 食物搜索用的分词：名称后缀、全拼、拼音首字母，写入 food_items.searchTokens 供 FTS 前缀匹配
+public class FoodSearch {
+
+    private static final int MAX_SUFFIXES = 16;
+
+    private static Transliterator hanToLatin;
+
+    // pinyin 为按音节空格分隔的拼音，如 "ji xiong rou"
+    public static String buildTokens(String name, @Nullable String pinyin) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (name != null) {
+            String lower = name.toLowerCase(Locale.ROOT).trim();
+            // 中文名称按字取后缀，这样 "胸肉" 也能前缀匹配到 "鸡胸肉"
+            for (int i = 0; i < lower.length() && i < MAX_SUFFIXES; i++) {
+                if (Character.isLetterOrDigit(lower.charAt(i))) {
+                    tokens.add(lower.substring(i));
+                }
+            }
+        }
+        if (pinyin != null) {
+            String[] syllables = pinyin.toLowerCase(Locale.ROOT).trim().split("\\s+");
+            for (int i = 0; i < syllables.length && i < MAX_SUFFIXES; i++) {
+                StringBuilder full = new StringBuilder();
+                StringBuilder initials = new StringBuilder();
+                for (int j = i; j < syllables.length; j++) {
+                    if (syllables[j].isEmpty()) continue;
+                    full.append(syllables[j]);
+                    initials.append(syllables[j].charAt(0));
+                }
+                if (full.length() > 0) {
+                    tokens.add(full.toString());
+                    tokens.add(initials.toString());
+                }
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String token : tokens) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(token);
+        }
+        return sb.toString();
+    }
+
+    // 把用户输入转成 FTS MATCH 表达式，每个词做前缀匹配；没有可搜索内容时返回 null
+    @Nullable
+    public static String toMatchQuery(String input) {
+        if (input == null) return null;
+        StringBuilder sb = new StringBuilder();
+        for (String term : input.toLowerCase(Locale.ROOT).trim().split("\\s+")) {
+            StringBuilder clean = new StringBuilder();
+            for (int i = 0; i < term.length(); i++) {
+                char c = term.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    clean.append(c);
+                }
+            }
+            if (clean.length() == 0) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(clean).append('*');
+        }
+        return sb.length() == 0 ? null : sb.toString();
+    }
+
+    // API 29 以下没有 ICU 音译，只能按名称匹配
+    @Nullable
+    public static synchronized String toPinyin(String name) {
+        if (name == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return null;
+        }
+        if (hanToLatin == null) {
+            hanToLatin = Transliterator.getInstance("Han-Latin; Latin-ASCII");
+        }
+        String latin = hanToLatin.transliterate(name);
+        return latin.equals(name) ? null : latin;
+    }
+}
@@ -1,23 +1,123 @@
 package com.example.timedisplay.health.database;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
+import com.example.timedisplay.health.model.DailyDietTotal;
+import com.example.timedisplay.health.model.DailyExerciseTotal;
+import com.example.timedisplay.health.model.DailySleepTotal;
+import com.example.timedisplay.health.model.DailySummary;
 import com.example.timedisplay.health.model.DietRecord;
+import com.example.timedisplay.health.model.DietRecordRow;
 import com.example.timedisplay.health.model.ExerciseRecord;
+import com.example.timedisplay.health.model.ExerciseRecordRow;
 import com.example.timedisplay.health.model.FoodItem;
+import com.example.timedisplay.health.model.MonthlyAggregate;
+import com.example.timedisplay.health.model.PeriodComparison;
+import com.example.timedisplay.health.model.QuantileSketch;
 import com.example.timedisplay.health.model.SleepRecord;
+import com.example.timedisplay.health.model.SleepRecordRow;
+import com.example.timedisplay.health.model.SketchRollup;
+import com.example.timedisplay.health.model.TimelineEntry;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
 @Dao
 public interface HealthDao {
     
+    String START_DAY = "(CAST(strftime('%s', :startDate / 1000, 'unixepoch', 'localtime') AS INTEGER) / 86400)";
+    String END_DAY = "(CAST(strftime('%s', :endDate / 1000, 'unixepoch', 'localtime') AS INTEGER) / 86400)";
+    String PREVIOUS_START_DAY = "(CAST(strftime('%s', :previousStart / 1000, 'unixepoch', 'localtime') AS INTEGER) / 86400)";
+    String PERIOD_START_DAY = "(CAST(strftime('%s', :start / 1000, 'unixepoch', 'localtime') AS INTEGER) / 86400)";
+    String PERIOD_END_DAY = "(CAST(strftime('%s', :end / 1000, 'unixepoch', 'localtime') AS INTEGER) / 86400)";
+    
+    // 按记录时间取范围的查询，HealthIndexPlanTest 用同一份 SQL 检查它们走时间索引
+    String DIET_RECORDS_BETWEEN = "SELECT * FROM diet_records WHERE intakeTime BETWEEN :startDate AND :endDate ORDER BY intakeTime DESC";
+    String DIET_ROWS_BETWEEN = "SELECT intakeTime, calories, protein, carbs, fat FROM diet_records WHERE intakeTime BETWEEN :startDate AND :endDate AND epochDay >= :fromDay";
+    String DIET_CALORIES_BETWEEN = "SELECT SUM(calories) FROM diet_records WHERE intakeTime BETWEEN :startDate AND :endDate";
+    String EXERCISE_RECORDS_BETWEEN = "SELECT * FROM exercise_records WHERE startTime BETWEEN :startDate AND :endDate ORDER BY startTime DESC";
+    String EXERCISE_ROWS_BETWEEN = "SELECT startTime, caloriesBurned, durationMinutes FROM exercise_records WHERE startTime BETWEEN :startDate AND :endDate AND epochDay >= :fromDay";
+    String EXERCISE_CALORIES_BETWEEN = "SELECT SUM(caloriesBurned) FROM exercise_records WHERE startTime BETWEEN :startDate AND :endDate";
+    String EXERCISE_DURATION_BETWEEN = "SELECT SUM(durationMinutes) FROM exercise_records WHERE startTime BETWEEN :startDate AND :endDate";
+    String SLEEP_RECORDS_BETWEEN = "SELECT * FROM sleep_records WHERE recordDate BETWEEN :startDate AND :endDate ORDER BY recordDate DESC";
+    String SLEEP_ROWS_BETWEEN = "SELECT recordDate, durationMinutes, IFNULL(sleepQuality, 0), wakeUpCount FROM sleep_records WHERE recordDate BETWEEN :startDate AND :endDate AND epochDay >= :fromDay";
+    String SLEEP_AVG_DURATION_BETWEEN = "SELECT AVG(durationMinutes) FROM sleep_records WHERE recordDate BETWEEN :startDate AND :endDate";
+    String SLEEP_AVG_QUALITY_BETWEEN = "SELECT AVG(sleepQuality) FROM sleep_records WHERE recordDate BETWEEN :startDate AND :endDate";
+    
+    // [previousStart, start) 与 [start, end] 两个周期的记录数和合计，一次查询得到。与 getDaily*TotalsBetween 相同，
+    // 归档截止日之前的原始记录已删除，这部分按天从 daily_summary 取，按日期归入所在的周期
+    String DIET_COMPARE_PERIODS = "SELECT SUM(currentCount) AS currentCount, TOTAL(currentTotal) AS currentTotal, "
+            + "SUM(previousCount) AS previousCount, TOTAL(previousTotal) AS previousTotal FROM ("
+            + "SELECT CASE WHEN intakeTime >= :start THEN 1 ELSE 0 END AS currentCount, "
+            + "CASE WHEN intakeTime >= :start THEN calories END AS currentTotal, "
+            + "CASE WHEN intakeTime < :start THEN 1 ELSE 0 END AS previousCount, "
+            + "CASE WHEN intakeTime < :start THEN calories END AS previousTotal "
+            + "FROM diet_records WHERE intakeTime >= :previousStart AND intakeTime <= :end "
+            + "AND epochDay >= (SELECT IFNULL(MAX(lastDay) + 1, 0) FROM monthly_aggregates WHERE recordType = 'diet') "
+            + "UNION ALL SELECT CASE WHEN epochDay >= " + PERIOD_START_DAY + " THEN dietCount ELSE 0 END, "
+            + "CASE WHEN epochDay >= " + PERIOD_START_DAY + " THEN caloriesIn END, "
+            + "CASE WHEN epochDay < " + PERIOD_START_DAY + " THEN dietCount ELSE 0 END, "
+            + "CASE WHEN epochDay < " + PERIOD_START_DAY + " THEN caloriesIn END "
+            + "FROM daily_summary WHERE epochDay BETWEEN " + PREVIOUS_START_DAY + " AND " + PERIOD_END_DAY + " "
+            + "AND epochDay < (SELECT IFNULL(MAX(lastDay) + 1, 0) FROM monthly_aggregates WHERE recordType = 'diet'))";
+    String EXERCISE_COMPARE_PERIODS = "SELECT SUM(currentCount) AS currentCount, TOTAL(currentTotal) AS currentTotal, "
+            + "SUM(previousCount) AS previousCount, TOTAL(previousTotal) AS previousTotal FROM ("
+            + "SELECT CASE WHEN startTime >= :start THEN 1 ELSE 0 END AS currentCount, "
+            + "CASE WHEN startTime >= :start THEN durationMinutes END AS currentTotal, "
+            + "CASE WHEN startTime < :start THEN 1 ELSE 0 END AS previousCount, "
+            + "CASE WHEN startTime < :start THEN durationMinutes END AS previousTotal "
+            + "FROM exercise_records WHERE startTime >= :previousStart AND startTime <= :end "
+            + "AND epochDay >= (SELECT IFNULL(MAX(lastDay) + 1, 0) FROM monthly_aggregates WHERE recordType = 'exercise') "
+            + "UNION ALL SELECT CASE WHEN epochDay >= " + PERIOD_START_DAY + " THEN exerciseCount ELSE 0 END, "
+            + "CASE WHEN epochDay >= " + PERIOD_START_DAY + " THEN exerciseMinutes END, "
+            + "CASE WHEN epochDay < " + PERIOD_START_DAY + " THEN exerciseCount ELSE 0 END, "
+            + "CASE WHEN epochDay < " + PERIOD_START_DAY + " THEN exerciseMinutes END "
+            + "FROM daily_summary WHERE epochDay BETWEEN " + PREVIOUS_START_DAY + " AND " + PERIOD_END_DAY + " "
+            + "AND epochDay < (SELECT IFNULL(MAX(lastDay) + 1, 0) FROM monthly_aggregates WHERE recordType = 'exercise'))";
+    String SLEEP_COMPARE_PERIODS = "SELECT SUM(currentCount) AS currentCount, TOTAL(currentTotal) AS currentTotal, "
+            + "SUM(previousCount) AS previousCount, TOTAL(previousTotal) AS previousTotal FROM ("
+            + "SELECT CASE WHEN recordDate >= :start THEN 1 ELSE 0 END AS currentCount, "
+            + "CASE WHEN recordDate >= :start THEN durationMinutes END AS currentTotal, "
+            + "CASE WHEN recordDate < :start THEN 1 ELSE 0 END AS previousCount, "
+            + "CASE WHEN recordDate < :start THEN durationMinutes END AS previousTotal "
+            + "FROM sleep_records WHERE recordDate >= :previousStart AND recordDate <= :end "
+            + "AND epochDay >= (SELECT IFNULL(MAX(lastDay) + 1, 0) FROM monthly_aggregates WHERE recordType = 'sleep') "
+            + "UNION ALL SELECT CASE WHEN epochDay >= " + PERIOD_START_DAY + " THEN sleepCount ELSE 0 END, "
+            + "CASE WHEN epochDay >= " + PERIOD_START_DAY + " THEN sleepMinutes END, "
+            + "CASE WHEN epochDay < " + PERIOD_START_DAY + " THEN sleepCount ELSE 0 END, "
+            + "CASE WHEN epochDay < " + PERIOD_START_DAY + " THEN sleepMinutes END "
+            + "FROM daily_summary WHERE epochDay BETWEEN " + PREVIOUS_START_DAY + " AND " + PERIOD_END_DAY + " "
+            + "AND epochDay < (SELECT IFNULL(MAX(lastDay) + 1, 0) FROM monthly_aggregates WHERE recordType = 'sleep'))";
+    
+    // 列表和时间线的分页查询；YearPartitions 对已封存年份的分区文件执行同一份 SQL，按同样的游标续页
+    String DIET_ROWS_PAGE_BEFORE = "SELECT id, foodName, mealType, intakeTime, calories FROM diet_records WHERE intakeTime <= :beforeTime AND (intakeTime < :beforeTime OR id < :beforeId) ORDER BY intakeTime DESC, id DESC LIMIT :limit";
+    String EXERCISE_ROWS_PAGE_BEFORE = "SELECT id, exerciseType, customTypeName, intensity, startTime, durationMinutes, caloriesBurned FROM exercise_records WHERE startTime <= :beforeTime AND (startTime < :beforeTime OR id < :beforeId) ORDER BY startTime DESC, id DESC LIMIT :limit";
+    String SLEEP_ROWS_PAGE_BEFORE = "SELECT id, recordDate, sleepTime, wakeTime, durationMinutes, sleepQuality, wakeUpCount FROM sleep_records WHERE recordDate <= :beforeTime AND (recordDate < :beforeTime OR id < :beforeId) ORDER BY recordDate DESC, id DESC LIMIT :limit";
+    String TIMELINE_PAGE_BEFORE = "SELECT * FROM ("
+            + "SELECT * FROM (SELECT 1 AS kind, id, intakeTime AS time, mealType AS code, foodName AS label, "
+            + "calories, 0 AS durationMinutes FROM diet_records WHERE intakeTime <= :beforeTime "
+            + "AND (intakeTime < :beforeTime OR 1 < :beforeKind OR (1 = :beforeKind AND id < :beforeId)) "
+            + "ORDER BY intakeTime DESC, id DESC LIMIT :limit) "
+            + "UNION ALL SELECT * FROM (SELECT 2 AS kind, id, startTime AS time, exerciseType AS code, customTypeName AS label, "
+            + "caloriesBurned AS calories, durationMinutes FROM exercise_records WHERE startTime <= :beforeTime "
+            + "AND (startTime < :beforeTime OR 2 < :beforeKind OR (2 = :beforeKind AND id < :beforeId)) "
+            + "ORDER BY startTime DESC, id DESC LIMIT :limit) "
+            + "UNION ALL SELECT * FROM (SELECT 3 AS kind, id, recordDate AS time, sleepQuality AS code, NULL AS label, "
+            + "0 AS calories, durationMinutes FROM sleep_records WHERE recordDate <= :beforeTime "
+            + "AND (recordDate < :beforeTime OR 3 < :beforeKind OR (3 = :beforeKind AND id < :beforeId)) "
+            + "ORDER BY recordDate DESC, id DESC LIMIT :limit)"
+            + ") ORDER BY time DESC, kind DESC, id DESC LIMIT :limit";
+    
     // Diet Records
     @Insert
     long insertDietRecord(DietRecord record);
@@ -31,18 +131,79 @@ public interface HealthDao {
     @Query("SELECT * FROM diet_records ORDER BY intakeTime DESC")
     LiveData<List<DietRecord>> getAllDietRecords();
     
-    @Query("SELECT * FROM diet_records WHERE intakeTime BETWEEN :startDate AND :endDate ORDER BY intakeTime DESC")
+    @Query(DIET_ROWS_PAGE_BEFORE)
+    List<DietRecordRow> getDietRecordRowsPageBefore(long beforeTime, long beforeId, int limit);
+    
+    @Query(DIET_RECORDS_BETWEEN)
     LiveData<List<DietRecord>> getDietRecordsBetween(Date startDate, Date endDate);
     
-    @Query("SELECT * FROM diet_records WHERE intakeTime BETWEEN :startDate AND :endDate ORDER BY intakeTime DESC")
+    @Query(DIET_RECORDS_BETWEEN)
     List<DietRecord> getDietRecordsBetweenSync(Date startDate, Date endDate);
     
-    @Query("SELECT SUM(calories) FROM diet_records WHERE intakeTime BETWEEN :startDate AND :endDate")
+    // 供 HealthStatistics 的 stream* 逐行读取，列顺序固定；fromDay 之前的日期已归档，由 daily_summary 补齐
+    @Query(DIET_ROWS_BETWEEN)
+    Cursor streamDietRecordsBetween(Date startDate, Date endDate, long fromDay);
+    
+    @Query(DIET_CALORIES_BETWEEN)
     double getTotalCaloriesBetween(Date startDate, Date endDate);
     
+    // 已归档的日期原始记录已删除，改从 daily_summary 读取；两部分以归档截止日为界互不重叠
+    @Query("SELECT * FROM ("
+            + "SELECT epochDay, SUM(calories) AS calories, SUM(protein) AS protein, SUM(carbs) AS carbs, SUM(fat) AS fat, COUNT(*) AS recordCount "
+            + "FROM diet_records WHERE intakeTime BETWEEN :startDate AND :endDate "
+            + "AND epochDay >= (SELECT IFNULL(MAX(lastDay) + 1, 0) FROM monthly_aggregates WHERE recordType = 'diet') GROUP BY epochDay "
+            + "UNION ALL SELECT epochDay, caloriesIn, protein, carbs, fat, dietCount FROM daily_summary "
+            + "WHERE dietCount > 0 AND epochDay BETWEEN " + START_DAY + " AND " + END_DAY + " "
+            + "AND epochDay < (SELECT IFNULL(MAX(lastDay) + 1, 0) FROM monthly_aggregates WHERE recordType = 'diet')"
+            + ") ORDER BY epochDay ASC")
+    List<DailyDietTotal> getDailyDietTotalsBetween(Date startDate, Date endDate);
+    
+    @Query(DIET_COMPARE_PERIODS)
+    PeriodComparison compareDietPeriods(Date previousStart, Date start, Date end);
+    
     @Query("SELECT * FROM diet_records WHERE id = :id")
     DietRecord getDietRecordById(long id);
     
+    // 写入记录并在同一事务中更新 daily_summary
+    @Transaction
+    default long addDietRecord(DietRecord record) {
+        record.updateDayFields();
+        long id = insertDietRecord(record);
+        applyDietSummary(record, 1);
+        return id;
+    }
+    
+    // 记录不在主库（已删除或所在年份已封存到分区文件）时返回 false，daily_summary 不变
+    @Transaction
+    default boolean editDietRecord(DietRecord record) {
+        DietRecord old = getDietRecordById(record.getId());
+        if (old == null) return false;
+        applyDietSummary(old, -1);
+        record.updateDayFields();
+        updateDietRecord(record);
+        applyDietSummary(record, 1);
+        return true;
+    }
+    
+    @Transaction
+    default boolean removeDietRecord(long id) {
+        DietRecord old = getDietRecordById(id);
+        if (old == null) return false;
+        deleteDietRecord(old);
+        applyDietSummary(old, -1);
+        return true;
+    }
+    
+    default void applyDietSummary(DietRecord record, int sign) {
+        if (record.getIntakeTime() == null) return;
+        long day = record.getEpochDay();
+        insertDailySummaryIfAbsent(new DailySummary(day));
+        adjustDietSummary(day, sign * record.getCalories(), sign * record.getProtein(),
+                sign * record.getCarbs(), sign * record.getFat(), sign);
+        SummaryDeltas.diet(day, sign * record.getCalories(), sign * record.getProtein(),
+                sign * record.getCarbs(), sign * record.getFat(), sign);
+    }
+    
     // Exercise Records
     @Insert
     long insertExerciseRecord(ExerciseRecord record);
@@ -56,21 +217,78 @@ public interface HealthDao {
     @Query("SELECT * FROM exercise_records ORDER BY startTime DESC")
     LiveData<List<ExerciseRecord>> getAllExerciseRecords();
     
-    @Query("SELECT * FROM exercise_records WHERE startTime BETWEEN :startDate AND :endDate ORDER BY startTime DESC")
+    @Query(EXERCISE_ROWS_PAGE_BEFORE)
+    List<ExerciseRecordRow> getExerciseRecordRowsPageBefore(long beforeTime, long beforeId, int limit);
+    
+    @Query(EXERCISE_RECORDS_BETWEEN)
     LiveData<List<ExerciseRecord>> getExerciseRecordsBetween(Date startDate, Date endDate);
     
-    @Query("SELECT * FROM exercise_records WHERE startTime BETWEEN :startDate AND :endDate ORDER BY startTime DESC")
+    @Query(EXERCISE_RECORDS_BETWEEN)
     List<ExerciseRecord> getExerciseRecordsBetweenSync(Date startDate, Date endDate);
     
-    @Query("SELECT SUM(caloriesBurned) FROM exercise_records WHERE startTime BETWEEN :startDate AND :endDate")
+    @Query(EXERCISE_ROWS_BETWEEN)
+    Cursor streamExerciseRecordsBetween(Date startDate, Date endDate, long fromDay);
+    
+    @Query(EXERCISE_CALORIES_BETWEEN)
     double getTotalCaloriesBurnedBetween(Date startDate, Date endDate);
     
-    @Query("SELECT SUM(durationMinutes) FROM exercise_records WHERE startTime BETWEEN :startDate AND :endDate")
+    @Query(EXERCISE_DURATION_BETWEEN)
     long getTotalExerciseDurationBetween(Date startDate, Date endDate);
     
+    @Query("SELECT * FROM ("
+            + "SELECT epochDay, SUM(caloriesBurned) AS caloriesBurned, SUM(durationMinutes) AS durationMinutes, COUNT(*) AS recordCount "
+            + "FROM exercise_records WHERE startTime BETWEEN :startDate AND :endDate "
+            + "AND epochDay >= (SELECT IFNULL(MAX(lastDay) + 1, 0) FROM monthly_aggregates WHERE recordType = 'exercise') GROUP BY epochDay "
+            + "UNION ALL SELECT epochDay, caloriesBurned, exerciseMinutes, exerciseCount FROM daily_summary "
+            + "WHERE exerciseCount > 0 AND epochDay BETWEEN " + START_DAY + " AND " + END_DAY + " "
+            + "AND epochDay < (SELECT IFNULL(MAX(lastDay) + 1, 0) FROM monthly_aggregates WHERE recordType = 'exercise')"
+            + ") ORDER BY epochDay ASC")
+    List<DailyExerciseTotal> getDailyExerciseTotalsBetween(Date startDate, Date endDate);
+    
+    @Query(EXERCISE_COMPARE_PERIODS)
+    PeriodComparison compareExercisePeriods(Date previousStart, Date start, Date end);
+    
     @Query("SELECT * FROM exercise_records WHERE id = :id")
     ExerciseRecord getExerciseRecordById(long id);
     
+    @Transaction
+    default long addExerciseRecord(ExerciseRecord record) {
+        record.updateDayFields();
+        long id = insertExerciseRecord(record);
+        applyExerciseSummary(record, 1);
+        return id;
+    }
+    
+    // 记录不在主库（已删除或所在年份已封存到分区文件）时返回 false，daily_summary 不变
+    @Transaction
+    default boolean editExerciseRecord(ExerciseRecord record) {
+        ExerciseRecord old = getExerciseRecordById(record.getId());
+        if (old == null) return false;
+        applyExerciseSummary(old, -1);
+        record.updateDayFields();
+        updateExerciseRecord(record);
+        applyExerciseSummary(record, 1);
+        return true;
+    }
+    
+    @Transaction
+    default boolean removeExerciseRecord(long id) {
+        ExerciseRecord old = getExerciseRecordById(id);
+        if (old == null) return false;
+        deleteExerciseRecord(old);
+        applyExerciseSummary(old, -1);
+        return true;
+    }
+    
+    default void applyExerciseSummary(ExerciseRecord record, int sign) {
+        if (record.getStartTime() == null) return;
+        long day = record.getEpochDay();
+        insertDailySummaryIfAbsent(new DailySummary(day));
+        adjustExerciseSummary(day, sign * record.getCaloriesBurned(), sign * record.getDurationMinutes(), sign);
+        SummaryDeltas.exercise(day, sign * record.getCaloriesBurned(), sign * record.getDurationMinutes(), sign);
+        adjustSketch(SketchRollup.METRIC_EXERCISE_DURATION, day, record.getDurationMinutes(), sign);
+    }
+    
     // Sleep Records
     @Insert
     long insertSleepRecord(SleepRecord record);
@@ -84,21 +302,209 @@ public interface HealthDao {
     @Query("SELECT * FROM sleep_records ORDER BY recordDate DESC")
     LiveData<List<SleepRecord>> getAllSleepRecords();
     
-    @Query("SELECT * FROM sleep_records WHERE recordDate BETWEEN :startDate AND :endDate ORDER BY recordDate DESC")
+    @Query(SLEEP_ROWS_PAGE_BEFORE)
+    List<SleepRecordRow> getSleepRecordRowsPageBefore(long beforeTime, long beforeId, int limit);
+    
+    @Query(SLEEP_RECORDS_BETWEEN)
     LiveData<List<SleepRecord>> getSleepRecordsBetween(Date startDate, Date endDate);
     
-    @Query("SELECT * FROM sleep_records WHERE recordDate BETWEEN :startDate AND :endDate ORDER BY recordDate DESC")
+    @Query(SLEEP_RECORDS_BETWEEN)
     List<SleepRecord> getSleepRecordsBetweenSync(Date startDate, Date endDate);
     
-    @Query("SELECT AVG(durationMinutes) FROM sleep_records WHERE recordDate BETWEEN :startDate AND :endDate")
+    @Query(SLEEP_ROWS_BETWEEN)
+    Cursor streamSleepRecordsBetween(Date startDate, Date endDate, long fromDay);
+    
+    @Query(SLEEP_AVG_DURATION_BETWEEN)
     double getAverageSleepDurationBetween(Date startDate, Date endDate);
     
-    @Query("SELECT AVG(CASE sleepQuality WHEN 'EXCELLENT' THEN 5 WHEN 'GOOD' THEN 4 WHEN 'FAIR' THEN 3 WHEN 'POOR' THEN 2 WHEN 'VERY_POOR' THEN 1 END) FROM sleep_records WHERE recordDate BETWEEN :startDate AND :endDate")
+    @Query(SLEEP_AVG_QUALITY_BETWEEN)
     double getAverageSleepQualityBetween(Date startDate, Date endDate);
     
+    @Query("SELECT * FROM ("
+            + "SELECT epochDay, SUM(durationMinutes) AS durationMinutes, IFNULL(SUM(sleepQuality), 0) AS qualitySum, SUM(wakeUpCount) AS wakeUpCount, COUNT(*) AS recordCount "
+            + "FROM sleep_records WHERE recordDate BETWEEN :startDate AND :endDate "
+            + "AND epochDay >= (SELECT IFNULL(MAX(lastDay) + 1, 0) FROM monthly_aggregates WHERE recordType = 'sleep') GROUP BY epochDay "
+            + "UNION ALL SELECT epochDay, sleepMinutes, qualitySum, wakeUpSum, sleepCount FROM daily_summary "
+            + "WHERE sleepCount > 0 AND epochDay BETWEEN " + START_DAY + " AND " + END_DAY + " "
+            + "AND epochDay < (SELECT IFNULL(MAX(lastDay) + 1, 0) FROM monthly_aggregates WHERE recordType = 'sleep')"
+            + ") ORDER BY epochDay ASC")
+    List<DailySleepTotal> getDailySleepTotalsBetween(Date startDate, Date endDate);
+    
+    @Query(SLEEP_COMPARE_PERIODS)
+    PeriodComparison compareSleepPeriods(Date previousStart, Date start, Date end);
+    
     @Query("SELECT * FROM sleep_records WHERE id = :id")
     SleepRecord getSleepRecordById(long id);
     
+    @Transaction
+    default long addSleepRecord(SleepRecord record) {
+        record.updateDayFields();
+        long id = insertSleepRecord(record);
+        applySleepSummary(record, 1);
+        return id;
+    }
+    
+    // 记录不在主库（已删除或所在年份已封存到分区文件）时返回 false，daily_summary 不变
+    @Transaction
+    default boolean editSleepRecord(SleepRecord record) {
+        SleepRecord old = getSleepRecordById(record.getId());
+        if (old == null) return false;
+        applySleepSummary(old, -1);
+        record.updateDayFields();
+        updateSleepRecord(record);
+        applySleepSummary(record, 1);
+        return true;
+    }
+    
+    @Transaction
+    default boolean removeSleepRecord(long id) {
+        SleepRecord old = getSleepRecordById(id);
+        if (old == null) return false;
+        deleteSleepRecord(old);
+        applySleepSummary(old, -1);
+        return true;
+    }
+    
+    default void applySleepSummary(SleepRecord record, int sign) {
+        if (record.getRecordDate() == null) return;
+        long day = record.getEpochDay();
+        int quality = record.getSleepQuality() != null ? record.getSleepQuality().getScore() : 0;
+        insertDailySummaryIfAbsent(new DailySummary(day));
+        adjustSleepSummary(day, sign * record.getDurationMinutes(), sign * quality,
+                sign * record.getWakeUpCount(), sign);
+        SummaryDeltas.sleep(day, sign * record.getDurationMinutes(), sign * quality,
+                sign * record.getWakeUpCount(), sign);
+        adjustSketch(SketchRollup.METRIC_SLEEP_DURATION, day, record.getDurationMinutes(), sign);
+        adjustSketch(SketchRollup.METRIC_SLEEP_LATENCY, day, record.getSleepLatencyMinutes(), sign);
+    }
+    
+    // Timeline
+    // 三个分支各自按时间索引倒序取 limit 条再合并，只扫描 3 * limit 行；首页传 Long.MAX_VALUE 和 Integer.MAX_VALUE
+    @Query(TIMELINE_PAGE_BEFORE)
+    List<TimelineEntry> getTimelinePageBefore(long beforeTime, int beforeKind, long beforeId, int limit);
+    
+    // Daily Summary
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertDailySummaryIfAbsent(DailySummary summary);
+    
+    @Query("UPDATE daily_summary SET caloriesIn = caloriesIn + :calories, protein = protein + :protein, carbs = carbs + :carbs, fat = fat + :fat, dietCount = dietCount + :count WHERE epochDay = :epochDay")
+    void adjustDietSummary(long epochDay, double calories, double protein, double carbs, double fat, int count);
+    
+    @Query("UPDATE daily_summary SET caloriesBurned = caloriesBurned + :calories, exerciseMinutes = exerciseMinutes + :minutes, exerciseCount = exerciseCount + :count WHERE epochDay = :epochDay")
+    void adjustExerciseSummary(long epochDay, double calories, long minutes, int count);
+    
+    @Query("UPDATE daily_summary SET sleepMinutes = sleepMinutes + :minutes, qualitySum = qualitySum + :quality, wakeUpSum = wakeUpSum + :wakeUps, sleepCount = sleepCount + :count WHERE epochDay = :epochDay")
+    void adjustSleepSummary(long epochDay, long minutes, long quality, long wakeUps, int count);
+    
+    @Query("SELECT * FROM daily_summary WHERE epochDay BETWEEN :startDay AND :endDay ORDER BY epochDay ASC")
+    LiveData<List<DailySummary>> getDailySummariesBetween(long startDay, long endDay);
+    
+    @Query("SELECT * FROM daily_summary WHERE epochDay BETWEEN :startDay AND :endDay ORDER BY epochDay ASC")
+    List<DailySummary> getDailySummariesBetweenSync(long startDay, long endDay);
+    
+    // Sketch Rollups
+    @Query("SELECT * FROM sketch_rollups WHERE granularity = :granularity AND period = :period AND metric = :metric")
+    SketchRollup getSketchRollup(int granularity, long period, int metric);
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertSketchRollup(SketchRollup rollup);
+    
+    @Delete
+    void deleteSketchRollup(SketchRollup rollup);
+    
+    @Query("SELECT * FROM sketch_rollups WHERE granularity = :granularity AND period BETWEEN :fromPeriod AND :toPeriod")
+    List<SketchRollup> getSketchRollupsBetween(int granularity, long fromPeriod, long toPeriod);
+    
+    // 同一条记录同时计入当天和当月的草图，范围查询时整月用月度行、首尾零散的日子用日行
+    default void adjustSketch(int metric, long epochDay, long value, int sign) {
+        adjustSketchRollup(SketchRollup.GRANULARITY_DAY, epochDay, metric, value, sign);
+        adjustSketchRollup(SketchRollup.GRANULARITY_MONTH, EpochDay.monthOf(epochDay), metric, value, sign);
+    }
+    
+    default void adjustSketchRollup(int granularity, long period, int metric, long value, int sign) {
+        SketchRollup rollup = getSketchRollup(granularity, period, metric);
+        QuantileSketch sketch = new QuantileSketch();
+        if (rollup == null) {
+            rollup = new SketchRollup(granularity, period, metric);
+        } else {
+            sketch.mergeBytes(rollup.getBuckets());
+        }
+        sketch.add(value, sign);
+        if (sketch.isEmpty()) {
+            deleteSketchRollup(rollup);
+            return;
+        }
+        rollup.setCount(sketch.getCount());
+        rollup.setBuckets(sketch.toBytes());
+        upsertSketchRollup(rollup);
+    }
+    
+    // Monthly Aggregates
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertMonthlyAggregate(MonthlyAggregate aggregate);
+    
+    @Query("SELECT * FROM monthly_aggregates WHERE month = :month AND recordType = :recordType AND subType = :subType")
+    MonthlyAggregate getMonthlyAggregate(int month, String recordType, int subType);
+    
+    // 归档（含按年分区搬走的年份）覆盖到的最后一天之后一天；这之前的原始记录只剩 daily_summary
+    @Query("SELECT IFNULL(MAX(lastDay) + 1, 0) FROM monthly_aggregates WHERE recordType = :recordType")
+    long getFirstUnarchivedDay(String recordType);
+    
+    @Query("SELECT * FROM monthly_aggregates WHERE month BETWEEN :fromMonth AND :toMonth ORDER BY month ASC, recordType ASC, subType ASC")
+    List<MonthlyAggregate> getMonthlyAggregatesBetween(int fromMonth, int toMonth);
+    
+    @Query("SELECT CAST(strftime('%Y%m', intakeTime / 1000, 'unixepoch', 'localtime') AS INTEGER) AS month, 'diet' AS recordType, IFNULL(mealType, 0) AS subType, "
+            + "COUNT(*) AS recordCount, SUM(calories) AS calories, SUM(protein) AS protein, SUM(carbs) AS carbs, SUM(fat) AS fat, "
+            + "0 AS durationMinutes, 0 AS qualitySum, 0 AS wakeUpSum, MIN(calories) AS minCalories, MAX(calories) AS maxCalories, "
+            + "0 AS minDuration, 0 AS maxDuration, MIN(epochDay) AS firstDay, MAX(epochDay) AS lastDay "
+            + "FROM diet_records WHERE intakeTime < :before GROUP BY month, subType")
+    List<MonthlyAggregate> aggregateDietRecordsBefore(long before);
+    
+    @Query("SELECT CAST(strftime('%Y%m', startTime / 1000, 'unixepoch', 'localtime') AS INTEGER) AS month, 'exercise' AS recordType, IFNULL(exerciseType, 0) AS subType, "
+            + "COUNT(*) AS recordCount, SUM(caloriesBurned) AS calories, 0 AS protein, 0 AS carbs, 0 AS fat, "
+            + "SUM(durationMinutes) AS durationMinutes, 0 AS qualitySum, 0 AS wakeUpSum, MIN(caloriesBurned) AS minCalories, MAX(caloriesBurned) AS maxCalories, "
+            + "MIN(durationMinutes) AS minDuration, MAX(durationMinutes) AS maxDuration, MIN(epochDay) AS firstDay, MAX(epochDay) AS lastDay "
+            + "FROM exercise_records WHERE startTime < :before GROUP BY month, subType")
+    List<MonthlyAggregate> aggregateExerciseRecordsBefore(long before);
+    
+    @Query("SELECT CAST(strftime('%Y%m', recordDate / 1000, 'unixepoch', 'localtime') AS INTEGER) AS month, 'sleep' AS recordType, IFNULL(sleepQuality, 0) AS subType, "
+            + "COUNT(*) AS recordCount, 0 AS calories, 0 AS protein, 0 AS carbs, 0 AS fat, "
+            + "SUM(durationMinutes) AS durationMinutes, IFNULL(SUM(sleepQuality), 0) AS qualitySum, SUM(wakeUpCount) AS wakeUpSum, 0 AS minCalories, 0 AS maxCalories, "
+            + "MIN(durationMinutes) AS minDuration, MAX(durationMinutes) AS maxDuration, MIN(epochDay) AS firstDay, MAX(epochDay) AS lastDay "
+            + "FROM sleep_records WHERE recordDate < :before GROUP BY month, subType")
+    List<MonthlyAggregate> aggregateSleepRecordsBefore(long before);
+    
+    // 归档时直接删除原始记录，daily_summary 保持不变
+    @Query("DELETE FROM diet_records WHERE intakeTime < :before")
+    int deleteDietRecordsBefore(long before);
+    
+    @Query("DELETE FROM exercise_records WHERE startTime < :before")
+    int deleteExerciseRecordsBefore(long before);
+    
+    @Query("DELETE FROM sleep_records WHERE recordDate < :before")
+    int deleteSleepRecordsBefore(long before);
+    
+    @Transaction
+    default int[] archiveRecordsBefore(long before) {
+        List<MonthlyAggregate> groups = new ArrayList<>();
+        groups.addAll(aggregateDietRecordsBefore(before));
+        groups.addAll(aggregateExerciseRecordsBefore(before));
+        groups.addAll(aggregateSleepRecordsBefore(before));
+        for (MonthlyAggregate group : groups) {
+            MonthlyAggregate existing = getMonthlyAggregate(group.getMonth(), group.getRecordType(), group.getSubType());
+            if (existing != null) {
+                existing.merge(group);
+                group = existing;
+            }
+            upsertMonthlyAggregate(group);
+        }
+        return new int[]{
+                deleteDietRecordsBefore(before),
+                deleteExerciseRecordsBefore(before),
+                deleteSleepRecordsBefore(before)
+        };
+    }
+    
     // Food Items
     @Insert
     long insertFoodItem(FoodItem foodItem);
@@ -115,8 +521,28 @@ public interface HealthDao {
     @Query("SELECT * FROM food_items WHERE isFavorite = 1 ORDER BY name ASC")
     LiveData<List<FoodItem>> getFavoriteFoodItems();
     
-    @Query("SELECT * FROM food_items WHERE name LIKE '%' || :query || '%' ORDER BY name ASC")
-    LiveData<List<FoodItem>> searchFoodItems(String query);
+    // match 为 FoodSearch.toMatchQuery 生成的前缀表达式；名称完全相同、名称前缀、收藏、名称较短的排在前面
+    @Query("SELECT food_items.* FROM food_items_fts JOIN food_items ON food_items.id = food_items_fts.rowid "
+            + "WHERE food_items_fts MATCH :match "
+            + "ORDER BY food_items.name = :input DESC, substr(food_items.name, 1, length(:input)) = :input DESC, "
+            + "food_items.isFavorite DESC, length(food_items.name) ASC, food_items.name ASC LIMIT :limit")
+    List<FoodItem> searchFoodItems(String match, String input, int limit);
+    
+    default List<FoodItem> findFoodItems(String input, int limit) {
+        String match = FoodSearch.toMatchQuery(input);
+        if (match == null) {
+            return new ArrayList<>();
+        }
+        return searchFoodItems(match, input.trim(), limit);
+    }
+    
+    default long addFoodItem(FoodItem foodItem) {
+        if (foodItem.getSearchTokens() == null) {
+            foodItem.setSearchTokens(FoodSearch.buildTokens(foodItem.getName(),
+                    FoodSearch.toPinyin(foodItem.getName())));
+        }
+        return insertFoodItem(foodItem);
+    }
     
     @Query("SELECT * FROM food_items WHERE category = :category ORDER BY name ASC")
     LiveData<List<FoodItem>> getFoodItemsByCategory(String category);
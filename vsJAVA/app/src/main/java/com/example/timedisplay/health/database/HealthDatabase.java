@@ -8,30 +8,40 @@ import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
 import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
 
+import com.example.timedisplay.health.model.DailySummary;
 import com.example.timedisplay.health.model.DietRecord;
 import com.example.timedisplay.health.model.ExerciseRecord;
 import com.example.timedisplay.health.model.FoodItem;
+import com.example.timedisplay.health.model.FoodItemFts;
+import com.example.timedisplay.health.model.MonthlyAggregate;
+import com.example.timedisplay.health.model.SketchRollup;
 import com.example.timedisplay.health.model.SleepRecord;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
 @Database(entities = {
         DietRecord.class,
         ExerciseRecord.class,
         SleepRecord.class,
-        FoodItem.class
-}, version = 1, exportSchema = false)
-@TypeConverters({DateConverter.class})
+        FoodItem.class,
+        FoodItemFts.class,
+        DailySummary.class,
+        MonthlyAggregate.class,
+        SketchRollup.class
+}, version = 9, exportSchema = false)
+@TypeConverters({DateConverter.class, EnumConverters.class})
 public abstract class HealthDatabase extends RoomDatabase {
 
     public abstract HealthDao healthDao();
 
     private static volatile HealthDatabase INSTANCE;
-    private static final int NUMBER_OF_THREADS = 4;
-    public static final ExecutorService databaseWriteExecutor =
-            Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+    private static final int READ_THREADS = 3;
+    // 写入串行执行，避免多个线程争用 SQLite 的写锁
+    public static final InstrumentedExecutor databaseWriteExecutor =
+            new InstrumentedExecutor("health-write", 1);
+    // WAL 下读取可与写入并发，查询和列表分页走这里
+    public static final InstrumentedExecutor databaseReadExecutor =
+            new InstrumentedExecutor("health-read", READ_THREADS);
 
     public static HealthDatabase getDatabase(final Context context) {
         if (INSTANCE == null) {
@@ -39,6 +49,12 @@ public abstract class HealthDatabase extends RoomDatabase {
                 if (INSTANCE == null) {
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                                     HealthDatabase.class, "health_database")
+                            .addMigrations(HealthMigrations.ALL)
+                            .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                            .openHelperFactory(new InstrumentedOpenHelperFactory(
+                                    new FrameworkSQLiteOpenHelperFactory()))
+                            .setQueryExecutor(databaseReadExecutor)
+                            .setTransactionExecutor(databaseWriteExecutor)
                             .addCallback(roomCallback)
                             .build();
                 }
@@ -47,17 +63,37 @@ public abstract class HealthDatabase extends RoomDatabase {
         return INSTANCE;
     }
 
+    // DAO 的 @Transaction 方法和 runInTransaction 都经过这三个方法，借此在提交后发布 daily_summary 增量
+    @Override
+    public void beginTransaction() {
+        super.beginTransaction();
+        SummaryDeltas.onBegin();
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+        super.setTransactionSuccessful();
+        SummaryDeltas.onSuccessful();
+    }
+
+    @Override
+    public void endTransaction() {
+        boolean ended = false;
+        try {
+            SummaryDeltas.onCommitting();
+            super.endTransaction();
+            ended = true;
+        } finally {
+            SummaryDeltas.onEnd(ended);
+        }
+    }
+
     private static final RoomDatabase.Callback roomCallback = new RoomDatabase.Callback() {
+        // 建库和升级后都在打开时同步内置食物库，整批写入在一个事务中完成
         @Override
-        public void onCreate(@NonNull SupportSQLiteDatabase db) {
-            super.onCreate(db);
-            databaseWriteExecutor.execute(() -> {
-                HealthDao dao = INSTANCE.healthDao();
-                FoodItem[] defaultFoods = FoodItem.getDefaultFoods();
-                for (FoodItem food : defaultFoods) {
-                    dao.insertFoodItem(food);
-                }
-            });
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            super.onOpen(db);
+            FoodCatalog.sync(db);
         }
     };
 }
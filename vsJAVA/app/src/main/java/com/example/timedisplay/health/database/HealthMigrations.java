@@ -0,0 +1,288 @@
+package com.example.timedisplay.health.database;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.example.timedisplay.health.model.DietRecord;
+import com.example.timedisplay.health.model.ExerciseRecord;
+import com.example.timedisplay.health.model.FoodItem;
+import com.example.timedisplay.health.model.QuantileSketch;
+import com.example.timedisplay.health.model.SketchRollup;
+import com.example.timedisplay.health.model.SleepRecord;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class HealthMigrations {
+
+    // 为三张记录表的时间列添加索引
+    public static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_diet_records_intakeTime` ON `diet_records` (`intakeTime`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_exercise_records_startTime` ON `exercise_records` (`startTime`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_sleep_records_recordDate` ON `sleep_records` (`recordDate`)");
+        }
+    };
+
+    // 新增按本地日汇总的 daily_summary 表，并用历史记录回填
+    public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `daily_summary` (`epochDay` INTEGER NOT NULL, "
+                    + "`caloriesIn` REAL NOT NULL, `protein` REAL NOT NULL, `carbs` REAL NOT NULL, "
+                    + "`fat` REAL NOT NULL, `dietCount` INTEGER NOT NULL, `caloriesBurned` REAL NOT NULL, "
+                    + "`exerciseMinutes` INTEGER NOT NULL, `exerciseCount` INTEGER NOT NULL, "
+                    + "`sleepMinutes` INTEGER NOT NULL, `qualitySum` INTEGER NOT NULL, "
+                    + "`wakeUpSum` INTEGER NOT NULL, `sleepCount` INTEGER NOT NULL, PRIMARY KEY(`epochDay`))");
+            db.execSQL("INSERT INTO daily_summary (epochDay, caloriesIn, protein, carbs, fat, dietCount, "
+                    + "caloriesBurned, exerciseMinutes, exerciseCount, sleepMinutes, qualitySum, wakeUpSum, sleepCount) "
+                    + "SELECT day, SUM(caloriesIn), SUM(protein), SUM(carbs), SUM(fat), SUM(dietCount), "
+                    + "SUM(caloriesBurned), SUM(exerciseMinutes), SUM(exerciseCount), "
+                    + "SUM(sleepMinutes), SUM(qualitySum), SUM(wakeUpSum), SUM(sleepCount) FROM ("
+                    + "SELECT " + localEpochDay("intakeTime") + " AS day, calories AS caloriesIn, protein, carbs, fat, "
+                    + "1 AS dietCount, 0 AS caloriesBurned, 0 AS exerciseMinutes, 0 AS exerciseCount, "
+                    + "0 AS sleepMinutes, 0 AS qualitySum, 0 AS wakeUpSum, 0 AS sleepCount "
+                    + "FROM diet_records WHERE intakeTime IS NOT NULL "
+                    + "UNION ALL SELECT " + localEpochDay("startTime") + ", 0, 0, 0, 0, 0, "
+                    + "caloriesBurned, durationMinutes, 1, 0, 0, 0, 0 "
+                    + "FROM exercise_records WHERE startTime IS NOT NULL "
+                    + "UNION ALL SELECT " + localEpochDay("recordDate") + ", 0, 0, 0, 0, 0, 0, 0, 0, "
+                    + "durationMinutes, CASE sleepQuality WHEN 'EXCELLENT' THEN 5 WHEN 'GOOD' THEN 4 "
+                    + "WHEN 'FAIR' THEN 3 WHEN 'POOR' THEN 2 WHEN 'VERY_POOR' THEN 1 ELSE 0 END, wakeUpCount, 1 "
+                    + "FROM sleep_records WHERE recordDate IS NOT NULL"
+                    + ") GROUP BY day");
+        }
+    };
+
+    // food_items 增加搜索分词列，并建立外部内容 FTS4 表及 Room 的同步触发器
+    public static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `food_items` ADD COLUMN `searchTokens` TEXT");
+
+            Map<String, String> defaultTokens = new HashMap<>();
+            for (FoodItem food : FoodItem.getDefaultFoods()) {
+                defaultTokens.put(food.getName(), food.getSearchTokens());
+            }
+            try (Cursor cursor = db.query("SELECT id, name FROM food_items")) {
+                while (cursor.moveToNext()) {
+                    long id = cursor.getLong(0);
+                    String name = cursor.getString(1);
+                    String tokens = defaultTokens.get(name);
+                    if (tokens == null) {
+                        tokens = FoodSearch.buildTokens(name, FoodSearch.toPinyin(name));
+                    }
+                    db.execSQL("UPDATE food_items SET searchTokens = ? WHERE id = ?", new Object[]{tokens, id});
+                }
+            }
+
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `food_items_fts` USING FTS4("
+                    + "`name` TEXT, `searchTokens` TEXT, content=`food_items`)");
+            db.execSQL("INSERT INTO food_items_fts(food_items_fts) VALUES('rebuild')");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_food_items_fts_BEFORE_UPDATE "
+                    + "BEFORE UPDATE ON `food_items` BEGIN DELETE FROM `food_items_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_food_items_fts_BEFORE_DELETE "
+                    + "BEFORE DELETE ON `food_items` BEGIN DELETE FROM `food_items_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_food_items_fts_AFTER_UPDATE "
+                    + "AFTER UPDATE ON `food_items` BEGIN INSERT INTO `food_items_fts`(`docid`, `name`, `searchTokens`) "
+                    + "VALUES (NEW.`rowid`, NEW.`name`, NEW.`searchTokens`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_food_items_fts_AFTER_INSERT "
+                    + "AFTER INSERT ON `food_items` BEGIN INSERT INTO `food_items_fts`(`docid`, `name`, `searchTokens`) "
+                    + "VALUES (NEW.`rowid`, NEW.`name`, NEW.`searchTokens`); END");
+        }
+    };
+
+    // food_items 增加内置食物库版本号，旧数据为 0，打开时由 FoodCatalog 更新
+    public static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `food_items` ADD COLUMN `catalogVersion` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    // 三张记录表增加本地日编号和当日分钟数，并按时间列回填
+    public static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            addDayColumns(db, "diet_records", "intakeTime", "intakeTime");
+            addDayColumns(db, "exercise_records", "startTime", "startTime");
+            addDayColumns(db, "sleep_records", "recordDate", "sleepTime");
+        }
+    };
+
+    // 枚举列由名称 TEXT 改为整数编码，SQLite 不能修改列类型，需要重建三张记录表
+    public static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `diet_records_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`foodName` TEXT, `mealType` INTEGER, `intakeTime` INTEGER, `calories` REAL NOT NULL, "
+                    + "`protein` REAL NOT NULL, `carbs` REAL NOT NULL, `fat` REAL NOT NULL, `amount` REAL NOT NULL, "
+                    + "`unit` TEXT, `note` TEXT, `createdAt` INTEGER, `updatedAt` INTEGER, "
+                    + "`epochDay` INTEGER NOT NULL, `minuteOfDay` INTEGER NOT NULL)");
+            db.execSQL("INSERT INTO diet_records_new (id, foodName, mealType, intakeTime, calories, protein, carbs, "
+                    + "fat, amount, unit, note, createdAt, updatedAt, epochDay, minuteOfDay) "
+                    + "SELECT id, foodName, " + mealTypeCode("mealType") + ", intakeTime, calories, protein, carbs, "
+                    + "fat, amount, unit, note, createdAt, updatedAt, epochDay, minuteOfDay FROM diet_records");
+            replaceTable(db, "diet_records", "intakeTime");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `exercise_records_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`exerciseType` INTEGER, `customTypeName` TEXT, `startTime` INTEGER, `endTime` INTEGER, "
+                    + "`durationMinutes` INTEGER NOT NULL, `intensity` INTEGER, `caloriesBurned` REAL NOT NULL, "
+                    + "`distance` REAL NOT NULL, `steps` INTEGER NOT NULL, `note` TEXT, `createdAt` INTEGER, "
+                    + "`updatedAt` INTEGER, `epochDay` INTEGER NOT NULL, `minuteOfDay` INTEGER NOT NULL)");
+            db.execSQL("INSERT INTO exercise_records_new (id, exerciseType, customTypeName, startTime, endTime, "
+                    + "durationMinutes, intensity, caloriesBurned, distance, steps, note, createdAt, updatedAt, "
+                    + "epochDay, minuteOfDay) "
+                    + "SELECT id, " + exerciseTypeCode("exerciseType") + ", customTypeName, startTime, endTime, "
+                    + "durationMinutes, " + intensityCode("intensity") + ", caloriesBurned, distance, steps, note, "
+                    + "createdAt, updatedAt, epochDay, minuteOfDay FROM exercise_records");
+            replaceTable(db, "exercise_records", "startTime");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `sleep_records_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`sleepTime` INTEGER, `wakeTime` INTEGER, `durationMinutes` INTEGER NOT NULL, "
+                    + "`sleepQuality` INTEGER, `wakeUpCount` INTEGER NOT NULL, `sleepLatencyMinutes` INTEGER NOT NULL, "
+                    + "`hasDream` INTEGER NOT NULL, `dreamDescription` TEXT, `note` TEXT, `recordDate` INTEGER, "
+                    + "`createdAt` INTEGER, `updatedAt` INTEGER, `epochDay` INTEGER NOT NULL, `minuteOfDay` INTEGER NOT NULL)");
+            db.execSQL("INSERT INTO sleep_records_new (id, sleepTime, wakeTime, durationMinutes, sleepQuality, "
+                    + "wakeUpCount, sleepLatencyMinutes, hasDream, dreamDescription, note, recordDate, createdAt, "
+                    + "updatedAt, epochDay, minuteOfDay) "
+                    + "SELECT id, sleepTime, wakeTime, durationMinutes, " + sleepQualityCode("sleepQuality") + ", "
+                    + "wakeUpCount, sleepLatencyMinutes, hasDream, dreamDescription, note, recordDate, createdAt, "
+                    + "updatedAt, epochDay, minuteOfDay FROM sleep_records");
+            replaceTable(db, "sleep_records", "recordDate");
+        }
+    };
+
+    // 新增归档用的月度汇总表
+    public static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `monthly_aggregates` (`month` INTEGER NOT NULL, "
+                    + "`recordType` TEXT NOT NULL, `subType` INTEGER NOT NULL, `recordCount` INTEGER NOT NULL, "
+                    + "`calories` REAL NOT NULL, `protein` REAL NOT NULL, `carbs` REAL NOT NULL, `fat` REAL NOT NULL, "
+                    + "`durationMinutes` INTEGER NOT NULL, `qualitySum` INTEGER NOT NULL, `wakeUpSum` INTEGER NOT NULL, "
+                    + "`minCalories` REAL NOT NULL, `maxCalories` REAL NOT NULL, `minDuration` INTEGER NOT NULL, "
+                    + "`maxDuration` INTEGER NOT NULL, `firstDay` INTEGER NOT NULL, `lastDay` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`month`, `recordType`, `subType`))");
+        }
+    };
+
+    // 新增分钟数分布草图表，按日和按月从现有原始记录回填；已归档月份的原始记录已删除，这些月份没有草图
+    public static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `sketch_rollups` (`granularity` INTEGER NOT NULL, "
+                    + "`period` INTEGER NOT NULL, `metric` INTEGER NOT NULL, `count` INTEGER NOT NULL, "
+                    + "`buckets` BLOB, PRIMARY KEY(`granularity`, `period`, `metric`))");
+
+            Map<String, QuantileSketch> sketches = new HashMap<>();
+            try (Cursor cursor = db.query("SELECT epochDay, durationMinutes, sleepLatencyMinutes "
+                    + "FROM sleep_records WHERE recordDate IS NOT NULL")) {
+                while (cursor.moveToNext()) {
+                    long day = cursor.getLong(0);
+                    addToSketches(sketches, SketchRollup.METRIC_SLEEP_DURATION, day, cursor.getLong(1));
+                    addToSketches(sketches, SketchRollup.METRIC_SLEEP_LATENCY, day, cursor.getLong(2));
+                }
+            }
+            try (Cursor cursor = db.query("SELECT epochDay, durationMinutes FROM exercise_records "
+                    + "WHERE startTime IS NOT NULL")) {
+                while (cursor.moveToNext()) {
+                    addToSketches(sketches, SketchRollup.METRIC_EXERCISE_DURATION, cursor.getLong(0), cursor.getLong(1));
+                }
+            }
+            for (Map.Entry<String, QuantileSketch> entry : sketches.entrySet()) {
+                String[] key = entry.getKey().split(":");
+                QuantileSketch sketch = entry.getValue();
+                db.execSQL("INSERT INTO sketch_rollups (granularity, period, metric, count, buckets) VALUES (?, ?, ?, ?, ?)",
+                        new Object[]{Integer.parseInt(key[0]), Long.parseLong(key[1]), Integer.parseInt(key[2]),
+                                sketch.getCount(), sketch.toBytes()});
+            }
+        }
+    };
+
+    public static final Migration[] ALL = {
+            MIGRATION_1_2,
+            MIGRATION_2_3,
+            MIGRATION_3_4,
+            MIGRATION_4_5,
+            MIGRATION_5_6,
+            MIGRATION_6_7,
+            MIGRATION_7_8,
+            MIGRATION_8_9
+    };
+
+    private static void addToSketches(Map<String, QuantileSketch> sketches, int metric, long epochDay, long value) {
+        String[] keys = {
+                SketchRollup.GRANULARITY_DAY + ":" + epochDay + ":" + metric,
+                SketchRollup.GRANULARITY_MONTH + ":" + EpochDay.monthOf(epochDay) + ":" + metric
+        };
+        for (String key : keys) {
+            QuantileSketch sketch = sketches.get(key);
+            if (sketch == null) {
+                sketch = new QuantileSketch();
+                sketches.put(key, sketch);
+            }
+            sketch.add(value, 1);
+        }
+    }
+
+    private static void addDayColumns(SupportSQLiteDatabase db, String table, String dayColumn, String minuteColumn) {
+        db.execSQL("ALTER TABLE `" + table + "` ADD COLUMN `epochDay` INTEGER NOT NULL DEFAULT 0");
+        db.execSQL("ALTER TABLE `" + table + "` ADD COLUMN `minuteOfDay` INTEGER NOT NULL DEFAULT 0");
+        db.execSQL("UPDATE " + table + " SET epochDay = " + localEpochDay(dayColumn) + " WHERE " + dayColumn + " IS NOT NULL");
+        db.execSQL("UPDATE " + table + " SET minuteOfDay = " + localMinuteOfDay(minuteColumn) + " WHERE " + minuteColumn + " IS NOT NULL");
+        db.execSQL("CREATE INDEX IF NOT EXISTS `index_" + table + "_epochDay` ON `" + table + "` (`epochDay`)");
+    }
+
+    private static void replaceTable(SupportSQLiteDatabase db, String table, String timeColumn) {
+        db.execSQL("DROP TABLE `" + table + "`");
+        db.execSQL("ALTER TABLE `" + table + "_new` RENAME TO `" + table + "`");
+        db.execSQL("CREATE INDEX IF NOT EXISTS `index_" + table + "_" + timeColumn + "` ON `" + table + "` (`" + timeColumn + "`)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS `index_" + table + "_epochDay` ON `" + table + "` (`epochDay`)");
+    }
+
+    private static String mealTypeCode(String column) {
+        StringBuilder sb = new StringBuilder("CASE ").append(column);
+        for (DietRecord.MealType type : DietRecord.MealType.values()) {
+            sb.append(" WHEN '").append(type.name()).append("' THEN ").append(type.getCode());
+        }
+        return sb.append(" END").toString();
+    }
+
+    private static String exerciseTypeCode(String column) {
+        StringBuilder sb = new StringBuilder("CASE ").append(column);
+        for (ExerciseRecord.ExerciseType type : ExerciseRecord.ExerciseType.values()) {
+            sb.append(" WHEN '").append(type.name()).append("' THEN ").append(type.getCode());
+        }
+        return sb.append(" END").toString();
+    }
+
+    private static String intensityCode(String column) {
+        StringBuilder sb = new StringBuilder("CASE ").append(column);
+        for (ExerciseRecord.IntensityLevel intensity : ExerciseRecord.IntensityLevel.values()) {
+            sb.append(" WHEN '").append(intensity.name()).append("' THEN ").append(intensity.getLevel());
+        }
+        return sb.append(" END").toString();
+    }
+
+    private static String sleepQualityCode(String column) {
+        StringBuilder sb = new StringBuilder("CASE ").append(column);
+        for (SleepRecord.SleepQuality quality : SleepRecord.SleepQuality.values()) {
+            sb.append(" WHEN '").append(quality.name()).append("' THEN ").append(quality.getScore());
+        }
+        return sb.append(" END").toString();
+    }
+
+    // 与 EpochDay.of 相同的本地日计算，列中保存的是毫秒时间戳
+    static String localEpochDay(String column) {
+        return "(CAST(strftime('%s', " + column + " / 1000, 'unixepoch', 'localtime') AS INTEGER) / 86400)";
+    }
+
+    static String localMinuteOfDay(String column) {
+        return "((CAST(strftime('%s', " + column + " / 1000, 'unixepoch', 'localtime') AS INTEGER) % 86400) / 60)";
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.timedisplay.health.database;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 固定线程数的执行器，记录排队长度和任务从提交到开始执行的等待时间
+public class InstrumentedExecutor implements Executor {
+
+    private static final String TAG = "HealthDbExecutor";
+    private static final long SLOW_WAIT_MS = 100;
+
+    private final String name;
+    private final ThreadPoolExecutor pool;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger maxQueued = new AtomicInteger();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public InstrumentedExecutor(String name, int threads) {
+        this.name = name;
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), factory);
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        final long enqueuedAt = System.nanoTime();
+        int depth = queued.incrementAndGet();
+        updateMax(maxQueued, depth);
+        pool.execute(() -> {
+            long wait = System.nanoTime() - enqueuedAt;
+            queued.decrementAndGet();
+            started.incrementAndGet();
+            totalWaitNanos.addAndGet(wait);
+            updateMax(maxWaitNanos, wait);
+            if (wait > TimeUnit.MILLISECONDS.toNanos(SLOW_WAIT_MS)) {
+                Log.w(TAG, name + " task waited " + TimeUnit.NANOSECONDS.toMillis(wait) + "ms in queue");
+            }
+            command.run();
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // 已提交但还未开始执行的任务数
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueued.get();
+    }
+
+    public long getStartedCount() {
+        return started.get();
+    }
+
+    public double getAverageWaitMillis() {
+        long count = started.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / 1e6 / count;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    public String describe() {
+        return String.format(Locale.getDefault(), "%s: 排队 %d (峰值 %d), 已执行 %d, 平均等待 %.1fms, 最长等待 %.1fms",
+                name, getQueueDepth(), getMaxQueueDepth(), getStartedCount(),
+                getAverageWaitMillis(), getMaxWaitMillis());
+    }
+
+    private static void updateMax(AtomicInteger max, int value) {
+        int current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) return;
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) return;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.timedisplay.health.database;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+// 包装 Room 使用的 SQLite 连接，把每条查询/语句的耗时、行数和线程记录到 QueryStats
+public class InstrumentedOpenHelperFactory implements SupportSQLiteOpenHelper.Factory {
+
+    private static final String TAG = "HealthDbQuery";
+
+    private final SupportSQLiteOpenHelper.Factory delegate;
+
+    public InstrumentedOpenHelperFactory(SupportSQLiteOpenHelper.Factory delegate) {
+        this.delegate = delegate;
+    }
+
+    @NonNull
+    @Override
+    public SupportSQLiteOpenHelper create(@NonNull SupportSQLiteOpenHelper.Configuration configuration) {
+        SupportSQLiteOpenHelper helper = delegate.create(configuration);
+        DatabaseCache cache = new DatabaseCache();
+        return proxy(SupportSQLiteOpenHelper.class, helper, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof SupportSQLiteDatabase) {
+                return cache.wrap((SupportSQLiteDatabase) result);
+            }
+            return result;
+        });
+    }
+
+    // 同一个底层连接始终返回同一个包装对象，Room 内部会按引用比较
+    private static class DatabaseCache {
+        private SupportSQLiteDatabase raw;
+        private SupportSQLiteDatabase wrapped;
+
+        synchronized SupportSQLiteDatabase wrap(SupportSQLiteDatabase db) {
+            if (db != raw) {
+                raw = db;
+                wrapped = wrapDatabase(db);
+            }
+            return wrapped;
+        }
+    }
+
+    private static SupportSQLiteDatabase wrapDatabase(SupportSQLiteDatabase db) {
+        return proxy(SupportSQLiteDatabase.class, db, (target, method, args) -> {
+            String name = method.getName();
+            if (name.equals("query") && args != null && args.length > 0) {
+                String sql = args[0] instanceof SupportSQLiteQuery
+                        ? ((SupportSQLiteQuery) args[0]).getSql() : String.valueOf(args[0]);
+                long start = System.nanoTime();
+                Cursor cursor = (Cursor) invoke(target, method, args);
+                return new TimedCursor(cursor, sql, start);
+            }
+            if (name.equals("compileStatement") && args != null && args.length == 1) {
+                SupportSQLiteStatement statement = (SupportSQLiteStatement) invoke(target, method, args);
+                return wrapStatement(statement, (String) args[0]);
+            }
+            if (name.equals("execSQL") && args != null && args.length > 0) {
+                long start = System.nanoTime();
+                Object result = invoke(target, method, args);
+                record((String) args[0], System.nanoTime() - start, 0);
+                return result;
+            }
+            return invoke(target, method, args);
+        });
+    }
+
+    private static SupportSQLiteStatement wrapStatement(SupportSQLiteStatement statement, String sql) {
+        return proxy(SupportSQLiteStatement.class, statement, (target, method, args) -> {
+            if (!method.getName().startsWith("execute") && !method.getName().startsWith("simpleQuery")) {
+                return invoke(target, method, args);
+            }
+            long start = System.nanoTime();
+            Object result = invoke(target, method, args);
+            // executeUpdateDelete 返回受影响的行数
+            int rows = method.getName().equals("executeUpdateDelete") ? (Integer) result : 0;
+            record(sql, System.nanoTime() - start, rows);
+            return result;
+        });
+    }
+
+    // 计时从 query() 调用到游标关闭，包含 Room 逐行读取映射的时间
+    private static class TimedCursor extends CursorWrapper {
+        private final String sql;
+        private final long start;
+        private boolean recorded;
+
+        TimedCursor(Cursor cursor, String sql, long start) {
+            super(cursor);
+            this.sql = sql;
+            this.start = start;
+        }
+
+        @Override
+        public void close() {
+            if (!recorded) {
+                recorded = true;
+                // 按调用方实际读到的位置计算行数；没移动过的游标不调用 getCount，避免额外填充窗口
+                int position = getPosition();
+                int rows = position < 0 ? 0 : isAfterLast() ? getCount() : position + 1;
+                record(sql, System.nanoTime() - start, rows);
+            }
+            super.close();
+        }
+    }
+
+    private static void record(String sql, long durationNanos, int rows) {
+        Thread thread = Thread.currentThread();
+        boolean mainThread = thread == Looper.getMainLooper().getThread();
+        if (mainThread) {
+            Log.w(TAG, "Database access on main thread: " + sql);
+        }
+        QueryStats.get().record(sql, durationNanos, rows, thread.getName(), mainThread);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Handler<T> handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.handle(target, method, args));
+    }
+
+    private interface Handler<T> {
+        Object handle(T target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
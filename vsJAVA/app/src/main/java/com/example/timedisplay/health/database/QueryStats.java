@@ -0,0 +1,246 @@
+package com.example.timedisplay.health.database;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// 按语句统计耗时分布、返回行数和调用线程，并保留最近的慢查询；不依赖 Android，可在 JVM 测试中使用。
+// 语句先把字面量归一成 ? 再作为键，拼接了日期或 id 的动态 SQL 不会各占一条；条目数另有 LRU 上限
+public class QueryStats {
+
+    public static final long SLOW_QUERY_MS = 50;
+    private static final int SLOW_LOG_CAPACITY = 64;
+    static final int MAX_STATEMENTS = 256;
+    // 直方图桶上界（毫秒），最后一个桶收集更慢的
+    private static final long[] BUCKET_BOUNDS_MS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024};
+
+    private static final QueryStats INSTANCE = new QueryStats();
+
+    public static class StatementStats {
+        public final String sql;
+        public final long[] buckets = new long[BUCKET_BOUNDS_MS.length + 1];
+        public long count;
+        public long totalNanos;
+        public long maxNanos;
+        public long totalRows;
+        public long mainThreadCount;
+
+        StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        public double getAverageMillis() {
+            return count == 0 ? 0 : totalNanos / 1e6 / count;
+        }
+    }
+
+    public static class SlowQuery {
+        public final String sql;
+        public final long durationNanos;
+        public final int rows;
+        public final String threadName;
+        public final boolean mainThread;
+        public final long timestamp;
+
+        SlowQuery(String sql, long durationNanos, int rows, String threadName, boolean mainThread, long timestamp) {
+            this.sql = sql;
+            this.durationNanos = durationNanos;
+            this.rows = rows;
+            this.threadName = threadName;
+            this.mainThread = mainThread;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private final Map<String, StatementStats> statements =
+            new LinkedHashMap<String, StatementStats>(MAX_STATEMENTS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, StatementStats> eldest) {
+                    return size() > MAX_STATEMENTS;
+                }
+            };
+    private final SlowQuery[] slowLog = new SlowQuery[SLOW_LOG_CAPACITY];
+    private int slowNext;
+    private int slowSize;
+    private long mainThreadAccesses;
+
+    public static QueryStats get() {
+        return INSTANCE;
+    }
+
+    public synchronized void record(String sql, long durationNanos, int rows, String threadName, boolean mainThread) {
+        String key = normalize(sql);
+        StatementStats stats = statements.get(key);
+        if (stats == null) {
+            stats = new StatementStats(key);
+            statements.put(key, stats);
+        }
+        stats.count++;
+        stats.totalNanos += durationNanos;
+        stats.maxNanos = Math.max(stats.maxNanos, durationNanos);
+        stats.totalRows += rows;
+        stats.buckets[bucketOf(durationNanos)]++;
+        if (mainThread) {
+            stats.mainThreadCount++;
+            mainThreadAccesses++;
+        }
+
+        if (durationNanos >= SLOW_QUERY_MS * 1_000_000L) {
+            slowLog[slowNext] = new SlowQuery(sql, durationNanos, rows, threadName, mainThread,
+                    System.currentTimeMillis());
+            slowNext = (slowNext + 1) % SLOW_LOG_CAPACITY;
+            slowSize = Math.min(slowSize + 1, SLOW_LOG_CAPACITY);
+        }
+    }
+
+    public synchronized long getMainThreadAccesses() {
+        return mainThreadAccesses;
+    }
+
+    // 按总耗时倒序
+    public synchronized List<StatementStats> getStatements() {
+        List<StatementStats> list = new ArrayList<>(statements.values());
+        Collections.sort(list, new Comparator<StatementStats>() {
+            @Override
+            public int compare(StatementStats a, StatementStats b) {
+                return Long.compare(b.totalNanos, a.totalNanos);
+            }
+        });
+        return list;
+    }
+
+    // 最新的在前
+    public synchronized List<SlowQuery> getSlowQueries() {
+        List<SlowQuery> list = new ArrayList<>(slowSize);
+        for (int i = 1; i <= slowSize; i++) {
+            list.add(slowLog[(slowNext - i + SLOW_LOG_CAPACITY) % SLOW_LOG_CAPACITY]);
+        }
+        return list;
+    }
+
+    public synchronized void reset() {
+        statements.clear();
+        Arrays.fill(slowLog, null);
+        slowNext = 0;
+        slowSize = 0;
+        mainThreadAccesses = 0;
+    }
+
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("主线程访问: ").append(getMainThreadAccesses()).append('\n');
+        sb.append("\n== 语句 ==\n");
+        for (StatementStats stats : getStatements()) {
+            sb.append(String.format(Locale.getDefault(), "%d 次, 平均 %.2fms, 最长 %.2fms, 行 %d%s\n  %s\n  %s\n",
+                    stats.count, stats.getAverageMillis(), stats.maxNanos / 1e6, stats.totalRows,
+                    stats.mainThreadCount > 0 ? ", 主线程 " + stats.mainThreadCount : "",
+                    formatBuckets(stats.buckets), stats.sql));
+        }
+        sb.append("\n== 慢查询 (≥").append(SLOW_QUERY_MS).append("ms) ==\n");
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
+        for (SlowQuery slow : getSlowQueries()) {
+            sb.append(String.format(Locale.getDefault(), "%s %.1fms %d 行 [%s%s]\n  %s\n",
+                    timeFormat.format(new Date(slow.timestamp)), slow.durationNanos / 1e6, slow.rows,
+                    slow.threadName, slow.mainThread ? ", 主线程" : "", slow.sql));
+        }
+        return sb.toString();
+    }
+
+    // 字符串和数字字面量换成 ?，IN (?, ?, ...) 收成 IN (?)，连续空白合并；引号括起的标识符和标识符里的数字保留
+    static String normalize(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        int n = sql.length();
+        int i = 0;
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i++;
+                while (i < n) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < n && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                appendParameter(sb);
+            } else if (c == '"' || c == '`') {
+                int end = sql.indexOf(c, i + 1);
+                end = end < 0 ? n : end + 1;
+                sb.append(sql, i, end);
+                i = end;
+            } else if (Character.isDigit(c) && !isIdentifierPart(sb)) {
+                i++;
+                while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                appendParameter(sb);
+            } else if (c == '?') {
+                i++;
+                while (i < n && Character.isDigit(sql.charAt(i))) {
+                    i++;
+                }
+                appendParameter(sb);
+            } else if (Character.isWhitespace(c)) {
+                while (i < n && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (sb.length() > 0) sb.append(' ');
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString().trim();
+    }
+
+    // 紧跟在 "?, " 或 "?," 之后的参数并入前一个，使不同长度的 IN 列表得到同一个键
+    private static void appendParameter(StringBuilder sb) {
+        int end = sb.length();
+        while (end > 0 && sb.charAt(end - 1) == ' ') end--;
+        if (end >= 2 && sb.charAt(end - 1) == ',') {
+            int before = end - 1;
+            while (before > 0 && sb.charAt(before - 1) == ' ') before--;
+            if (before > 0 && sb.charAt(before - 1) == '?') {
+                sb.setLength(before);
+                return;
+            }
+        }
+        sb.append('?');
+    }
+
+    private static boolean isIdentifierPart(StringBuilder sb) {
+        if (sb.length() == 0) return false;
+        char last = sb.charAt(sb.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '$';
+    }
+
+    private static int bucketOf(long durationNanos) {
+        long millis = durationNanos / 1_000_000L;
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (millis < BUCKET_BOUNDS_MS[i]) return i;
+        }
+        return BUCKET_BOUNDS_MS.length;
+    }
+
+    private static String formatBuckets(long[] buckets) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] == 0) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(i < BUCKET_BOUNDS_MS.length ? "<" + BUCKET_BOUNDS_MS[i] : "≥" + BUCKET_BOUNDS_MS[BUCKET_BOUNDS_MS.length - 1])
+                    .append("ms:").append(buckets[i]);
+        }
+        return sb.toString();
+    }
+}
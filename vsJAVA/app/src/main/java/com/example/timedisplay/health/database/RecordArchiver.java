@@ -0,0 +1,192 @@
+package com.example.timedisplay.health.database;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.os.BatteryManager;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 把超过保留期的原始记录压缩进 monthly_aggregates，按天的统计仍由 daily_summary 提供
+public class RecordArchiver {
+
+    private static final String TAG = "RecordArchiver";
+    private static final String PREFS_NAME = "archive_prefs";
+    private static final String KEY_RETENTION_MONTHS = "retention_months";
+    private static final String KEY_LAST_RUN = "last_run";
+    private static final String KEY_LAST_REPORT = "last_report";
+    private static final String KEY_LAST_COMPACTION = "last_compaction";
+    private static final String KEY_COMPACT_PENDING = "compact_pending";
+    private static final int DEFAULT_RETENTION_MONTHS = 24;
+    private static final long RUN_INTERVAL_MS = EpochDay.MILLIS_PER_DAY;
+    private static final String[] TABLES = {"diet_records", "exercise_records", "sleep_records"};
+
+    public interface Listener {
+        // 在写线程上调用，只在确实归档了记录时调用
+        void onArchived(Report report);
+    }
+
+    public static class Report {
+        public long cutoffMillis;
+        public final long[] rowsBefore = new long[TABLES.length];
+        public final long[] rowsAfter = new long[TABLES.length];
+        public final int[] archived = new int[TABLES.length];
+
+        public int getArchivedTotal() {
+            return archived[0] + archived[1] + archived[2];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < TABLES.length; i++) {
+                sb.append(String.format(Locale.getDefault(), "%s: %d -> %d 行 (归档 %d)\n",
+                        TABLES[i], rowsBefore[i], rowsAfter[i], archived[i]));
+            }
+            return sb.toString().trim();
+        }
+    }
+
+    private static final AtomicBoolean compacting = new AtomicBoolean();
+
+    private final Context context;
+    private final HealthDatabase database;
+    private final SharedPreferences prefs;
+    private final boolean partitionsEnabled;
+
+    public RecordArchiver(Context context) {
+        this.context = context.getApplicationContext();
+        this.database = HealthDatabase.getDatabase(context);
+        this.prefs = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.partitionsEnabled = new YearPartitions(context).isEnabled();
+    }
+
+    // 0 表示不归档
+    public void setRetentionMonths(int months) {
+        prefs.edit().putInt(KEY_RETENTION_MONTHS, Math.max(months, 0)).apply();
+    }
+
+    public int getRetentionMonths() {
+        return prefs.getInt(KEY_RETENTION_MONTHS, DEFAULT_RETENTION_MONTHS);
+    }
+
+    // 上次归档和压缩的结果，供界面显示；从未运行过时返回 null
+    @Nullable
+    public String getLastReport() {
+        String report = prefs.getString(KEY_LAST_REPORT, null);
+        if (report == null) return null;
+        if (prefs.getBoolean(KEY_COMPACT_PENDING, false)) {
+            return report + "\n数据库文件将在应用退到后台且正在充电时压缩";
+        }
+        return report + "\n" + prefs.getString(KEY_LAST_COMPACTION, "");
+    }
+
+    // 每天最多在写线程上运行一次；写线程上只做归档事务，VACUUM 留给 compactIfIdle
+    public void runIfDue(@Nullable Listener listener) {
+        long now = System.currentTimeMillis();
+        // 按年分区保留完整的原始记录，两者只启用一个
+        if (getRetentionMonths() == 0 || partitionsEnabled
+                || now - prefs.getLong(KEY_LAST_RUN, 0) < RUN_INTERVAL_MS) {
+            return;
+        }
+        HealthDatabase.databaseWriteExecutor.execute(() -> {
+            try {
+                Report report = archive();
+                SharedPreferences.Editor editor = prefs.edit().putLong(KEY_LAST_RUN, now);
+                if (report.getArchivedTotal() > 0) {
+                    editor.putBoolean(KEY_COMPACT_PENDING, true)
+                            .putString(KEY_LAST_REPORT, report.toString());
+                }
+                editor.apply();
+                if (report.getArchivedTotal() > 0 && listener != null) {
+                    listener.onArchived(report);
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Archive failed", e);
+            }
+        });
+    }
+
+    // 同步执行，需在后台线程调用
+    public Report archive() {
+        Report report = new Report();
+        report.cutoffMillis = cutoffMillis(getRetentionMonths());
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+
+        countRows(db, report.rowsBefore);
+        int[] archived = database.healthDao().archiveRecordsBefore(report.cutoffMillis);
+        System.arraycopy(archived, 0, report.archived, 0, archived.length);
+        countRows(db, report.rowsAfter);
+        return report;
+    }
+
+    // 按年分区搬走记录后同样需要压缩主库
+    public void requestCompaction() {
+        prefs.edit().putBoolean(KEY_COMPACT_PENDING, true).apply();
+    }
+
+    // 删除后的空闲页只有 VACUUM 才会归还给文件系统，但 VACUUM 独占数据库、期间所有写入都要等待。
+    // 只在离开主界面且正在充电时、在单独的线程上执行，不占用写线程队列
+    public void compactIfIdle() {
+        if (!prefs.getBoolean(KEY_COMPACT_PENDING, false) || !isCharging()) return;
+        if (!compacting.compareAndSet(false, true)) return;
+        new Thread(() -> {
+            try {
+                SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+                long bytesBefore = databaseBytes(db);
+                db.execSQL("VACUUM");
+                query(db, "PRAGMA wal_checkpoint(TRUNCATE)");
+                long bytesAfter = databaseBytes(db);
+                prefs.edit()
+                        .putBoolean(KEY_COMPACT_PENDING, false)
+                        .putString(KEY_LAST_COMPACTION, String.format(Locale.getDefault(),
+                                "数据库: %d -> %d 字节 (回收 %d)", bytesBefore, bytesAfter, bytesBefore - bytesAfter))
+                        .apply();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Compaction failed", e);
+            } finally {
+                compacting.set(false);
+            }
+        }, "health-compact").start();
+    }
+
+    private boolean isCharging() {
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        return battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
+
+    private static long cutoffMillis(int retentionMonths) {
+        Calendar cal = Calendar.getInstance();
+        cal.set(Calendar.DAY_OF_MONTH, 1);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        cal.add(Calendar.MONTH, -retentionMonths);
+        return cal.getTimeInMillis();
+    }
+
+    private static void countRows(SupportSQLiteDatabase db, long[] counts) {
+        for (int i = 0; i < TABLES.length; i++) {
+            counts[i] = query(db, "SELECT COUNT(*) FROM " + TABLES[i]);
+        }
+    }
+
+    private static long databaseBytes(SupportSQLiteDatabase db) {
+        return query(db, "PRAGMA page_count") * query(db, "PRAGMA page_size");
+    }
+
+    private static long query(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.timedisplay.health.database;
+
+import android.util.Log;
+
+import com.example.timedisplay.health.model.DailySummary;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 收集写事务对 daily_summary 的增量（带符号，同一天合并），最外层事务提交后才通知监听者；
+// 任何一层没有标记成功或提交失败，整批增量丢弃。每批增量带递增的序号，配合 stamp() 让读线程上的
+// 快照与之后收到的增量对齐，见 SummarySnapshot
+public class SummaryDeltas {
+
+    private static final String TAG = "SummaryDeltas";
+
+    public interface Listener {
+        // 在提交事务的线程上调用；sequence 从 1 开始递增
+        void onCommitted(List<DailySummary> deltas, long sequence);
+    }
+
+    private static class TransactionState {
+        int depth;
+        boolean failed;
+        boolean committing;
+        final BitSet successful = new BitSet();
+        final Map<Long, DailySummary> pending = new LinkedHashMap<>();
+    }
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static final AtomicLong published = new AtomicLong();
+    // 已开始提交、还没发布完增量的最外层事务数
+    private static final AtomicInteger committing = new AtomicInteger();
+    private static final ThreadLocal<TransactionState> state = new ThreadLocal<TransactionState>() {
+        @Override
+        protected TransactionState initialValue() {
+            return new TransactionState();
+        }
+    };
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // 没有事务正在提交时返回最近一批已发布增量的序号，否则返回 -1。
+    // 读之前和之后各取一次且相等（不为 -1），说明读到的数据恰好包含序号不大于它的全部增量
+    public static long stamp() {
+        if (committing.get() > 0) return -1;
+        return published.get();
+    }
+
+    static void diet(long epochDay, double calories, double protein, double carbs, double fat, int count) {
+        DailySummary delta = pendingFor(epochDay);
+        delta.setCaloriesIn(delta.getCaloriesIn() + calories);
+        delta.setProtein(delta.getProtein() + protein);
+        delta.setCarbs(delta.getCarbs() + carbs);
+        delta.setFat(delta.getFat() + fat);
+        delta.setDietCount(delta.getDietCount() + count);
+        publishIfOutside();
+    }
+
+    static void exercise(long epochDay, double calories, long minutes, int count) {
+        DailySummary delta = pendingFor(epochDay);
+        delta.setCaloriesBurned(delta.getCaloriesBurned() + calories);
+        delta.setExerciseMinutes(delta.getExerciseMinutes() + minutes);
+        delta.setExerciseCount(delta.getExerciseCount() + count);
+        publishIfOutside();
+    }
+
+    static void sleep(long epochDay, long minutes, long quality, long wakeUps, int count) {
+        DailySummary delta = pendingFor(epochDay);
+        delta.setSleepMinutes(delta.getSleepMinutes() + minutes);
+        delta.setQualitySum(delta.getQualitySum() + quality);
+        delta.setWakeUpSum(delta.getWakeUpSum() + wakeUps);
+        delta.setSleepCount(delta.getSleepCount() + count);
+        publishIfOutside();
+    }
+
+    // 以下由 HealthDatabase 在事务边界调用
+
+    static void onBegin() {
+        TransactionState tx = state.get();
+        tx.depth++;
+        tx.successful.clear(tx.depth);
+    }
+
+    static void onSuccessful() {
+        TransactionState tx = state.get();
+        tx.successful.set(tx.depth);
+    }
+
+    // 最外层 endTransaction 真正提交之前调用
+    static void onCommitting() {
+        TransactionState tx = state.get();
+        if (tx.depth == 1 && !tx.committing) {
+            tx.committing = true;
+            committing.incrementAndGet();
+        }
+    }
+
+    static void onEnd(boolean ended) {
+        TransactionState tx = state.get();
+        if (!ended || !tx.successful.get(tx.depth)) {
+            tx.failed = true;
+        }
+        tx.depth--;
+        if (tx.depth > 0) return;
+
+        boolean committed = !tx.failed;
+        List<DailySummary> deltas = new ArrayList<>(tx.pending.values());
+        tx.pending.clear();
+        tx.failed = false;
+        try {
+            if (committed && !deltas.isEmpty()) {
+                publish(deltas);
+            }
+        } finally {
+            if (tx.committing) {
+                tx.committing = false;
+                committing.decrementAndGet();
+            }
+        }
+    }
+
+    private static DailySummary pendingFor(long epochDay) {
+        Map<Long, DailySummary> pending = state.get().pending;
+        DailySummary delta = pending.get(epochDay);
+        if (delta == null) {
+            delta = new DailySummary(epochDay);
+            pending.put(epochDay, delta);
+        }
+        return delta;
+    }
+
+    // 不在事务中时每条语句自动提交，直接发布。这种写入不受 stamp() 保护，DAO 只在 @Transaction 方法里调整汇总
+    private static void publishIfOutside() {
+        TransactionState tx = state.get();
+        if (tx.depth == 0) {
+            List<DailySummary> deltas = new ArrayList<>(tx.pending.values());
+            tx.pending.clear();
+            publish(deltas);
+        }
+    }
+
+    private static void publish(List<DailySummary> deltas) {
+        long sequence = published.incrementAndGet();
+        for (Listener listener : listeners) {
+            try {
+                listener.onCommitted(deltas, sequence);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Delta listener failed", e);
+            }
+        }
+    }
+}
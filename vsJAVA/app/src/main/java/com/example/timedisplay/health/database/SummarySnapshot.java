@@ -0,0 +1,44 @@
+package com.example.timedisplay.health.database;
+
+// 在读线程池上读取 daily_summary，不占用写线程，同时给出这份数据对应的增量序号：
+// 序号不大于它的 SummaryDeltas 增量已包含在结果里，之后的要由调用方另外套用。
+// 调用方应先注册 SummaryDeltas 监听再调用 load，并丢弃序号不大于快照序号的增量。
+// 读取期间有事务提交就重读，连续冲突时退回写线程：写入都在写线程上串行执行，那里读到的一定一致
+public class SummarySnapshot {
+
+    public interface Reader<T> {
+        T read(HealthDao dao);
+    }
+
+    public interface Callback<T> {
+        // 在读线程或写线程上调用
+        void onLoaded(T value, long sequence);
+    }
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private SummarySnapshot() {
+    }
+
+    // reader 内只能执行一条查询：单条 SELECT 本身是一个一致的快照，多条之间可能夹着提交
+    public static <T> void load(HealthDao dao, Reader<T> reader, Callback<T> callback) {
+        HealthDatabase.databaseReadExecutor.execute(() -> {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                long before = SummaryDeltas.stamp();
+                if (before < 0) {
+                    Thread.yield();
+                    continue;
+                }
+                T value = reader.read(dao);
+                if (SummaryDeltas.stamp() == before) {
+                    callback.onLoaded(value, before);
+                    return;
+                }
+            }
+            HealthDatabase.databaseWriteExecutor.execute(() -> {
+                long sequence = SummaryDeltas.stamp();
+                callback.onLoaded(reader.read(dao), sequence);
+            });
+        });
+    }
+}
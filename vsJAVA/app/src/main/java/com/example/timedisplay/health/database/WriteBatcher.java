@@ -0,0 +1,165 @@
+package com.example.timedisplay.health.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 合并短时间内的多次写入：攒够 MAX_BATCH 条或等待 WINDOW_MS 后在一个事务中提交，只触发一次失效通知
+public class WriteBatcher {
+
+    public interface Write {
+        void apply(HealthDao dao);
+    }
+
+    // 都在写线程上调用：所在事务提交之后，或逐条重试仍失败、这条写入被丢弃之后
+    public interface Callback {
+        void onCommitted();
+
+        void onFailed(RuntimeException error);
+    }
+
+    private static class PendingWrite {
+        final Write write;
+        final Callback callback;
+
+        PendingWrite(Write write, Callback callback) {
+            this.write = write;
+            this.callback = callback;
+        }
+    }
+
+    private static final String TAG = "WriteBatcher";
+    private static final long WINDOW_MS = 250;
+    private static final int MAX_BATCH = 32;
+
+    private static volatile WriteBatcher INSTANCE;
+
+    private final HealthDatabase database;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "health-write-batch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Object lock = new Object();
+
+    private List<PendingWrite> pending = new ArrayList<>();
+    private boolean flushScheduled;
+
+    private WriteBatcher(HealthDatabase database) {
+        this.database = database;
+    }
+
+    public static WriteBatcher get(Context context) {
+        if (INSTANCE == null) {
+            synchronized (WriteBatcher.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new WriteBatcher(HealthDatabase.getDatabase(context));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public void submit(Write write) {
+        submit(write, null);
+    }
+
+    public void submit(Write write, @Nullable Callback callback) {
+        boolean flushNow = false;
+        boolean schedule = false;
+        synchronized (lock) {
+            pending.add(new PendingWrite(write, callback));
+            if (pending.size() >= MAX_BATCH) {
+                flushNow = true;
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                schedule = true;
+            }
+        }
+        if (flushNow) {
+            HealthDatabase.databaseWriteExecutor.execute(this::flush);
+        } else if (schedule) {
+            timer.schedule(() -> HealthDatabase.databaseWriteExecutor.execute(this::flush),
+                    WINDOW_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // 在 onStop 中调用：立即提交待写入的数据，最多等待 timeoutMs
+    public boolean flushAndWait(long timeoutMs) {
+        CountDownLatch done = new CountDownLatch(1);
+        HealthDatabase.databaseWriteExecutor.execute(() -> {
+            flush();
+            done.countDown();
+        });
+        try {
+            return done.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void flush() {
+        final List<PendingWrite> batch;
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pending.isEmpty()) return;
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+
+        HealthDao dao = database.healthDao();
+        try {
+            database.runInTransaction(() -> {
+                for (PendingWrite item : batch) {
+                    item.write.apply(dao);
+                }
+            });
+        } catch (RuntimeException e) {
+            // 整批回滚后逐条重试，避免一条坏数据连累其它记录；每条的回调只反映它自己的结果
+            Log.e(TAG, "Batch of " + batch.size() + " writes failed, retrying one by one", e);
+            for (PendingWrite item : batch) {
+                try {
+                    database.runInTransaction(() -> item.write.apply(dao));
+                } catch (RuntimeException single) {
+                    Log.e(TAG, "Write dropped", single);
+                    notifyFailed(item, single);
+                    continue;
+                }
+                notifyCommitted(item);
+            }
+            return;
+        }
+
+        for (PendingWrite item : batch) {
+            notifyCommitted(item);
+        }
+    }
+
+    // 回调异常只记录，不影响同一批里其它写入的回调
+    private static void notifyCommitted(PendingWrite item) {
+        if (item.callback == null) return;
+        try {
+            item.callback.onCommitted();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Commit callback failed", e);
+        }
+    }
+
+    private static void notifyFailed(PendingWrite item, RuntimeException error) {
+        if (item.callback == null) return;
+        try {
+            item.callback.onFailed(error);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failure callback failed", e);
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package com.example.timedisplay.health.database;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.example.timedisplay.health.model.DietRecord;
+import com.example.timedisplay.health.model.DietRecordRow;
+import com.example.timedisplay.health.model.ExerciseRecord;
+import com.example.timedisplay.health.model.ExerciseRecordRow;
+import com.example.timedisplay.health.model.SleepRecord;
+import com.example.timedisplay.health.model.SleepRecordRow;
+import com.example.timedisplay.health.model.TimelineEntry;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// 可选的按年分区：已结束年份的原始记录搬到只读的 health_<年>.db，主库只保留当年数据。
+// 统计依赖的 daily_summary 和 monthly_aggregates 仍在主库；列表、时间线和导出读原始记录时经过这里，
+// 涉及已封存年份时才以只读方式打开对应分区文件，对 Room 的连接不做 ATTACH（会让 Android 关闭 WAL）
+public class YearPartitions {
+
+    private static final String TAG = "YearPartitions";
+    private static final String PREFS_NAME = "partition_prefs";
+    private static final String KEY_ENABLED = "enabled";
+    private static final String KEY_SEALED_YEARS = "sealed_years";
+    private static final String KEY_LAST_RUN = "last_run";
+    private static final long RUN_INTERVAL_MS = EpochDay.MILLIS_PER_DAY;
+
+    // 表名和对应的时间列，与 archiveRecordsBefore 中删除所用的列一致
+    private static final String[] TABLES = {"diet_records", "exercise_records", "sleep_records"};
+    private static final String[] TIME_COLUMNS = {"intakeTime", "startTime", "recordDate"};
+
+    // 时间线同一时刻按 kind、id 排序：kind 为 1..3，kind * ID_SPAN + id 不会溢出
+    private static final long ID_SPAN = 1L << 52;
+
+    private interface RowReader<T> {
+        T read(Cursor cursor);
+    }
+
+    private interface RowKey<T> {
+        long of(T row);
+    }
+
+    private final Context context;
+    private final HealthDatabase database;
+    private final SharedPreferences prefs;
+
+    public YearPartitions(Context context) {
+        this.context = context.getApplicationContext();
+        this.database = HealthDatabase.getDatabase(context);
+        this.prefs = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public boolean isEnabled() {
+        return prefs.getBoolean(KEY_ENABLED, false);
+    }
+
+    // 关闭后已生成的分区仍然可读，只是不再搬移新的年份
+    public void setEnabled(boolean enabled) {
+        prefs.edit().putBoolean(KEY_ENABLED, enabled).remove(KEY_LAST_RUN).apply();
+    }
+
+    public List<Integer> getSealedYears() {
+        List<Integer> years = new ArrayList<>();
+        for (String year : prefs.getStringSet(KEY_SEALED_YEARS, Collections.<String>emptySet())) {
+            years.add(Integer.parseInt(year));
+        }
+        Collections.sort(years);
+        return years;
+    }
+
+    // 每天最多在写线程上运行一次；写入都经过同一个线程，搬移期间不会有新记录插进来
+    public void runIfDue() {
+        long now = System.currentTimeMillis();
+        if (!isEnabled() || now - prefs.getLong(KEY_LAST_RUN, 0) < RUN_INTERVAL_MS) {
+            return;
+        }
+        HealthDatabase.databaseWriteExecutor.execute(() -> {
+            try {
+                int sealed = sealClosedYears();
+                prefs.edit().putLong(KEY_LAST_RUN, now).apply();
+                if (sealed > 0) {
+                    Log.i(TAG, "Sealed " + sealed + " year(s), partitions: " + getSealedYears());
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Partitioning failed", e);
+            }
+        });
+    }
+
+    // 同步执行，需在写线程调用；返回本次处理的年份数
+    public int sealClosedYears() {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        long oldest = Long.MAX_VALUE;
+        for (int i = 0; i < TABLES.length; i++) {
+            try (Cursor cursor = db.query("SELECT MIN(" + TIME_COLUMNS[i] + ") FROM " + TABLES[i])) {
+                if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                    oldest = Math.min(oldest, cursor.getLong(0));
+                }
+            }
+        }
+        if (oldest == Long.MAX_VALUE) {
+            return 0;
+        }
+
+        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+        int sealed = 0;
+        // 按年份从早到晚处理，archiveRecordsBefore 删除的就只有当年的记录
+        for (int year = yearOf(oldest); year < currentYear; year++) {
+            if (sealYear(db, year)) {
+                sealed++;
+            }
+        }
+        if (sealed > 0) {
+            // 主库的 VACUUM 会独占数据库，不在写线程上执行，交给 RecordArchiver 在充电且离开界面时压缩
+            new RecordArchiver(context).requestCompaction();
+        }
+        return sealed;
+    }
+
+    // 先把记录写进分区文件并压缩，再登记年份，最后才从主库删除。
+    // 中途失败时主库数据仍在，下次按主键覆盖写入即可；补录到已封存年份的记录也走同一流程并入分区
+    private boolean sealYear(SupportSQLiteDatabase db, int year) {
+        long from = startOfYear(year);
+        long to = startOfYear(year + 1);
+        if (countRows(db, from, to) == 0) {
+            return false;
+        }
+
+        File file = partitionFile(year);
+        if (file.exists()) {
+            file.setWritable(true);
+        }
+        SQLiteDatabase partition = SQLiteDatabase.openOrCreateDatabase(file, null);
+        try {
+            partition.execSQL("ATTACH DATABASE ? AS src", new Object[]{mainFile().getPath()});
+            partition.beginTransaction();
+            try {
+                for (int i = 0; i < TABLES.length; i++) {
+                    createTableLike(db, partition, TABLES[i]);
+                    partition.execSQL("INSERT OR REPLACE INTO main." + TABLES[i] + " SELECT * FROM src." + TABLES[i]
+                            + " WHERE " + TIME_COLUMNS[i] + " >= " + from + " AND " + TIME_COLUMNS[i] + " < " + to);
+                }
+                partition.setTransactionSuccessful();
+            } finally {
+                partition.endTransaction();
+            }
+            partition.execSQL("DETACH DATABASE src");
+            partition.execSQL("VACUUM");
+        } finally {
+            partition.close();
+        }
+        file.setReadOnly();
+
+        Set<String> years = new HashSet<>(prefs.getStringSet(KEY_SEALED_YEARS, Collections.<String>emptySet()));
+        years.add(String.valueOf(year));
+        prefs.edit().putStringSet(KEY_SEALED_YEARS, years).commit();
+
+        // 与归档共用一个事务：合并进月度汇总并删除原始记录，按天统计改由 daily_summary 提供
+        database.healthDao().archiveRecordsBefore(to);
+        return true;
+    }
+
+    // 照搬主库的建表和索引语句，分区与 Room 生成的表结构保持一致
+    private static void createTableLike(SupportSQLiteDatabase db, SQLiteDatabase partition, String table) {
+        try (Cursor cursor = db.query("SELECT sql FROM sqlite_master WHERE tbl_name = ? AND sql IS NOT NULL "
+                + "ORDER BY type = 'table' DESC", new Object[]{table})) {
+            while (cursor.moveToNext()) {
+                String sql = cursor.getString(0)
+                        .replaceFirst("^CREATE TABLE ", "CREATE TABLE IF NOT EXISTS ")
+                        .replaceFirst("^CREATE INDEX ", "CREATE INDEX IF NOT EXISTS ")
+                        .replaceFirst("^CREATE UNIQUE INDEX ", "CREATE UNIQUE INDEX IF NOT EXISTS ");
+                partition.execSQL(sql);
+            }
+        }
+    }
+
+    private static long countRows(SupportSQLiteDatabase db, long from, long to) {
+        long count = 0;
+        for (int i = 0; i < TABLES.length; i++) {
+            try (Cursor cursor = db.query("SELECT COUNT(*) FROM " + TABLES[i] + " WHERE "
+                    + TIME_COLUMNS[i] + " >= ? AND " + TIME_COLUMNS[i] + " < ?", new Object[]{from, to})) {
+                if (cursor.moveToFirst()) {
+                    count += cursor.getLong(0);
+                }
+            }
+        }
+        return count;
+    }
+
+    // 以下查询先读主库，范围跨入已封存年份时再逐个以只读方式打开对应分区文件，执行与 HealthDao 相同的 SQL，
+    // 按相同的排序归并。补录到已封存年份的记录在下次封存前仍在主库，所以不能简单地接在主库结果后面
+
+    public List<DietRecord> getDietRecordsBetween(Date startDate, Date endDate) {
+        List<DietRecord> records = database.healthDao().getDietRecordsBetweenSync(startDate, endDate);
+        return mergeYears(records, startDate, endDate, HealthDao.DIET_RECORDS_BETWEEN,
+                YearPartitions::readDietRecord, record -> record.getIntakeTime().getTime(), DietRecord::getId);
+    }
+
+    public List<ExerciseRecord> getExerciseRecordsBetween(Date startDate, Date endDate) {
+        List<ExerciseRecord> records = database.healthDao().getExerciseRecordsBetweenSync(startDate, endDate);
+        return mergeYears(records, startDate, endDate, HealthDao.EXERCISE_RECORDS_BETWEEN,
+                YearPartitions::readExerciseRecord, record -> record.getStartTime().getTime(), ExerciseRecord::getId);
+    }
+
+    public List<SleepRecord> getSleepRecordsBetween(Date startDate, Date endDate) {
+        List<SleepRecord> records = database.healthDao().getSleepRecordsBetweenSync(startDate, endDate);
+        return mergeYears(records, startDate, endDate, HealthDao.SLEEP_RECORDS_BETWEEN,
+                YearPartitions::readSleepRecord, record -> record.getRecordDate().getTime(), SleepRecord::getId);
+    }
+
+    // 列表分页：首页传 Long.MAX_VALUE，之后传上一页最后一条的时间和 id
+    public List<DietRecordRow> getDietRecordRowsPageBefore(long beforeTime, long beforeId, int limit) {
+        List<DietRecordRow> rows = database.healthDao().getDietRecordRowsPageBefore(beforeTime, beforeId, limit);
+        return continuePage(rows, beforeTime, limit,
+                bind(HealthDao.DIET_ROWS_PAGE_BEFORE, beforeTime, 0, beforeId, limit),
+                YearPartitions::readDietRecordRow, row -> row.intakeTime, row -> row.id);
+    }
+
+    public List<ExerciseRecordRow> getExerciseRecordRowsPageBefore(long beforeTime, long beforeId, int limit) {
+        List<ExerciseRecordRow> rows = database.healthDao().getExerciseRecordRowsPageBefore(beforeTime, beforeId, limit);
+        return continuePage(rows, beforeTime, limit,
+                bind(HealthDao.EXERCISE_ROWS_PAGE_BEFORE, beforeTime, 0, beforeId, limit),
+                YearPartitions::readExerciseRecordRow, row -> row.startTime, row -> row.id);
+    }
+
+    public List<SleepRecordRow> getSleepRecordRowsPageBefore(long beforeTime, long beforeId, int limit) {
+        List<SleepRecordRow> rows = database.healthDao().getSleepRecordRowsPageBefore(beforeTime, beforeId, limit);
+        return continuePage(rows, beforeTime, limit,
+                bind(HealthDao.SLEEP_ROWS_PAGE_BEFORE, beforeTime, 0, beforeId, limit),
+                YearPartitions::readSleepRecordRow, row -> row.recordDate, row -> row.id);
+    }
+
+    public List<TimelineEntry> getTimelinePageBefore(long beforeTime, int beforeKind, long beforeId, int limit) {
+        List<TimelineEntry> entries = database.healthDao().getTimelinePageBefore(beforeTime, beforeKind, beforeId, limit);
+        return continuePage(entries, beforeTime, limit,
+                bind(HealthDao.TIMELINE_PAGE_BEFORE, beforeTime, beforeKind, beforeId, limit),
+                YearPartitions::readTimelineEntry, entry -> entry.time, entry -> entry.kind * ID_SPAN + entry.id);
+    }
+
+    private <T> List<T> mergeYears(List<T> rows, Date startDate, Date endDate, String sql,
+                                   RowReader<T> reader, RowKey<T> time, RowKey<T> tieBreak) {
+        String bound = sql.replace(":startDate", String.valueOf(startDate.getTime()))
+                .replace(":endDate", String.valueOf(endDate.getTime()));
+        int first = yearOf(startDate.getTime());
+        int last = yearOf(endDate.getTime());
+        for (int year : sealedYearsDescending()) {
+            if (year < first || year > last) continue;
+            rows = mergeDescending(rows, queryYear(year, bound, reader), Integer.MAX_VALUE, time, tieBreak);
+        }
+        return rows;
+    }
+
+    // 主库这一页不满或者最后一条仍落在某个封存年份之后时，继续从较早的年份补齐。
+    // 年份从新到旧处理：一旦凑满且最后一条不早于该年结束，更早的年份不可能再进入这一页
+    private <T> List<T> continuePage(List<T> rows, long beforeTime, int limit, String sql,
+                                     RowReader<T> reader, RowKey<T> time, RowKey<T> tieBreak) {
+        for (int year : sealedYearsDescending()) {
+            if (startOfYear(year) > beforeTime) continue;
+            if (rows.size() >= limit && time.of(rows.get(limit - 1)) >= startOfYear(year + 1)) break;
+            rows = mergeDescending(rows, queryYear(year, sql, reader), limit, time, tieBreak);
+        }
+        return rows;
+    }
+
+    // 两个已按 (time, tieBreak) 倒序的列表归并，键相同的只保留一条：封存过程中记录可能短暂同时存在于两边
+    private static <T> List<T> mergeDescending(List<T> a, List<T> b, int limit, RowKey<T> time, RowKey<T> tieBreak) {
+        if (b.isEmpty()) return a;
+        List<T> merged = new ArrayList<>(Math.min(limit, a.size() + b.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < a.size() || j < b.size())) {
+            if (j >= b.size()) {
+                merged.add(a.get(i++));
+                continue;
+            }
+            if (i >= a.size()) {
+                merged.add(b.get(j++));
+                continue;
+            }
+            T x = a.get(i);
+            T y = b.get(j);
+            int order = Long.compare(time.of(y), time.of(x));
+            if (order == 0) order = Long.compare(tieBreak.of(y), tieBreak.of(x));
+            if (order <= 0) {
+                merged.add(x);
+                i++;
+                if (order == 0) j++;
+            } else {
+                merged.add(y);
+                j++;
+            }
+        }
+        return merged;
+    }
+
+    // 一次只打开一个分区文件，不使用 ATTACH，不受 SQLITE_MAX_ATTACHED（10）限制
+    private <T> List<T> queryYear(int year, String sql, RowReader<T> reader) {
+        List<T> rows = new ArrayList<>();
+        SQLiteDatabase partition = SQLiteDatabase.openDatabase(partitionFile(year).getPath(), null,
+                SQLiteDatabase.OPEN_READONLY);
+        try (Cursor cursor = partition.rawQuery(sql, null)) {
+            while (cursor.moveToNext()) {
+                rows.add(reader.read(cursor));
+            }
+        } finally {
+            partition.close();
+        }
+        return rows;
+    }
+
+    private List<Integer> sealedYearsDescending() {
+        List<Integer> years = new ArrayList<>();
+        for (int year : getSealedYears()) {
+            if (partitionFile(year).exists()) {
+                years.add(0, year);
+            }
+        }
+        return years;
+    }
+
+    // 参数都是整数，直接写成字面量；分区连接不经过 Room，以字符串绑定会让 "1 < :beforeKind" 这类比较按文本进行
+    private static String bind(String sql, long beforeTime, int beforeKind, long beforeId, int limit) {
+        return sql.replace(":beforeTime", String.valueOf(beforeTime))
+                .replace(":beforeKind", String.valueOf(beforeKind))
+                .replace(":beforeId", String.valueOf(beforeId))
+                .replace(":limit", String.valueOf(limit));
+    }
+
+    private static DietRecordRow readDietRecordRow(Cursor cursor) {
+        DietRecordRow row = new DietRecordRow();
+        row.id = getLong(cursor, "id");
+        row.foodName = getString(cursor, "foodName");
+        row.mealType = EnumConverters.toMealType(getInt(cursor, "mealType"));
+        row.intakeTime = getLong(cursor, "intakeTime");
+        row.calories = getDouble(cursor, "calories");
+        row.sealed = true;
+        return row;
+    }
+
+    private static ExerciseRecordRow readExerciseRecordRow(Cursor cursor) {
+        ExerciseRecordRow row = new ExerciseRecordRow();
+        row.id = getLong(cursor, "id");
+        row.exerciseType = EnumConverters.toExerciseType(getInt(cursor, "exerciseType"));
+        row.customTypeName = getString(cursor, "customTypeName");
+        row.intensity = EnumConverters.toIntensityLevel(getInt(cursor, "intensity"));
+        row.startTime = getLong(cursor, "startTime");
+        row.durationMinutes = getLong(cursor, "durationMinutes");
+        row.caloriesBurned = getDouble(cursor, "caloriesBurned");
+        row.sealed = true;
+        return row;
+    }
+
+    private static SleepRecordRow readSleepRecordRow(Cursor cursor) {
+        SleepRecordRow row = new SleepRecordRow();
+        row.id = getLong(cursor, "id");
+        row.recordDate = getLong(cursor, "recordDate");
+        row.sleepTime = getLong(cursor, "sleepTime");
+        row.wakeTime = getLong(cursor, "wakeTime");
+        row.durationMinutes = getLong(cursor, "durationMinutes");
+        row.sleepQuality = EnumConverters.toSleepQuality(getInt(cursor, "sleepQuality"));
+        row.wakeUpCount = (int) getLong(cursor, "wakeUpCount");
+        row.sealed = true;
+        return row;
+    }
+
+    private static TimelineEntry readTimelineEntry(Cursor cursor) {
+        TimelineEntry entry = new TimelineEntry();
+        entry.kind = (int) getLong(cursor, "kind");
+        entry.id = getLong(cursor, "id");
+        entry.time = getLong(cursor, "time");
+        entry.code = (int) getLong(cursor, "code");
+        entry.label = getString(cursor, "label");
+        entry.calories = getDouble(cursor, "calories");
+        entry.durationMinutes = getLong(cursor, "durationMinutes");
+        return entry;
+    }
+
+    private static DietRecord readDietRecord(Cursor cursor) {
+        DietRecord record = new DietRecord();
+        record.setId(getLong(cursor, "id"));
+        record.setFoodName(getString(cursor, "foodName"));
+        record.setMealType(EnumConverters.toMealType(getInt(cursor, "mealType")));
+        record.setIntakeTime(getDate(cursor, "intakeTime"));
+        record.setCalories(getDouble(cursor, "calories"));
+        record.setProtein(getDouble(cursor, "protein"));
+        record.setCarbs(getDouble(cursor, "carbs"));
+        record.setFat(getDouble(cursor, "fat"));
+        record.setAmount(getDouble(cursor, "amount"));
+        record.setUnit(getString(cursor, "unit"));
+        record.setNote(getString(cursor, "note"));
+        record.setCreatedAt(getDate(cursor, "createdAt"));
+        record.setUpdatedAt(getDate(cursor, "updatedAt"));
+        record.setEpochDay(getLong(cursor, "epochDay"));
+        record.setMinuteOfDay((int) getLong(cursor, "minuteOfDay"));
+        return record;
+    }
+
+    private static ExerciseRecord readExerciseRecord(Cursor cursor) {
+        ExerciseRecord record = new ExerciseRecord();
+        record.setId(getLong(cursor, "id"));
+        record.setExerciseType(EnumConverters.toExerciseType(getInt(cursor, "exerciseType")));
+        record.setCustomTypeName(getString(cursor, "customTypeName"));
+        record.setStartTime(getDate(cursor, "startTime"));
+        record.setEndTime(getDate(cursor, "endTime"));
+        record.setDurationMinutes(getLong(cursor, "durationMinutes"));
+        record.setIntensity(EnumConverters.toIntensityLevel(getInt(cursor, "intensity")));
+        record.setCaloriesBurned(getDouble(cursor, "caloriesBurned"));
+        record.setDistance(getDouble(cursor, "distance"));
+        record.setSteps((int) getLong(cursor, "steps"));
+        record.setNote(getString(cursor, "note"));
+        record.setCreatedAt(getDate(cursor, "createdAt"));
+        record.setUpdatedAt(getDate(cursor, "updatedAt"));
+        record.setEpochDay(getLong(cursor, "epochDay"));
+        record.setMinuteOfDay((int) getLong(cursor, "minuteOfDay"));
+        return record;
+    }
+
+    private static SleepRecord readSleepRecord(Cursor cursor) {
+        SleepRecord record = new SleepRecord();
+        record.setId(getLong(cursor, "id"));
+        record.setSleepTime(getDate(cursor, "sleepTime"));
+        record.setWakeTime(getDate(cursor, "wakeTime"));
+        record.setDurationMinutes(getLong(cursor, "durationMinutes"));
+        record.setSleepQuality(EnumConverters.toSleepQuality(getInt(cursor, "sleepQuality")));
+        record.setWakeUpCount((int) getLong(cursor, "wakeUpCount"));
+        record.setSleepLatencyMinutes((int) getLong(cursor, "sleepLatencyMinutes"));
+        record.setHasDream(getLong(cursor, "hasDream") != 0);
+        record.setDreamDescription(getString(cursor, "dreamDescription"));
+        record.setNote(getString(cursor, "note"));
+        record.setRecordDate(getDate(cursor, "recordDate"));
+        record.setCreatedAt(getDate(cursor, "createdAt"));
+        record.setUpdatedAt(getDate(cursor, "updatedAt"));
+        record.setEpochDay(getLong(cursor, "epochDay"));
+        record.setMinuteOfDay((int) getLong(cursor, "minuteOfDay"));
+        return record;
+    }
+
+    private static long getLong(Cursor cursor, String column) {
+        int index = cursor.getColumnIndexOrThrow(column);
+        return cursor.isNull(index) ? 0 : cursor.getLong(index);
+    }
+
+    private static Integer getInt(Cursor cursor, String column) {
+        int index = cursor.getColumnIndexOrThrow(column);
+        return cursor.isNull(index) ? null : cursor.getInt(index);
+    }
+
+    private static double getDouble(Cursor cursor, String column) {
+        int index = cursor.getColumnIndexOrThrow(column);
+        return cursor.isNull(index) ? 0 : cursor.getDouble(index);
+    }
+
+    private static String getString(Cursor cursor, String column) {
+        int index = cursor.getColumnIndexOrThrow(column);
+        return cursor.isNull(index) ? null : cursor.getString(index);
+    }
+
+    private static Date getDate(Cursor cursor, String column) {
+        int index = cursor.getColumnIndexOrThrow(column);
+        return cursor.isNull(index) ? null : new Date(cursor.getLong(index));
+    }
+
+    private File mainFile() {
+        return context.getDatabasePath("health_database");
+    }
+
+    private File partitionFile(int year) {
+        return context.getDatabasePath("health_" + year + ".db");
+    }
+
+    private static int yearOf(long millis) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(millis);
+        return cal.get(Calendar.YEAR);
+    }
+
+    private static long startOfYear(int year) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(year, Calendar.JANUARY, 1);
+        return cal.getTimeInMillis();
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.timedisplay.health.model;
+
+// 按本地日分组的饮食聚合结果
+public class DailyDietTotal {
+    public long epochDay;
+    public double calories;
+    public double protein;
+    public double carbs;
+    public double fat;
+    public int recordCount;
+}
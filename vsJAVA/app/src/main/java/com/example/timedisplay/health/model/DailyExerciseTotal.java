@@ -0,0 +1,9 @@
+package com.example.timedisplay.health.model;
+
+// 按本地日分组的运动聚合结果
+public class DailyExerciseTotal {
+    public long epochDay;
+    public double caloriesBurned;
+    public long durationMinutes;
+    public int recordCount;
+}
@@ -0,0 +1,10 @@
+package com.example.timedisplay.health.model;
+
+// 按本地日分组的睡眠聚合结果
+public class DailySleepTotal {
+    public long epochDay;
+    public long durationMinutes;
+    public long qualitySum;
+    public long wakeUpCount;
+    public int recordCount;
+}
@@ -0,0 +1,137 @@
+package com.example.timedisplay.health.model;
+
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+@Entity(tableName = "daily_summary")
+public class DailySummary {
+
+    @PrimaryKey
+    private long epochDay;
+
+    private double caloriesIn;
+    private double protein;
+    private double carbs;
+    private double fat;
+    private int dietCount;
+    private double caloriesBurned;
+    private long exerciseMinutes;
+    private int exerciseCount;
+    private long sleepMinutes;
+    private long qualitySum;
+    private long wakeUpSum;
+    private int sleepCount;
+
+    public DailySummary() {
+    }
+
+    @Ignore
+    public DailySummary(long epochDay) {
+        this.epochDay = epochDay;
+    }
+
+    public long getEpochDay() {
+        return epochDay;
+    }
+
+    public void setEpochDay(long epochDay) {
+        this.epochDay = epochDay;
+    }
+
+    public double getCaloriesIn() {
+        return caloriesIn;
+    }
+
+    public void setCaloriesIn(double caloriesIn) {
+        this.caloriesIn = caloriesIn;
+    }
+
+    public double getProtein() {
+        return protein;
+    }
+
+    public void setProtein(double protein) {
+        this.protein = protein;
+    }
+
+    public double getCarbs() {
+        return carbs;
+    }
+
+    public void setCarbs(double carbs) {
+        this.carbs = carbs;
+    }
+
+    public double getFat() {
+        return fat;
+    }
+
+    public void setFat(double fat) {
+        this.fat = fat;
+    }
+
+    public int getDietCount() {
+        return dietCount;
+    }
+
+    public void setDietCount(int dietCount) {
+        this.dietCount = dietCount;
+    }
+
+    public double getCaloriesBurned() {
+        return caloriesBurned;
+    }
+
+    public void setCaloriesBurned(double caloriesBurned) {
+        this.caloriesBurned = caloriesBurned;
+    }
+
+    public long getExerciseMinutes() {
+        return exerciseMinutes;
+    }
+
+    public void setExerciseMinutes(long exerciseMinutes) {
+        this.exerciseMinutes = exerciseMinutes;
+    }
+
+    public int getExerciseCount() {
+        return exerciseCount;
+    }
+
+    public void setExerciseCount(int exerciseCount) {
+        this.exerciseCount = exerciseCount;
+    }
+
+    public long getSleepMinutes() {
+        return sleepMinutes;
+    }
+
+    public void setSleepMinutes(long sleepMinutes) {
+        this.sleepMinutes = sleepMinutes;
+    }
+
+    public long getQualitySum() {
+        return qualitySum;
+    }
+
+    public void setQualitySum(long qualitySum) {
+        this.qualitySum = qualitySum;
+    }
+
+    public long getWakeUpSum() {
+        return wakeUpSum;
+    }
+
+    public void setWakeUpSum(long wakeUpSum) {
+        this.wakeUpSum = wakeUpSum;
+    }
+
+    public int getSleepCount() {
+        return sleepCount;
+    }
+
+    public void setSleepCount(int sleepCount) {
+        this.sleepCount = sleepCount;
+    }
+}
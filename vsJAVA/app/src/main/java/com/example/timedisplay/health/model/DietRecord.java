@@ -1,32 +1,48 @@
 package com.example.timedisplay.health.model;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
 import com.example.timedisplay.health.database.DateConverter;
+import com.example.timedisplay.health.database.EpochDay;
 
 import java.util.Date;
 
-@Entity(tableName = "diet_records")
+@Entity(tableName = "diet_records", indices = {@Index("intakeTime"), @Index("epochDay")})
 @TypeConverters(DateConverter.class)
 public class DietRecord {
     
     public enum MealType {
-        BREAKFAST("早餐"),
-        LUNCH("午餐"),
-        DINNER("晚餐"),
-        SNACK("加餐");
+        BREAKFAST("早餐", 1),
+        LUNCH("午餐", 2),
+        DINNER("晚餐", 3),
+        SNACK("加餐", 4);
         
         private final String displayName;
+        // 数据库中保存的编码，不能修改已有值
+        private final int code;
         
-        MealType(String displayName) {
+        MealType(String displayName, int code) {
             this.displayName = displayName;
+            this.code = code;
         }
         
         public String getDisplayName() {
             return displayName;
         }
+        
+        public int getCode() {
+            return code;
+        }
+        
+        public static MealType fromCode(int code) {
+            for (MealType type : values()) {
+                if (type.code == code) return type;
+            }
+            return null;
+        }
     }
     
     @PrimaryKey(autoGenerate = true)
@@ -44,6 +60,8 @@ public class DietRecord {
     private String note;
     private Date createdAt;
     private Date updatedAt;
+    private long epochDay;
+    private int minuteOfDay;
     
     public DietRecord() {
         this.createdAt = new Date();
@@ -154,6 +172,30 @@ public class DietRecord {
         this.updatedAt = updatedAt;
     }
     
+    public long getEpochDay() {
+        return epochDay;
+    }
+    
+    public void setEpochDay(long epochDay) {
+        this.epochDay = epochDay;
+    }
+    
+    public int getMinuteOfDay() {
+        return minuteOfDay;
+    }
+    
+    public void setMinuteOfDay(int minuteOfDay) {
+        this.minuteOfDay = minuteOfDay;
+    }
+    
+    // 按 intakeTime 计算本地日编号和当日分钟数，写库前调用
+    public void updateDayFields() {
+        if (intakeTime != null) {
+            epochDay = EpochDay.of(intakeTime);
+            minuteOfDay = EpochDay.minuteOfDay(intakeTime.getTime());
+        }
+    }
+    
     public String getMealTypeDisplay() {
         return mealType != null ? mealType.getDisplayName() : "";
     }
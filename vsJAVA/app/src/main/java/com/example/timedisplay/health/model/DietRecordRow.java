@@ -0,0 +1,19 @@
+package com.example.timedisplay.health.model;
+
+import androidx.room.Ignore;
+
+// 列表行只需要的字段，不加载备注和创建/更新时间
+public class DietRecordRow {
+    public long id;
+    public String foodName;
+    public DietRecord.MealType mealType;
+    public long intakeTime;
+    public double calories;
+    // 来自已封存年份的分区文件，只读
+    @Ignore
+    public boolean sealed;
+
+    public String getMealTypeDisplay() {
+        return mealType != null ? mealType.getDisplayName() : "";
+    }
+}
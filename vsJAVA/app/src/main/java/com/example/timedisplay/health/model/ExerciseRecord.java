@@ -1,41 +1,57 @@
 package com.example.timedisplay.health.model;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
 import com.example.timedisplay.health.database.DateConverter;
+import com.example.timedisplay.health.database.EpochDay;
 
 import java.util.Date;
 
-@Entity(tableName = "exercise_records")
+@Entity(tableName = "exercise_records", indices = {@Index("startTime"), @Index("epochDay")})
 @TypeConverters(DateConverter.class)
 public class ExerciseRecord {
     
     public enum ExerciseType {
-        RUNNING("跑步"),
-        WALKING("步行"),
-        CYCLING("骑行"),
-        SWIMMING("游泳"),
-        YOGA("瑜伽"),
-        GYM("健身"),
-        BASKETBALL("篮球"),
-        FOOTBALL("足球"),
-        BADMINTON("羽毛球"),
-        TENNIS("网球"),
-        HIKING("徒步"),
-        DANCING("舞蹈"),
-        OTHER("其他");
+        RUNNING("跑步", 1),
+        WALKING("步行", 2),
+        CYCLING("骑行", 3),
+        SWIMMING("游泳", 4),
+        YOGA("瑜伽", 5),
+        GYM("健身", 6),
+        BASKETBALL("篮球", 7),
+        FOOTBALL("足球", 8),
+        BADMINTON("羽毛球", 9),
+        TENNIS("网球", 10),
+        HIKING("徒步", 11),
+        DANCING("舞蹈", 12),
+        OTHER("其他", 13);
         
         private final String displayName;
+        // 数据库中保存的编码，不能修改已有值
+        private final int code;
         
-        ExerciseType(String displayName) {
+        ExerciseType(String displayName, int code) {
             this.displayName = displayName;
+            this.code = code;
         }
         
         public String getDisplayName() {
             return displayName;
         }
+        
+        public int getCode() {
+            return code;
+        }
+        
+        public static ExerciseType fromCode(int code) {
+            for (ExerciseType type : values()) {
+                if (type.code == code) return type;
+            }
+            return null;
+        }
     }
     
     public enum IntensityLevel {
@@ -59,6 +75,14 @@ public class ExerciseRecord {
         public int getLevel() {
             return level;
         }
+        
+        // 以强度等级作为存储编码，可直接 AVG/SUM
+        public static IntensityLevel fromLevel(int level) {
+            for (IntensityLevel intensity : values()) {
+                if (intensity.level == level) return intensity;
+            }
+            return null;
+        }
     }
     
     @PrimaryKey(autoGenerate = true)
@@ -76,6 +100,8 @@ public class ExerciseRecord {
     private String note;
     private Date createdAt;
     private Date updatedAt;
+    private long epochDay;
+    private int minuteOfDay;
     
     public ExerciseRecord() {
         this.createdAt = new Date();
@@ -193,11 +219,31 @@ public class ExerciseRecord {
         this.updatedAt = updatedAt;
     }
     
-    public String getExerciseTypeDisplay() {
-        if (exerciseType == ExerciseType.OTHER && customTypeName != null && !customTypeName.isEmpty()) {
-            return customTypeName;
+    public long getEpochDay() {
+        return epochDay;
+    }
+    
+    public void setEpochDay(long epochDay) {
+        this.epochDay = epochDay;
+    }
+    
+    public int getMinuteOfDay() {
+        return minuteOfDay;
+    }
+    
+    public void setMinuteOfDay(int minuteOfDay) {
+        this.minuteOfDay = minuteOfDay;
+    }
+    
+    public void updateDayFields() {
+        if (startTime != null) {
+            epochDay = EpochDay.of(startTime);
+            minuteOfDay = EpochDay.minuteOfDay(startTime.getTime());
         }
-        return exerciseType != null ? exerciseType.getDisplayName() : "";
+    }
+    
+    public String getExerciseTypeDisplay() {
+        return exerciseTypeDisplay(exerciseType, customTypeName);
     }
     
     public String getIntensityDisplay() {
@@ -205,6 +251,17 @@ public class ExerciseRecord {
     }
     
     public String getFormattedDuration() {
+        return formatDuration(durationMinutes);
+    }
+    
+    public static String exerciseTypeDisplay(ExerciseType exerciseType, String customTypeName) {
+        if (exerciseType == ExerciseType.OTHER && customTypeName != null && !customTypeName.isEmpty()) {
+            return customTypeName;
+        }
+        return exerciseType != null ? exerciseType.getDisplayName() : "";
+    }
+    
+    public static String formatDuration(long durationMinutes) {
         long hours = durationMinutes / 60;
         long minutes = durationMinutes % 60;
         if (hours > 0) {
@@ -0,0 +1,28 @@
+package com.example.timedisplay.health.model;
+
+import androidx.room.Ignore;
+
+public class ExerciseRecordRow {
+    public long id;
+    public ExerciseRecord.ExerciseType exerciseType;
+    public String customTypeName;
+    public ExerciseRecord.IntensityLevel intensity;
+    public long startTime;
+    public long durationMinutes;
+    public double caloriesBurned;
+    // 来自已封存年份的分区文件，只读
+    @Ignore
+    public boolean sealed;
+
+    public String getExerciseTypeDisplay() {
+        return ExerciseRecord.exerciseTypeDisplay(exerciseType, customTypeName);
+    }
+
+    public String getIntensityDisplay() {
+        return intensity != null ? intensity.getDisplayName() : "";
+    }
+
+    public String getFormattedDuration() {
+        return ExerciseRecord.formatDuration(durationMinutes);
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.timedisplay.health.model;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
 import androidx.room.PrimaryKey;
 
+import com.example.timedisplay.health.database.FoodSearch;
+
 @Entity(tableName = "food_items")
 public class FoodItem {
 
@@ -18,17 +21,22 @@ public class FoodItem {
     private String category;
     private boolean isCustom;
     private boolean isFavorite;
+    private String searchTokens;
+    // 内置食物库版本，自定义食物为 0
+    @ColumnInfo(defaultValue = "0")
+    private int catalogVersion;
 
     public FoodItem() {
     }
 
     @Ignore
-    public FoodItem(String name, double caloriesPer100g, String category) {
+    public FoodItem(String name, String pinyin, double caloriesPer100g, String category) {
         this.name = name;
         this.caloriesPer100g = caloriesPer100g;
         this.category = category;
         this.isCustom = false;
         this.isFavorite = false;
+        this.searchTokens = FoodSearch.buildTokens(name, pinyin);
     }
     
     public long getId() {
@@ -103,6 +111,22 @@ public class FoodItem {
         isFavorite = favorite;
     }
     
+    public String getSearchTokens() {
+        return searchTokens;
+    }
+    
+    public void setSearchTokens(String searchTokens) {
+        this.searchTokens = searchTokens;
+    }
+    
+    public int getCatalogVersion() {
+        return catalogVersion;
+    }
+    
+    public void setCatalogVersion(int catalogVersion) {
+        this.catalogVersion = catalogVersion;
+    }
+    
     public double calculateCalories(double amount, String unit) {
         if ("g".equals(unit) || "克".equals(unit)) {
             return caloriesPer100g * amount / 100.0;
@@ -116,31 +140,31 @@ public class FoodItem {
     
     public static FoodItem[] getDefaultFoods() {
         return new FoodItem[] {
-            new FoodItem("米饭", 116, "主食"),
-            new FoodItem("面条", 137, "主食"),
-            new FoodItem("馒头", 223, "主食"),
-            new FoodItem("燕麦", 389, "主食"),
-            new FoodItem("鸡蛋", 155, "蛋白质"),
-            new FoodItem("鸡胸肉", 165, "蛋白质"),
-            new FoodItem("牛肉", 250, "蛋白质"),
-            new FoodItem("猪肉", 242, "蛋白质"),
-            new FoodItem("鱼肉", 206, "蛋白质"),
-            new FoodItem("豆腐", 76, "蛋白质"),
-            new FoodItem("牛奶", 54, "饮品"),
-            new FoodItem("豆浆", 31, "饮品"),
-            new FoodItem("苹果", 52, "水果"),
-            new FoodItem("香蕉", 89, "水果"),
-            new FoodItem("橙子", 47, "水果"),
-            new FoodItem("西红柿", 18, "蔬菜"),
-            new FoodItem("黄瓜", 16, "蔬菜"),
-            new FoodItem("菠菜", 23, "蔬菜"),
-            new FoodItem("西兰花", 34, "蔬菜"),
-            new FoodItem("胡萝卜", 41, "蔬菜"),
-            new FoodItem("薯片", 536, "零食"),
-            new FoodItem("巧克力", 546, "零食"),
-            new FoodItem("坚果", 607, "零食"),
-            new FoodItem("酸奶", 72, "饮品"),
-            new FoodItem("可乐", 42, "饮品")
+            new FoodItem("米饭", "mi fan", 116, "主食"),
+            new FoodItem("面条", "mian tiao", 137, "主食"),
+            new FoodItem("馒头", "man tou", 223, "主食"),
+            new FoodItem("燕麦", "yan mai", 389, "主食"),
+            new FoodItem("鸡蛋", "ji dan", 155, "蛋白质"),
+            new FoodItem("鸡胸肉", "ji xiong rou", 165, "蛋白质"),
+            new FoodItem("牛肉", "niu rou", 250, "蛋白质"),
+            new FoodItem("猪肉", "zhu rou", 242, "蛋白质"),
+            new FoodItem("鱼肉", "yu rou", 206, "蛋白质"),
+            new FoodItem("豆腐", "dou fu", 76, "蛋白质"),
+            new FoodItem("牛奶", "niu nai", 54, "饮品"),
+            new FoodItem("豆浆", "dou jiang", 31, "饮品"),
+            new FoodItem("苹果", "ping guo", 52, "水果"),
+            new FoodItem("香蕉", "xiang jiao", 89, "水果"),
+            new FoodItem("橙子", "cheng zi", 47, "水果"),
+            new FoodItem("西红柿", "xi hong shi", 18, "蔬菜"),
+            new FoodItem("黄瓜", "huang gua", 16, "蔬菜"),
+            new FoodItem("菠菜", "bo cai", 23, "蔬菜"),
+            new FoodItem("西兰花", "xi lan hua", 34, "蔬菜"),
+            new FoodItem("胡萝卜", "hu luo bo", 41, "蔬菜"),
+            new FoodItem("薯片", "shu pian", 536, "零食"),
+            new FoodItem("巧克力", "qiao ke li", 546, "零食"),
+            new FoodItem("坚果", "jian guo", 607, "零食"),
+            new FoodItem("酸奶", "suan nai", 72, "饮品"),
+            new FoodItem("可乐", "ke le", 42, "饮品")
         };
     }
 }
@@ -0,0 +1,28 @@
+package com.example.timedisplay.health.model;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+
+@Fts4(contentEntity = FoodItem.class)
+@Entity(tableName = "food_items_fts")
+public class FoodItemFts {
+
+    private String name;
+    private String searchTokens;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getSearchTokens() {
+        return searchTokens;
+    }
+
+    public void setSearchTokens(String searchTokens) {
+        this.searchTokens = searchTokens;
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.timedisplay.health.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+// 归档后的月度汇总：month 为 yyyyMM，subType 为餐次/运动类型编码或睡眠评分，0 表示未设置
+@Entity(tableName = "monthly_aggregates", primaryKeys = {"month", "recordType", "subType"})
+public class MonthlyAggregate {
+
+    public static final String TYPE_DIET = "diet";
+    public static final String TYPE_EXERCISE = "exercise";
+    public static final String TYPE_SLEEP = "sleep";
+
+    private int month;
+    @NonNull
+    private String recordType = TYPE_DIET;
+    private int subType;
+    private int recordCount;
+    private double calories;
+    private double protein;
+    private double carbs;
+    private double fat;
+    private long durationMinutes;
+    private long qualitySum;
+    private long wakeUpSum;
+    private double minCalories;
+    private double maxCalories;
+    private long minDuration;
+    private long maxDuration;
+    private long firstDay;
+    private long lastDay;
+
+    public String getSubTypeDisplay() {
+        switch (recordType) {
+            case TYPE_DIET:
+                DietRecord.MealType mealType = DietRecord.MealType.fromCode(subType);
+                return mealType != null ? mealType.getDisplayName() : "未设置";
+            case TYPE_EXERCISE:
+                ExerciseRecord.ExerciseType exerciseType = ExerciseRecord.ExerciseType.fromCode(subType);
+                return exerciseType != null ? exerciseType.getDisplayName() : "未设置";
+            default:
+                SleepRecord.SleepQuality quality = SleepRecord.SleepQuality.fromScore(subType);
+                return quality != null ? quality.getDisplayName() : "未评分";
+        }
+    }
+
+    // 合并同一月份、同一类型的新归档数据
+    public void merge(MonthlyAggregate other) {
+        if (other.recordCount == 0) return;
+        if (recordCount == 0) {
+            minCalories = other.minCalories;
+            maxCalories = other.maxCalories;
+            minDuration = other.minDuration;
+            maxDuration = other.maxDuration;
+            firstDay = other.firstDay;
+            lastDay = other.lastDay;
+        } else {
+            minCalories = Math.min(minCalories, other.minCalories);
+            maxCalories = Math.max(maxCalories, other.maxCalories);
+            minDuration = Math.min(minDuration, other.minDuration);
+            maxDuration = Math.max(maxDuration, other.maxDuration);
+            firstDay = Math.min(firstDay, other.firstDay);
+            lastDay = Math.max(lastDay, other.lastDay);
+        }
+        recordCount += other.recordCount;
+        calories += other.calories;
+        protein += other.protein;
+        carbs += other.carbs;
+        fat += other.fat;
+        durationMinutes += other.durationMinutes;
+        qualitySum += other.qualitySum;
+        wakeUpSum += other.wakeUpSum;
+    }
+
+    public int getMonth() {
+        return month;
+    }
+
+    public void setMonth(int month) {
+        this.month = month;
+    }
+
+    @NonNull
+    public String getRecordType() {
+        return recordType;
+    }
+
+    public void setRecordType(@NonNull String recordType) {
+        this.recordType = recordType;
+    }
+
+    public int getSubType() {
+        return subType;
+    }
+
+    public void setSubType(int subType) {
+        this.subType = subType;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public void setRecordCount(int recordCount) {
+        this.recordCount = recordCount;
+    }
+
+    public double getCalories() {
+        return calories;
+    }
+
+    public void setCalories(double calories) {
+        this.calories = calories;
+    }
+
+    public double getProtein() {
+        return protein;
+    }
+
+    public void setProtein(double protein) {
+        this.protein = protein;
+    }
+
+    public double getCarbs() {
+        return carbs;
+    }
+
+    public void setCarbs(double carbs) {
+        this.carbs = carbs;
+    }
+
+    public double getFat() {
+        return fat;
+    }
+
+    public void setFat(double fat) {
+        this.fat = fat;
+    }
+
+    public long getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public void setDurationMinutes(long durationMinutes) {
+        this.durationMinutes = durationMinutes;
+    }
+
+    public long getQualitySum() {
+        return qualitySum;
+    }
+
+    public void setQualitySum(long qualitySum) {
+        this.qualitySum = qualitySum;
+    }
+
+    public long getWakeUpSum() {
+        return wakeUpSum;
+    }
+
+    public void setWakeUpSum(long wakeUpSum) {
+        this.wakeUpSum = wakeUpSum;
+    }
+
+    public double getMinCalories() {
+        return minCalories;
+    }
+
+    public void setMinCalories(double minCalories) {
+        this.minCalories = minCalories;
+    }
+
+    public double getMaxCalories() {
+        return maxCalories;
+    }
+
+    public void setMaxCalories(double maxCalories) {
+        this.maxCalories = maxCalories;
+    }
+
+    public long getMinDuration() {
+        return minDuration;
+    }
+
+    public void setMinDuration(long minDuration) {
+        this.minDuration = minDuration;
+    }
+
+    public long getMaxDuration() {
+        return maxDuration;
+    }
+
+    public void setMaxDuration(long maxDuration) {
+        this.maxDuration = maxDuration;
+    }
+
+    public long getFirstDay() {
+        return firstDay;
+    }
+
+    public void setFirstDay(long firstDay) {
+        this.firstDay = firstDay;
+    }
+
+    public long getLastDay() {
+        return lastDay;
+    }
+
+    public void setLastDay(long lastDay) {
+        this.lastDay = lastDay;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.timedisplay.health.model;
+
+import java.util.Locale;
+
+// 当前周期与上一个等长周期的记录数和合计，由一次条件聚合查询得到
+public class PeriodComparison {
+
+    // 平均值变化在该比例以内视为持平
+    private static final double FLAT_THRESHOLD_PERCENT = 5;
+
+    public int currentCount;
+    public double currentTotal;
+    public int previousCount;
+    public double previousTotal;
+
+    public double getCurrentAverage() {
+        return currentCount > 0 ? currentTotal / currentCount : 0;
+    }
+
+    public double getPreviousAverage() {
+        return previousCount > 0 ? previousTotal / previousCount : 0;
+    }
+
+    // 上一周期没有数据时无法计算，返回 NaN
+    public double getChangePercent() {
+        double previous = getPreviousAverage();
+        if (previousCount == 0 || previous == 0) {
+            return Double.NaN;
+        }
+        return (getCurrentAverage() - previous) / previous * 100;
+    }
+
+    public String getTrendText() {
+        double change = getChangePercent();
+        if (Double.isNaN(change)) {
+            return currentCount > 0 ? "新" : "→";
+        }
+        if (Math.abs(change) < FLAT_THRESHOLD_PERCENT) {
+            return String.format(Locale.getDefault(), "→ %+.0f%%", change);
+        }
+        return String.format(Locale.getDefault(), "%s %+.0f%%", change > 0 ? "↑" : "↓", change);
+    }
+}
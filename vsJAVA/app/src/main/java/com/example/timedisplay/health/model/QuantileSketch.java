@@ -0,0 +1,139 @@
+package com.example.timedisplay.health.model;
+
+import java.io.ByteArrayOutputStream;
+
+// 固定内存、可合并的分钟数直方图（HDR 式对数分桶）：0..63 分钟逐分钟计数，之后每个 2 的幂区间再分 16 桶，
+// 分位数的相对误差不超过 1/32。计数可以为负，删除或修改记录时直接减回去；合并只是逐桶相加
+public class QuantileSketch {
+
+    private static final int LINEAR_BUCKETS = 64;
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BITS = 6;
+    // 约 68 小时，超过的值计入最后一桶
+    public static final long MAX_VALUE = 4095;
+    static final int BUCKETS = LINEAR_BUCKETS + (12 - LINEAR_BITS) * SUB_BUCKETS;
+    private static final int FORMAT_VERSION = 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count <= 0;
+    }
+
+    public void add(long value, long n) {
+        int index = bucketOf(value);
+        counts[index] += n;
+        count += n;
+    }
+
+    public void merge(QuantileSketch other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+    }
+
+    // q 取 0..1，返回所在桶的中点；没有数据时返回 0
+    public double quantile(double q) {
+        if (count <= 0) return 0;
+        long rank = (long) Math.ceil(q * count);
+        if (rank < 1) rank = 1;
+        if (rank > count) rank = count;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] <= 0) continue;
+            seen += counts[i];
+            if (seen >= rank) {
+                return valueOf(i);
+            }
+        }
+        return valueOf(BUCKETS - 1);
+    }
+
+    public double median() {
+        return quantile(0.5);
+    }
+
+    static int bucketOf(long value) {
+        if (value < 0) value = 0;
+        if (value > MAX_VALUE) value = MAX_VALUE;
+        if (value < LINEAR_BUCKETS) return (int) value;
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (msb - LINEAR_BITS) * SUB_BUCKETS + sub;
+    }
+
+    static double valueOf(int index) {
+        if (index < LINEAR_BUCKETS) return index;
+        int octave = (index - LINEAR_BUCKETS) / SUB_BUCKETS;
+        int sub = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        int shift = octave + LINEAR_BITS - SUB_BUCKET_BITS;
+        long lower = (long) (SUB_BUCKETS + sub) << shift;
+        long upper = lower + (1L << shift) - 1;
+        return (lower + upper) / 2.0;
+    }
+
+    // 稀疏编码：版本号后跟若干（桶号差值, 计数）变长整数对，计数用 zigzag；空草图返回 null
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(FORMAT_VERSION);
+        int previous = 0;
+        boolean any = false;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] == 0) continue;
+            writeVarLong(out, i - previous);
+            writeVarLong(out, (counts[i] << 1) ^ (counts[i] >> 63));
+            previous = i;
+            any = true;
+        }
+        return any ? out.toByteArray() : null;
+    }
+
+    // 把编码后的草图加到当前草图上，null 视为空
+    public void mergeBytes(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) return;
+        if (bytes[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown sketch format " + bytes[0]);
+        }
+        int[] position = {1};
+        int index = 0;
+        while (position[0] < bytes.length) {
+            index += (int) readVarLong(bytes, position);
+            long zigzag = readVarLong(bytes, position);
+            long n = (zigzag >>> 1) ^ -(zigzag & 1);
+            counts[index] += n;
+            count += n;
+        }
+    }
+
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.mergeBytes(bytes);
+        return sketch;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] bytes, int[] position) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.timedisplay.health.model;
+
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+// 分钟数分布的汇总行：按日时 period 为 epochDay，按月时为 yyyyMM；buckets 为 QuantileSketch 的编码
+@Entity(tableName = "sketch_rollups", primaryKeys = {"granularity", "period", "metric"})
+public class SketchRollup {
+
+    public static final int GRANULARITY_DAY = 0;
+    public static final int GRANULARITY_MONTH = 1;
+
+    public static final int METRIC_SLEEP_DURATION = 1;
+    public static final int METRIC_SLEEP_LATENCY = 2;
+    public static final int METRIC_EXERCISE_DURATION = 3;
+
+    private int granularity;
+    private long period;
+    private int metric;
+    private long count;
+    private byte[] buckets;
+
+    public SketchRollup() {
+    }
+
+    @Ignore
+    public SketchRollup(int granularity, long period, int metric) {
+        this.granularity = granularity;
+        this.period = period;
+        this.metric = metric;
+    }
+
+    public int getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(int granularity) {
+        this.granularity = granularity;
+    }
+
+    public long getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(long period) {
+        this.period = period;
+    }
+
+    public int getMetric() {
+        return metric;
+    }
+
+    public void setMetric(int metric) {
+        this.metric = metric;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public byte[] getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(byte[] buckets) {
+        this.buckets = buckets;
+    }
+}
@@ -1,14 +1,16 @@
 package com.example.timedisplay.health.model;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
 import com.example.timedisplay.health.database.DateConverter;
+import com.example.timedisplay.health.database.EpochDay;
 
 import java.util.Date;
 
-@Entity(tableName = "sleep_records")
+@Entity(tableName = "sleep_records", indices = {@Index("recordDate"), @Index("epochDay")})
 @TypeConverters(DateConverter.class)
 public class SleepRecord {
     
@@ -34,6 +36,14 @@ public class SleepRecord {
         public int getScore() {
             return score;
         }
+        
+        // 以评分作为存储编码，可直接 AVG/SUM
+        public static SleepQuality fromScore(int score) {
+            for (SleepQuality quality : values()) {
+                if (quality.score == score) return quality;
+            }
+            return null;
+        }
     }
     
     @PrimaryKey(autoGenerate = true)
@@ -51,6 +61,8 @@ public class SleepRecord {
     private Date recordDate;
     private Date createdAt;
     private Date updatedAt;
+    private long epochDay;
+    private int minuteOfDay;
     
     public SleepRecord() {
         this.createdAt = new Date();
@@ -173,17 +185,38 @@ public class SleepRecord {
         this.updatedAt = updatedAt;
     }
     
+    public long getEpochDay() {
+        return epochDay;
+    }
+    
+    public void setEpochDay(long epochDay) {
+        this.epochDay = epochDay;
+    }
+    
+    public int getMinuteOfDay() {
+        return minuteOfDay;
+    }
+    
+    public void setMinuteOfDay(int minuteOfDay) {
+        this.minuteOfDay = minuteOfDay;
+    }
+    
+    // epochDay 取记录日期，minuteOfDay 取入睡时间
+    public void updateDayFields() {
+        if (recordDate != null) {
+            epochDay = EpochDay.of(recordDate);
+        }
+        if (sleepTime != null) {
+            minuteOfDay = EpochDay.minuteOfDay(sleepTime.getTime());
+        }
+    }
+    
     public String getSleepQualityDisplay() {
         return sleepQuality != null ? sleepQuality.getDisplayName() : "";
     }
     
     public String getFormattedDuration() {
-        long hours = durationMinutes / 60;
-        long minutes = durationMinutes % 60;
-        if (hours > 0) {
-            return String.format("%d小时%d分钟", hours, minutes);
-        }
-        return String.format("%d分钟", minutes);
+        return ExerciseRecord.formatDuration(durationMinutes);
     }
     
     public double getDurationHours() {
@@ -0,0 +1,25 @@
+package com.example.timedisplay.health.model;
+
+import androidx.room.Ignore;
+
+public class SleepRecordRow {
+    public long id;
+    public long recordDate;
+    // 报告明细用；未填写时为 0
+    public long sleepTime;
+    public long wakeTime;
+    public long durationMinutes;
+    public SleepRecord.SleepQuality sleepQuality;
+    public int wakeUpCount;
+    // 来自已封存年份的分区文件，只读
+    @Ignore
+    public boolean sealed;
+
+    public String getSleepQualityDisplay() {
+        return sleepQuality != null ? sleepQuality.getDisplayName() : "";
+    }
+
+    public String getFormattedDuration() {
+        return ExerciseRecord.formatDuration(durationMinutes);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.timedisplay.health.model;
+
+import java.util.Locale;
+
+// 时间线中的一条：三类记录按 time 倒序交错，code 为餐次/运动类型编码或睡眠评分
+public class TimelineEntry {
+
+    public static final int KIND_DIET = 1;
+    public static final int KIND_EXERCISE = 2;
+    public static final int KIND_SLEEP = 3;
+
+    public int kind;
+    public long id;
+    public long time;
+    public int code;
+    public String label;
+    public double calories;
+    public long durationMinutes;
+
+    public String getKindDisplay() {
+        switch (kind) {
+            case KIND_DIET:
+                return "饮食";
+            case KIND_EXERCISE:
+                return "运动";
+            case KIND_SLEEP:
+                return "睡眠";
+            default:
+                return "";
+        }
+    }
+
+    public String getTitle() {
+        switch (kind) {
+            case KIND_DIET: {
+                DietRecord.MealType mealType = DietRecord.MealType.fromCode(code);
+                return mealType != null ? mealType.getDisplayName() + " · " + label : label;
+            }
+            case KIND_EXERCISE:
+                return ExerciseRecord.exerciseTypeDisplay(ExerciseRecord.ExerciseType.fromCode(code), label);
+            case KIND_SLEEP: {
+                SleepRecord.SleepQuality quality = SleepRecord.SleepQuality.fromScore(code);
+                return quality != null ? "睡眠质量 " + quality.getDisplayName() : "睡眠";
+            }
+            default:
+                return "";
+        }
+    }
+
+    public String getValueDisplay() {
+        switch (kind) {
+            case KIND_DIET:
+                return String.format(Locale.getDefault(), "%.0f kcal", calories);
+            case KIND_EXERCISE:
+                return String.format(Locale.getDefault(), "-%.0f kcal", calories);
+            case KIND_SLEEP:
+                return ExerciseRecord.formatDuration(durationMinutes);
+            default:
+                return "";
+        }
+    }
+}
@@ -7,10 +7,15 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.os.Environment;
 
-import com.example.timedisplay.health.model.DietRecord;
-import com.example.timedisplay.health.model.ExerciseRecord;
-import com.example.timedisplay.health.model.SleepRecord;
+import com.example.timedisplay.health.database.EpochDay;
+import com.example.timedisplay.health.database.HealthDatabase;
+import com.example.timedisplay.health.database.YearPartitions;
+import com.example.timedisplay.health.model.DietRecordRow;
+import com.example.timedisplay.health.model.ExerciseRecordRow;
+import com.example.timedisplay.health.model.MonthlyAggregate;
+import com.example.timedisplay.health.model.SleepRecordRow;
 import com.example.timedisplay.health.stats.HealthStatistics;
+import com.example.timedisplay.health.stats.StatisticsService;
 import com.itextpdf.io.font.constants.StandardFonts;
 import com.itextpdf.io.image.ImageData;
 import com.itextpdf.io.image.ImageDataFactory;
@@ -45,6 +50,24 @@ public class PdfReportGenerator {
 
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
     private static final SimpleDateFormat DATETIME_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
+    // 多年报告的三类统计各自扫描数年的记录，超时后取消并报告失败
+    private static final long STATS_TIMEOUT_MS = 60_000;
+    // 明细表按页读取、逐页写入，每类最多列出最近的 MAX_DETAIL_ROWS 条；其余只计入概览和图表
+    private static final int DETAIL_PAGE_SIZE = 200;
+    private static final int MAX_DETAIL_ROWS = 2000;
+
+    private interface RowPage<T> {
+        // last 为上一页最后一条，为 null 时取第一页
+        List<T> before(T last, int limit);
+    }
+
+    private interface RowTime<T> {
+        long of(T row);
+    }
+
+    private interface RowWriter<T> {
+        void write(Table table, T row, PdfFont font);
+    }
 
     public interface PdfGenerationCallback {
         void onSuccess(String filePath);
@@ -53,9 +76,6 @@ public class PdfReportGenerator {
 
     public static void generateHealthReport(
             Context context,
-            List<DietRecord> dietRecords,
-            List<ExerciseRecord> exerciseRecords,
-            List<SleepRecord> sleepRecords,
             Date startDate,
             Date endDate,
             String periodType,
@@ -64,6 +84,10 @@ public class PdfReportGenerator {
 
         new Thread(() -> {
             try {
+                // 三类统计在读线程池上并行计算，先于创建文件；生成线程是单独的线程，可以在这里等待
+                HealthStatistics.ComprehensiveStats stats = StatisticsService.get(context)
+                        .compute(startDate, endDate, periodType, STATS_TIMEOUT_MS);
+
                 String fileName = generateFileName(periodType);
                 File pdfDir = new File(context.getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), "HealthReports");
                 if (!pdfDir.exists()) {
@@ -90,11 +114,14 @@ public class PdfReportGenerator {
 
                 addTitle(document, boldFont, periodType);
                 addDateRange(document, font, startDate, endDate);
-                addSummarySection(document, boldFont, font, dietRecords, exerciseRecords, sleepRecords, startDate, endDate);
-                addDietSection(document, boldFont, font, dietRecords);
-                addExerciseSection(document, boldFont, font, exerciseRecords);
-                addSleepSection(document, boldFont, font, sleepRecords);
-                addChartsSection(document, boldFont, font, dietRecords, exerciseRecords, sleepRecords);
+                // 明细经过 YearPartitions 分页读取，已封存年份的记录也在内
+                YearPartitions partitions = new YearPartitions(context);
+                addSummarySection(document, boldFont, font, stats);
+                addDietSection(document, boldFont, font, partitions, startDate, endDate, stats.dietStats.recordCount);
+                addExerciseSection(document, boldFont, font, partitions, startDate, endDate, stats.exerciseStats.recordCount);
+                addSleepSection(document, boldFont, font, partitions, startDate, endDate, stats.sleepStats.recordCount);
+                addArchivedSection(document, boldFont, font, context, startDate, endDate);
+                addChartsSection(document, boldFont, font, stats);
 
                 document.close();
 
@@ -140,17 +167,13 @@ public class PdfReportGenerator {
     }
 
     private static void addSummarySection(Document document, PdfFont boldFont, PdfFont font,
-                                          List<DietRecord> dietRecords, List<ExerciseRecord> exerciseRecords,
-                                          List<SleepRecord> sleepRecords, Date startDate, Date endDate) {
+                                          HealthStatistics.ComprehensiveStats stats) {
         Paragraph sectionTitle = new Paragraph("数据概览")
                 .setFont(boldFont)
                 .setFontSize(16)
                 .setMarginBottom(10);
         document.add(sectionTitle);
 
-        HealthStatistics.ComprehensiveStats stats = HealthStatistics.generateComprehensiveStats(
-                dietRecords, exerciseRecords, sleepRecords, startDate, endDate, "周");
-
         Table summaryTable = new Table(UnitValue.createPercentArray(new float[]{1, 1}))
                 .setWidth(UnitValue.createPercentValue(100))
                 .setMarginBottom(20);
@@ -174,109 +197,179 @@ public class PdfReportGenerator {
         return cell;
     }
 
-    private static void addDietSection(Document document, PdfFont boldFont, PdfFont font, List<DietRecord> records) {
-        Paragraph sectionTitle = new Paragraph("饮食记录详情")
-                .setFont(boldFont)
-                .setFontSize(16)
-                .setMarginTop(20)
-                .setMarginBottom(10);
-        document.add(sectionTitle);
-
-        if (records.isEmpty()) {
-            document.add(new Paragraph("暂无饮食记录").setFont(font).setFontSize(12));
-            return;
-        }
-
-        Table table = new Table(UnitValue.createPercentArray(new float[]{2, 1, 2, 1}))
-                .setWidth(UnitValue.createPercentValue(100))
-                .setMarginBottom(20);
+    private static void addDietSection(Document document, PdfFont boldFont, PdfFont font, YearPartitions partitions,
+                                       Date startDate, Date endDate, int total) {
+        addDetailSection(document, boldFont, font, "饮食记录详情", "暂无饮食记录",
+                new float[]{2, 1, 2, 1}, new String[]{"食物名称", "餐次", "摄入时间", "热量(kcal)"},
+                startDate, total,
+                (last, limit) -> last == null
+                        ? partitions.getDietRecordRowsPageBefore(endDate.getTime(), Long.MAX_VALUE, limit)
+                        : partitions.getDietRecordRowsPageBefore(last.intakeTime, last.id, limit),
+                row -> row.intakeTime,
+                (table, row, cellFont) -> {
+                    table.addCell(createDataCell(row.foodName, cellFont));
+                    table.addCell(createDataCell(row.getMealTypeDisplay(), cellFont));
+                    table.addCell(createDataCell(DATETIME_FORMAT.format(new Date(row.intakeTime)), cellFont));
+                    table.addCell(createDataCell(String.format("%.0f", row.calories), cellFont));
+                });
+    }
 
-        table.addHeaderCell(createHeaderCell("食物名称", boldFont));
-        table.addHeaderCell(createHeaderCell("餐次", boldFont));
-        table.addHeaderCell(createHeaderCell("摄入时间", boldFont));
-        table.addHeaderCell(createHeaderCell("热量(kcal)", boldFont));
+    private static void addExerciseSection(Document document, PdfFont boldFont, PdfFont font, YearPartitions partitions,
+                                           Date startDate, Date endDate, int total) {
+        addDetailSection(document, boldFont, font, "运动记录详情", "暂无运动记录",
+                new float[]{2, 1, 2, 1, 1}, new String[]{"运动类型", "强度", "开始时间", "时长(分钟)", "消耗(kcal)"},
+                startDate, total,
+                (last, limit) -> last == null
+                        ? partitions.getExerciseRecordRowsPageBefore(endDate.getTime(), Long.MAX_VALUE, limit)
+                        : partitions.getExerciseRecordRowsPageBefore(last.startTime, last.id, limit),
+                row -> row.startTime,
+                (table, row, cellFont) -> {
+                    table.addCell(createDataCell(row.getExerciseTypeDisplay(), cellFont));
+                    table.addCell(createDataCell(row.getIntensityDisplay(), cellFont));
+                    table.addCell(createDataCell(DATETIME_FORMAT.format(new Date(row.startTime)), cellFont));
+                    table.addCell(createDataCell(String.valueOf(row.durationMinutes), cellFont));
+                    table.addCell(createDataCell(String.format("%.0f", row.caloriesBurned), cellFont));
+                });
+    }
 
-        for (DietRecord record : records) {
-            table.addCell(createDataCell(record.getFoodName(), font));
-            table.addCell(createDataCell(record.getMealTypeDisplay(), font));
-            table.addCell(createDataCell(DATETIME_FORMAT.format(record.getIntakeTime()), font));
-            table.addCell(createDataCell(String.format("%.0f", record.getCalories()), font));
-        }
+    private static void addSleepSection(Document document, PdfFont boldFont, PdfFont font, YearPartitions partitions,
+                                        Date startDate, Date endDate, int total) {
+        addDetailSection(document, boldFont, font, "睡眠记录详情", "暂无睡眠记录",
+                new float[]{2, 2, 1, 1, 1}, new String[]{"入睡时间", "起床时间", "时长", "质量", "夜醒次数"},
+                startDate, total,
+                (last, limit) -> last == null
+                        ? partitions.getSleepRecordRowsPageBefore(endDate.getTime(), Long.MAX_VALUE, limit)
+                        : partitions.getSleepRecordRowsPageBefore(last.recordDate, last.id, limit),
+                row -> row.recordDate,
+                (table, row, cellFont) -> {
+                    table.addCell(createDataCell(formatTime(row.sleepTime), cellFont));
+                    table.addCell(createDataCell(formatTime(row.wakeTime), cellFont));
+                    table.addCell(createDataCell(row.getFormattedDuration(), cellFont));
+                    table.addCell(createDataCell(row.getSleepQualityDisplay(), cellFont));
+                    table.addCell(createDataCell(String.valueOf(row.wakeUpCount), cellFont));
+                });
+    }
 
-        document.add(table);
+    private static String formatTime(long millis) {
+        return millis > 0 ? DATETIME_FORMAT.format(new Date(millis)) : "-";
     }
 
-    private static void addExerciseSection(Document document, PdfFont boldFont, PdfFont font, List<ExerciseRecord> records) {
-        Paragraph sectionTitle = new Paragraph("运动记录详情")
+    // 从 endDate 起按时间倒序逐页读取列表行，写入 iText 的大表并在每页之后 flush，内存里只保留一页。
+    // total 为区间内的记录总数（含已归档的），超出上限或已归档的部分只提示条数
+    private static <T> void addDetailSection(Document document, PdfFont boldFont, PdfFont font,
+                                             String title, String emptyText, float[] widths, String[] headers,
+                                             Date startDate, int total,
+                                             RowPage<T> pages, RowTime<T> time, RowWriter<T> writer) {
+        Paragraph sectionTitle = new Paragraph(title)
                 .setFont(boldFont)
                 .setFontSize(16)
                 .setMarginTop(20)
                 .setMarginBottom(10);
         document.add(sectionTitle);
 
-        if (records.isEmpty()) {
-            document.add(new Paragraph("暂无运动记录").setFont(font).setFontSize(12));
+        List<T> page = pages.before(null, DETAIL_PAGE_SIZE);
+        if (page.isEmpty() || time.of(page.get(0)) < startDate.getTime()) {
+            document.add(new Paragraph(total > 0 ? emptyText + "（区间内的记录均已归档）" : emptyText)
+                    .setFont(font).setFontSize(12));
             return;
         }
 
-        Table table = new Table(UnitValue.createPercentArray(new float[]{2, 1, 2, 1, 1}))
+        Table table = new Table(UnitValue.createPercentArray(widths), true)
                 .setWidth(UnitValue.createPercentValue(100))
                 .setMarginBottom(20);
+        for (String header : headers) {
+            table.addHeaderCell(createHeaderCell(header, boldFont));
+        }
+        document.add(table);
 
-        table.addHeaderCell(createHeaderCell("运动类型", boldFont));
-        table.addHeaderCell(createHeaderCell("强度", boldFont));
-        table.addHeaderCell(createHeaderCell("开始时间", boldFont));
-        table.addHeaderCell(createHeaderCell("时长(分钟)", boldFont));
-        table.addHeaderCell(createHeaderCell("消耗(kcal)", boldFont));
-
-        for (ExerciseRecord record : records) {
-            table.addCell(createDataCell(record.getExerciseTypeDisplay(), font));
-            table.addCell(createDataCell(record.getIntensityDisplay(), font));
-            table.addCell(createDataCell(DATETIME_FORMAT.format(record.getStartTime()), font));
-            table.addCell(createDataCell(String.valueOf(record.getDurationMinutes()), font));
-            table.addCell(createDataCell(String.format("%.0f", record.getCaloriesBurned()), font));
+        int written = 0;
+        boolean more = true;
+        while (more) {
+            T last = null;
+            for (T row : page) {
+                if (time.of(row) < startDate.getTime() || written == MAX_DETAIL_ROWS) {
+                    more = false;
+                    break;
+                }
+                writer.write(table, row, font);
+                written++;
+                last = row;
+            }
+            table.flush();
+            if (more && page.size() == DETAIL_PAGE_SIZE && written < MAX_DETAIL_ROWS) {
+                page = pages.before(last, DETAIL_PAGE_SIZE);
+            } else {
+                more = false;
+            }
         }
+        table.complete();
 
-        document.add(table);
+        if (written < total) {
+            document.add(new Paragraph(String.format(Locale.getDefault(),
+                    "共 %d 条，仅列出最近 %d 条；其余已计入概览和图表", total, written))
+                    .setFont(font).setFontSize(10));
+        }
     }
 
-    private static void addSleepSection(Document document, PdfFont boldFont, PdfFont font, List<SleepRecord> records) {
-        Paragraph sectionTitle = new Paragraph("睡眠记录详情")
+    // 超过保留期的原始记录已归档删除，明细表里没有这些月份，改列出按月、按类型的汇总
+    private static void addArchivedSection(Document document, PdfFont boldFont, PdfFont font,
+                                           Context context, Date startDate, Date endDate) {
+        List<MonthlyAggregate> months = HealthDatabase.getDatabase(context).healthDao().getMonthlyAggregatesBetween(
+                EpochDay.monthOf(EpochDay.of(startDate)), EpochDay.monthOf(EpochDay.of(endDate)));
+        if (months.isEmpty()) return;
+
+        Paragraph sectionTitle = new Paragraph("已归档月份汇总")
                 .setFont(boldFont)
                 .setFontSize(16)
                 .setMarginTop(20)
                 .setMarginBottom(10);
         document.add(sectionTitle);
 
-        if (records.isEmpty()) {
-            document.add(new Paragraph("暂无睡眠记录").setFont(font).setFontSize(12));
-            return;
-        }
-
-        Table table = new Table(UnitValue.createPercentArray(new float[]{2, 2, 1, 1, 1}))
+        Table table = new Table(UnitValue.createPercentArray(new float[]{1, 1, 1, 1, 2, 2}))
                 .setWidth(UnitValue.createPercentValue(100))
                 .setMarginBottom(20);
 
-        table.addHeaderCell(createHeaderCell("入睡时间", boldFont));
-        table.addHeaderCell(createHeaderCell("起床时间", boldFont));
-        table.addHeaderCell(createHeaderCell("时长", boldFont));
-        table.addHeaderCell(createHeaderCell("质量", boldFont));
-        table.addHeaderCell(createHeaderCell("夜醒次数", boldFont));
-
-        for (SleepRecord record : records) {
-            table.addCell(createDataCell(DATETIME_FORMAT.format(record.getSleepTime()), font));
-            table.addCell(createDataCell(DATETIME_FORMAT.format(record.getWakeTime()), font));
-            table.addCell(createDataCell(record.getFormattedDuration(), font));
-            table.addCell(createDataCell(record.getSleepQualityDisplay(), font));
-            table.addCell(createDataCell(String.valueOf(record.getWakeUpCount()), font));
+        table.addHeaderCell(createHeaderCell("月份", boldFont));
+        table.addHeaderCell(createHeaderCell("类别", boldFont));
+        table.addHeaderCell(createHeaderCell("分类", boldFont));
+        table.addHeaderCell(createHeaderCell("记录数", boldFont));
+        table.addHeaderCell(createHeaderCell("合计", boldFont));
+        table.addHeaderCell(createHeaderCell("单条范围", boldFont));
+
+        for (MonthlyAggregate month : months) {
+            String type;
+            String total;
+            String range;
+            switch (month.getRecordType()) {
+                case MonthlyAggregate.TYPE_DIET:
+                    type = "饮食";
+                    total = String.format("%.0f kcal", month.getCalories());
+                    range = String.format("%.0f - %.0f kcal", month.getMinCalories(), month.getMaxCalories());
+                    break;
+                case MonthlyAggregate.TYPE_EXERCISE:
+                    type = "运动";
+                    total = String.format("%d 分钟 / %.0f kcal", month.getDurationMinutes(), month.getCalories());
+                    range = String.format("%d - %d 分钟", month.getMinDuration(), month.getMaxDuration());
+                    break;
+                default:
+                    type = "睡眠";
+                    total = String.format("平均 %.1f 小时", month.getDurationMinutes() / 60.0 / month.getRecordCount());
+                    range = String.format("%d - %d 分钟", month.getMinDuration(), month.getMaxDuration());
+                    break;
+            }
+            table.addCell(createDataCell(String.valueOf(month.getMonth()), font));
+            table.addCell(createDataCell(type, font));
+            table.addCell(createDataCell(month.getSubTypeDisplay(), font));
+            table.addCell(createDataCell(String.valueOf(month.getRecordCount()), font));
+            table.addCell(createDataCell(total, font));
+            table.addCell(createDataCell(range, font));
         }
 
         document.add(table);
     }
 
     private static void addChartsSection(Document document, PdfFont boldFont, PdfFont font,
-                                         List<DietRecord> dietRecords, List<ExerciseRecord> exerciseRecords,
-                                         List<SleepRecord> sleepRecords) {
+                                         HealthStatistics.ComprehensiveStats stats) {
         Paragraph sectionTitle = new Paragraph("数据可视化")
                 .setFont(boldFont)
                 .setFontSize(16)
@@ -285,7 +378,7 @@ public class PdfReportGenerator {
         document.add(sectionTitle);
 
         try {
-            Bitmap chartBitmap = createSimpleBarChart(dietRecords, exerciseRecords);
+            Bitmap chartBitmap = createSimpleBarChart(stats);
             if (chartBitmap != null) {
                 ByteArrayOutputStream stream = new ByteArrayOutputStream();
                 chartBitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
@@ -302,7 +395,8 @@ public class PdfReportGenerator {
         }
     }
 
-    private static Bitmap createSimpleBarChart(List<DietRecord> dietRecords, List<ExerciseRecord> exerciseRecords) {
+    // 柱高取自统计累加器的日均值，不需要逐条记录
+    private static Bitmap createSimpleBarChart(HealthStatistics.ComprehensiveStats stats) {
         int width = 600;
         int height = 300;
         int padding = 50;
@@ -321,34 +415,29 @@ public class PdfReportGenerator {
         canvas.drawLine(padding, height - padding, width - padding, height - padding, paint);
         canvas.drawLine(padding, padding, padding, height - padding, paint);
 
-        double maxCalories = 0;
-        for (DietRecord record : dietRecords) {
-            maxCalories = Math.max(maxCalories, record.getCalories());
-        }
-        for (ExerciseRecord record : exerciseRecords) {
-            maxCalories = Math.max(maxCalories, record.getCaloriesBurned());
-        }
-        maxCalories = Math.max(maxCalories, 500);
+        double intake = stats.dietStats.avgCaloriesPerDay;
+        double burned = stats.exerciseStats.avgCaloriesPerDay;
+        double maxCalories = Math.max(Math.max(intake, burned), 500);
 
         paint.setTextSize(20);
         paint.setColor(Color.BLACK);
-        canvas.drawText("饮食摄入 vs 运动消耗", width / 2 - 80, 30, paint);
+        canvas.drawText("日均摄入 vs 日均消耗", width / 2 - 90, 30, paint);
 
-        if (!dietRecords.isEmpty()) {
+        if (stats.dietStats.recordCount > 0) {
             paint.setColor(Color.parseColor("#4CAF50"));
             float barWidth = 40;
             float x = padding + 50;
-            float barHeight = (float) ((dietRecords.get(0).getCalories() / maxCalories) * chartHeight);
+            float barHeight = (float) ((intake / maxCalories) * chartHeight);
             canvas.drawRect(x, height - padding - barHeight, x + barWidth, height - padding, paint);
             paint.setColor(Color.BLACK);
             canvas.drawText("摄入", x, height - padding + 25, paint);
         }
 
-        if (!exerciseRecords.isEmpty()) {
+        if (stats.exerciseStats.recordCount > 0) {
             paint.setColor(Color.parseColor("#FF5722"));
             float barWidth = 40;
             float x = padding + 150;
-            float barHeight = (float) ((exerciseRecords.get(0).getCaloriesBurned() / maxCalories) * chartHeight);
+            float barHeight = (float) ((burned / maxCalories) * chartHeight);
             canvas.drawRect(x, height - padding - barHeight, x + barWidth, height - padding, paint);
             paint.setColor(Color.BLACK);
             canvas.drawText("消耗", x, height - padding + 25, paint);
@@ -0,0 +1,201 @@
+package com.example.timedisplay.health.stats;
+
+import com.example.timedisplay.health.database.EpochDay;
+import com.example.timedisplay.health.model.DailyDietTotal;
+import com.example.timedisplay.health.model.DailyExerciseTotal;
+import com.example.timedisplay.health.model.DailySleepTotal;
+import com.example.timedisplay.health.model.DailySummary;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+// 按本地日历日分桶的每日序列，数组长度等于实际天数（1 天到 10 年都按真实天数计算）。
+// 每条记录只做一次下标计算和数组累加，不创建任何对象
+public class DailySeries {
+
+    public final long startDay;
+    public final int days;
+    // 构造时取一次默认时区，逐条 indexOf 不再各自调用 TimeZone.getDefault()
+    private final TimeZone zone;
+
+    public final double[] caloriesIn;
+    public final double[] protein;
+    public final double[] carbs;
+    public final double[] fat;
+    public final int[] dietCount;
+
+    public final double[] caloriesBurned;
+    public final long[] exerciseMinutes;
+    public final int[] exerciseCount;
+
+    public final long[] sleepMinutes;
+    public final long[] qualitySum;
+    public final long[] wakeUpSum;
+    public final int[] sleepCount;
+
+    public DailySeries(Date startDate, Date endDate) {
+        this(EpochDay.of(startDate), HealthStatistics.dayCount(startDate, endDate));
+    }
+
+    public DailySeries(long startDay, int days) {
+        this.startDay = startDay;
+        this.days = days;
+        this.zone = TimeZone.getDefault();
+        caloriesIn = new double[days];
+        protein = new double[days];
+        carbs = new double[days];
+        fat = new double[days];
+        dietCount = new int[days];
+        caloriesBurned = new double[days];
+        exerciseMinutes = new long[days];
+        exerciseCount = new int[days];
+        sleepMinutes = new long[days];
+        qualitySum = new long[days];
+        wakeUpSum = new long[days];
+        sleepCount = new int[days];
+    }
+
+    // 按记录时刻所在时区偏移换算本地日，夏令时切换当天也落在正确的桶里；范围外返回 -1
+    public int indexOf(long millis) {
+        return indexOfDay(EpochDay.of(millis, zone));
+    }
+
+    public int indexOfDay(long epochDay) {
+        long index = epochDay - startDay;
+        return index < 0 || index >= days ? -1 : (int) index;
+    }
+
+    public void addDiet(long intakeTime, double calories, double protein, double carbs, double fat) {
+        int i = indexOf(intakeTime);
+        if (i < 0) return;
+        caloriesIn[i] += calories;
+        this.protein[i] += protein;
+        this.carbs[i] += carbs;
+        this.fat[i] += fat;
+        dietCount[i]++;
+    }
+
+    public void addExercise(long startTime, double calories, long minutes) {
+        int i = indexOf(startTime);
+        if (i < 0) return;
+        caloriesBurned[i] += calories;
+        exerciseMinutes[i] += minutes;
+        exerciseCount[i]++;
+    }
+
+    // 睡眠按 recordDate 归日；quality 为 0 表示未评分
+    public void addSleep(long recordDate, long minutes, int quality, int wakeUps) {
+        int i = indexOf(recordDate);
+        if (i < 0) return;
+        sleepMinutes[i] += minutes;
+        qualitySum[i] += quality;
+        wakeUpSum[i] += wakeUps;
+        sleepCount[i]++;
+    }
+
+    public void addSummary(DailySummary summary) {
+        int i = indexOfDay(summary.getEpochDay());
+        if (i < 0) return;
+        caloriesIn[i] += summary.getCaloriesIn();
+        protein[i] += summary.getProtein();
+        carbs[i] += summary.getCarbs();
+        fat[i] += summary.getFat();
+        dietCount[i] += summary.getDietCount();
+        caloriesBurned[i] += summary.getCaloriesBurned();
+        exerciseMinutes[i] += summary.getExerciseMinutes();
+        exerciseCount[i] += summary.getExerciseCount();
+        sleepMinutes[i] += summary.getSleepMinutes();
+        qualitySum[i] += summary.getQualitySum();
+        wakeUpSum[i] += summary.getWakeUpSum();
+        sleepCount[i] += summary.getSleepCount();
+    }
+
+    // SQL 按日分组的结果，每天最多一行
+    public void addDietTotal(DailyDietTotal total) {
+        int i = indexOfDay(total.epochDay);
+        if (i < 0) return;
+        caloriesIn[i] += total.calories;
+        protein[i] += total.protein;
+        carbs[i] += total.carbs;
+        fat[i] += total.fat;
+        dietCount[i] += total.recordCount;
+    }
+
+    public void addExerciseTotal(DailyExerciseTotal total) {
+        int i = indexOfDay(total.epochDay);
+        if (i < 0) return;
+        caloriesBurned[i] += total.caloriesBurned;
+        exerciseMinutes[i] += total.durationMinutes;
+        exerciseCount[i] += total.recordCount;
+    }
+
+    public void addSleepTotal(DailySleepTotal total) {
+        int i = indexOfDay(total.epochDay);
+        if (i < 0) return;
+        sleepMinutes[i] += total.durationMinutes;
+        qualitySum[i] += total.qualitySum;
+        wakeUpSum[i] += total.wakeUpCount;
+        sleepCount[i] += total.recordCount;
+    }
+
+    public HealthStatistics.DietStats toDietStats() {
+        HealthStatistics.DietStats stats = new HealthStatistics.DietStats(days);
+        HealthStatistics.fillDateLabels(stats.dates, startDay);
+        for (int i = 0; i < days; i++) {
+            stats.dailyCalories[i] = caloriesIn[i];
+            stats.totalCalories += caloriesIn[i];
+            stats.totalProtein += protein[i];
+            stats.totalCarbs += carbs[i];
+            stats.totalFat += fat[i];
+            stats.recordCount += dietCount[i];
+        }
+        stats.avgCaloriesPerDay = stats.totalCalories / days;
+        return stats;
+    }
+
+    public HealthStatistics.ExerciseStats toExerciseStats() {
+        HealthStatistics.ExerciseStats stats = new HealthStatistics.ExerciseStats(days);
+        HealthStatistics.fillDateLabels(stats.dates, startDay);
+        for (int i = 0; i < days; i++) {
+            stats.dailyCalories[i] = caloriesBurned[i];
+            stats.dailyDuration[i] = exerciseMinutes[i];
+            stats.totalCaloriesBurned += caloriesBurned[i];
+            stats.totalDurationMinutes += exerciseMinutes[i];
+            stats.recordCount += exerciseCount[i];
+        }
+        stats.avgCaloriesPerDay = stats.totalCaloriesBurned / days;
+        stats.avgDurationPerDay = stats.totalDurationMinutes / days;
+        return stats;
+    }
+
+    // 睡眠的平均值按记录数计算，每日值为当天各条记录的平均
+    public HealthStatistics.SleepStats toSleepStats() {
+        HealthStatistics.SleepStats stats = new HealthStatistics.SleepStats(days);
+        HealthStatistics.fillDateLabels(stats.dates, startDay);
+        long totalMinutes = 0;
+        long totalQuality = 0;
+        for (int i = 0; i < days; i++) {
+            if (sleepCount[i] == 0) continue;
+            stats.dailyDuration[i] = sleepMinutes[i] / 60.0 / sleepCount[i];
+            stats.dailyQuality[i] = (double) qualitySum[i] / sleepCount[i];
+            totalMinutes += sleepMinutes[i];
+            totalQuality += qualitySum[i];
+            stats.totalWakeUpCount += wakeUpSum[i];
+            stats.recordCount += sleepCount[i];
+        }
+        if (stats.recordCount > 0) {
+            stats.avgDurationHours = totalMinutes / 60.0 / stats.recordCount;
+            stats.avgQualityScore = (double) totalQuality / stats.recordCount;
+            stats.avgWakeUpCount = (double) stats.totalWakeUpCount / stats.recordCount;
+        }
+        return stats;
+    }
+
+    public HealthStatistics.ComprehensiveStats toComprehensiveStats(Date startDate, Date endDate, String periodType) {
+        HealthStatistics.ComprehensiveStats stats = new HealthStatistics.ComprehensiveStats(startDate, endDate, periodType);
+        stats.dietStats = toDietStats();
+        stats.exerciseStats = toExerciseStats();
+        stats.sleepStats = toSleepStats();
+        return stats;
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.timedisplay.health.stats;
+
+import android.content.Context;
+
+import com.example.timedisplay.health.database.EpochDay;
+import com.example.timedisplay.health.database.HealthDao;
+import com.example.timedisplay.health.database.HealthDatabase;
+import com.example.timedisplay.health.database.SummaryDeltas;
+import com.example.timedisplay.health.database.SummarySnapshot;
+import com.example.timedisplay.health.model.DailySummary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// daily_summary 各列的树状数组（Fenwick），进程内只从汇总表构建一次，之后随提交的增量更新。
+// 任意起止日期的总计都是两次前缀和相减，O(log 天数)，不访问数据库。
+// 每天的各项数值交错存放在同一个基本类型数组里，一次前缀查询顺序读取所有指标。
+// 版本号是已套用的最后一批 SummaryDeltas 增量的序号，查询结果带上版本，调用方据此跳过已包含的增量
+public class DailyTotalsIndex {
+
+    public interface Listener {
+        // 在套用增量的线程上调用；首次构建完成时也会调用一次，deltas 为空
+        void onChanged(List<DailySummary> deltas, long version);
+    }
+
+    // 区间的逐日数值和统计结果，以及查询时索引的版本
+    public static class Range {
+        public final DailySeries series;
+        public final HealthStatistics.ComprehensiveStats stats;
+        public final long version;
+
+        Range(DailySeries series, HealthStatistics.ComprehensiveStats stats, long version) {
+            this.series = series;
+            this.stats = stats;
+            this.version = version;
+        }
+    }
+
+    private static class SequencedDeltas {
+        final List<DailySummary> deltas;
+        final long sequence;
+
+        SequencedDeltas(List<DailySummary> deltas, long sequence) {
+            this.deltas = deltas;
+            this.sequence = sequence;
+        }
+    }
+
+    // double 指标
+    private static final int CALORIES_IN = 0;
+    private static final int PROTEIN = 1;
+    private static final int CARBS = 2;
+    private static final int FAT = 3;
+    private static final int CALORIES_BURNED = 4;
+    private static final int DOUBLE_STRIDE = 5;
+
+    // 整数指标
+    private static final int DIET_COUNT = 0;
+    private static final int EXERCISE_MINUTES = 1;
+    private static final int EXERCISE_COUNT = 2;
+    private static final int SLEEP_MINUTES = 3;
+    private static final int QUALITY_SUM = 4;
+    private static final int WAKE_UP_SUM = 5;
+    private static final int SLEEP_COUNT = 6;
+    private static final int LONG_STRIDE = 7;
+
+    // 构建时在今天之后预留一年，跨过零点不必立即扩容
+    private static final int GROWTH_DAYS = 366;
+
+    private static volatile DailyTotalsIndex INSTANCE;
+
+    private final HealthDao dao;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // 以下字段由 this 保护；下标 0 对应 baseDay，树数组从 1 开始
+    private long baseDay;
+    private int capacity;
+    private double[] doubleValues = new double[0];
+    private long[] longValues = new long[0];
+    private double[] doubleTree = new double[DOUBLE_STRIDE];
+    private long[] longTree = new long[LONG_STRIDE];
+    private boolean ready;
+    private long version;
+    // 构建完成前收到的增量
+    private List<SequencedDeltas> pending = new ArrayList<>();
+
+    DailyTotalsIndex(HealthDao dao) {
+        this.dao = dao;
+    }
+
+    public static DailyTotalsIndex get(Context context) {
+        if (INSTANCE == null) {
+            synchronized (DailyTotalsIndex.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new DailyTotalsIndex(HealthDatabase.getDatabase(context).healthDao());
+                    INSTANCE.build();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    // 先注册增量监听再在读线程上读取：快照之后提交的增量先缓存，构建完成后按序号补上，不占用写线程
+    private void build() {
+        SummaryDeltas.addListener(this::applyDeltas);
+        SummarySnapshot.load(dao,
+                d -> d.getDailySummariesBetweenSync(Long.MIN_VALUE, Long.MAX_VALUE),
+                (summaries, sequence) -> load(summaries, EpochDay.of(System.currentTimeMillis()), sequence));
+    }
+
+    // summaries 按日期升序，sequence 为这份数据已包含的最后一批增量的序号
+    void load(List<DailySummary> summaries, long today, long sequence) {
+        long loadedVersion;
+        synchronized (this) {
+            long first = summaries.isEmpty() ? today : Math.min(today, summaries.get(0).getEpochDay());
+            long last = summaries.isEmpty() ? today : Math.max(today, summaries.get(summaries.size() - 1).getEpochDay());
+            resize(first, (int) (last - first + 1) + GROWTH_DAYS);
+            for (DailySummary summary : summaries) {
+                addValues(summary);
+            }
+            rebuildTrees();
+            version = sequence;
+            ready = true;
+            for (SequencedDeltas batch : pending) {
+                if (batch.sequence > version) {
+                    applyLocked(batch.deltas);
+                    version = batch.sequence;
+                }
+            }
+            pending = null;
+            loadedVersion = version;
+        }
+        notifyListeners(Collections.<DailySummary>emptyList(), loadedVersion);
+    }
+
+    void applyDeltas(List<DailySummary> deltas, long sequence) {
+        synchronized (this) {
+            if (!ready) {
+                pending.add(new SequencedDeltas(deltas, sequence));
+                return;
+            }
+            if (sequence <= version) return;
+            applyLocked(deltas);
+            version = sequence;
+        }
+        notifyListeners(deltas, sequence);
+    }
+
+    private void applyLocked(List<DailySummary> deltas) {
+        for (DailySummary delta : deltas) {
+            if (!covers(delta.getEpochDay())) {
+                long first = Math.min(baseDay, delta.getEpochDay());
+                long last = Math.max(baseDay + capacity - 1, delta.getEpochDay());
+                resize(first, (int) (last - first + 1) + GROWTH_DAYS);
+                addValues(delta);
+                rebuildTrees();
+                continue;
+            }
+            addValues(delta);
+            addToTrees(delta);
+        }
+    }
+
+    // 未构建完成时返回 null。总计来自前缀和，逐日数组从逐日数值复制，区间外的日子为 0
+    public Range query(Date startDate, Date endDate, String periodType) {
+        long startDay = EpochDay.of(startDate);
+        long endDay = EpochDay.of(endDate);
+        int days = HealthStatistics.dayCount(startDate, endDate);
+        DailySeries series = new DailySeries(startDay, days);
+        double[] doubles = new double[DOUBLE_STRIDE];
+        long[] longs = new long[LONG_STRIDE];
+        long queriedVersion;
+        synchronized (this) {
+            if (!ready) return null;
+            int from = (int) Math.max(0, Math.min(capacity, startDay - baseDay));
+            int to = (int) Math.max(0, Math.min(capacity, endDay - baseDay + 1));
+            if (from < to) {
+                prefix(to, doubles, longs, 1);
+                prefix(from, doubles, longs, -1);
+                copyDays(series, from, to);
+            }
+            queriedVersion = version;
+        }
+        HealthStatistics.ComprehensiveStats stats = new HealthStatistics.ComprehensiveStats(startDate, endDate, periodType);
+
+        HealthStatistics.DietStats diet = new HealthStatistics.DietStats(days);
+        HealthStatistics.fillDateLabels(diet.dates, startDay);
+        System.arraycopy(series.caloriesIn, 0, diet.dailyCalories, 0, days);
+        diet.totalCalories = doubles[CALORIES_IN];
+        diet.totalProtein = doubles[PROTEIN];
+        diet.totalCarbs = doubles[CARBS];
+        diet.totalFat = doubles[FAT];
+        diet.recordCount = (int) longs[DIET_COUNT];
+        diet.avgCaloriesPerDay = diet.totalCalories / days;
+        stats.dietStats = diet;
+
+        HealthStatistics.ExerciseStats exercise = new HealthStatistics.ExerciseStats(days);
+        exercise.dates = diet.dates.clone();
+        System.arraycopy(series.caloriesBurned, 0, exercise.dailyCalories, 0, days);
+        System.arraycopy(series.exerciseMinutes, 0, exercise.dailyDuration, 0, days);
+        exercise.totalCaloriesBurned = doubles[CALORIES_BURNED];
+        exercise.totalDurationMinutes = longs[EXERCISE_MINUTES];
+        exercise.recordCount = (int) longs[EXERCISE_COUNT];
+        exercise.avgCaloriesPerDay = exercise.totalCaloriesBurned / days;
+        exercise.avgDurationPerDay = exercise.totalDurationMinutes / days;
+        stats.exerciseStats = exercise;
+
+        HealthStatistics.SleepStats sleep = new HealthStatistics.SleepStats(days);
+        sleep.dates = diet.dates.clone();
+        for (int i = 0; i < days; i++) {
+            int count = series.sleepCount[i];
+            if (count == 0) continue;
+            sleep.dailyDuration[i] = series.sleepMinutes[i] / 60.0 / count;
+            sleep.dailyQuality[i] = (double) series.qualitySum[i] / count;
+        }
+        sleep.recordCount = (int) longs[SLEEP_COUNT];
+        sleep.totalWakeUpCount = (int) longs[WAKE_UP_SUM];
+        if (sleep.recordCount > 0) {
+            sleep.avgDurationHours = longs[SLEEP_MINUTES] / 60.0 / sleep.recordCount;
+            sleep.avgQualityScore = (double) longs[QUALITY_SUM] / sleep.recordCount;
+            sleep.avgWakeUpCount = (double) sleep.totalWakeUpCount / sleep.recordCount;
+        }
+        stats.sleepStats = sleep;
+        return new Range(series, stats, queriedVersion);
+    }
+
+    // 把下标 [from, to) 的逐日数值复制到 series 的对应日子
+    private void copyDays(DailySeries series, int from, int to) {
+        for (int index = from; index < to; index++) {
+            int i = series.indexOfDay(baseDay + index);
+            if (i < 0) continue;
+            int d = index * DOUBLE_STRIDE;
+            int l = index * LONG_STRIDE;
+            series.caloriesIn[i] = doubleValues[d + CALORIES_IN];
+            series.protein[i] = doubleValues[d + PROTEIN];
+            series.carbs[i] = doubleValues[d + CARBS];
+            series.fat[i] = doubleValues[d + FAT];
+            series.caloriesBurned[i] = doubleValues[d + CALORIES_BURNED];
+            series.dietCount[i] = (int) longValues[l + DIET_COUNT];
+            series.exerciseMinutes[i] = longValues[l + EXERCISE_MINUTES];
+            series.exerciseCount[i] = (int) longValues[l + EXERCISE_COUNT];
+            series.sleepMinutes[i] = longValues[l + SLEEP_MINUTES];
+            series.qualitySum[i] = longValues[l + QUALITY_SUM];
+            series.wakeUpSum[i] = longValues[l + WAKE_UP_SUM];
+            series.sleepCount[i] = (int) longValues[l + SLEEP_COUNT];
+        }
+    }
+
+    private boolean covers(long epochDay) {
+        return epochDay >= baseDay && epochDay < baseDay + capacity;
+    }
+
+    // 前 count 天之和乘以 sign 累加到结果
+    private void prefix(int count, double[] doubles, long[] longs, int sign) {
+        for (int i = count; i > 0; i -= i & -i) {
+            int d = i * DOUBLE_STRIDE;
+            for (int m = 0; m < DOUBLE_STRIDE; m++) {
+                doubles[m] += sign * doubleTree[d + m];
+            }
+            int l = i * LONG_STRIDE;
+            for (int m = 0; m < LONG_STRIDE; m++) {
+                longs[m] += sign * longTree[l + m];
+            }
+        }
+    }
+
+    private void addValues(DailySummary day) {
+        int index = (int) (day.getEpochDay() - baseDay);
+        addRow(doubleValues, index * DOUBLE_STRIDE, longValues, index * LONG_STRIDE, day);
+    }
+
+    private void addToTrees(DailySummary delta) {
+        for (int i = (int) (delta.getEpochDay() - baseDay) + 1; i <= capacity; i += i & -i) {
+            addRow(doubleTree, i * DOUBLE_STRIDE, longTree, i * LONG_STRIDE, delta);
+        }
+    }
+
+    private static void addRow(double[] doubles, int d, long[] longs, int l, DailySummary day) {
+        doubles[d + CALORIES_IN] += day.getCaloriesIn();
+        doubles[d + PROTEIN] += day.getProtein();
+        doubles[d + CARBS] += day.getCarbs();
+        doubles[d + FAT] += day.getFat();
+        doubles[d + CALORIES_BURNED] += day.getCaloriesBurned();
+        longs[l + DIET_COUNT] += day.getDietCount();
+        longs[l + EXERCISE_MINUTES] += day.getExerciseMinutes();
+        longs[l + EXERCISE_COUNT] += day.getExerciseCount();
+        longs[l + SLEEP_MINUTES] += day.getSleepMinutes();
+        longs[l + QUALITY_SUM] += day.getQualitySum();
+        longs[l + WAKE_UP_SUM] += day.getWakeUpSum();
+        longs[l + SLEEP_COUNT] += day.getSleepCount();
+    }
+
+    // 保留已有的逐日数值，改变起始日和容量；之后需要 rebuildTrees
+    private void resize(long newBaseDay, int newCapacity) {
+        double[] doubles = new double[newCapacity * DOUBLE_STRIDE];
+        long[] longs = new long[newCapacity * LONG_STRIDE];
+        if (capacity > 0) {
+            int offset = (int) (baseDay - newBaseDay);
+            System.arraycopy(doubleValues, 0, doubles, offset * DOUBLE_STRIDE, doubleValues.length);
+            System.arraycopy(longValues, 0, longs, offset * LONG_STRIDE, longValues.length);
+        }
+        baseDay = newBaseDay;
+        capacity = newCapacity;
+        doubleValues = doubles;
+        longValues = longs;
+    }
+
+    // O(n) 建树：每个节点把自己的和加到父节点
+    private void rebuildTrees() {
+        doubleTree = new double[(capacity + 1) * DOUBLE_STRIDE];
+        longTree = new long[(capacity + 1) * LONG_STRIDE];
+        System.arraycopy(doubleValues, 0, doubleTree, DOUBLE_STRIDE, doubleValues.length);
+        System.arraycopy(longValues, 0, longTree, LONG_STRIDE, longValues.length);
+        for (int i = 1; i <= capacity; i++) {
+            int parent = i + (i & -i);
+            if (parent > capacity) continue;
+            for (int m = 0; m < DOUBLE_STRIDE; m++) {
+                doubleTree[parent * DOUBLE_STRIDE + m] += doubleTree[i * DOUBLE_STRIDE + m];
+            }
+            for (int m = 0; m < LONG_STRIDE; m++) {
+                longTree[parent * LONG_STRIDE + m] += longTree[i * LONG_STRIDE + m];
+            }
+        }
+    }
+
+    private void notifyListeners(List<DailySummary> deltas, long version) {
+        for (Listener listener : listeners) {
+            listener.onChanged(deltas, version);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.timedisplay.health.stats;
+
+import com.example.timedisplay.health.model.DailySummary;
+
+import java.util.Date;
+
+// 逐条累加饮食记录，只保留按天的数组，内存与天数成正比而不是记录数
+public class DietStatsAccumulator {
+
+    private final DailySeries series;
+
+    public DietStatsAccumulator(Date startDate, Date endDate) {
+        series = new DailySeries(startDate, endDate);
+    }
+
+    public void accept(long intakeTime, double calories, double protein, double carbs, double fat) {
+        series.addDiet(intakeTime, calories, protein, carbs, fat);
+    }
+
+    // 已归档日期的当日汇总，只用到饮食列
+    public void acceptSummary(DailySummary summary) {
+        series.addSummary(summary);
+    }
+
+    public HealthStatistics.DietStats finish() {
+        return series.toDietStats();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.timedisplay.health.stats;
+
+import com.example.timedisplay.health.database.EpochDay;
+import com.example.timedisplay.health.database.HealthDao;
+import com.example.timedisplay.health.model.QuantileSketch;
+import com.example.timedisplay.health.model.SketchRollup;
+
+import java.util.Date;
+import java.util.List;
+
+// 睡眠时长、入睡潜伏期和单次运动时长的分布（分钟），由 sketch_rollups 合并而来，不读取原始记录。
+// 区间内的完整月份用月度行，首尾不满一个月的部分用日行，一年的区间最多读取约 12 + 2 * 30 行
+public class DistributionStats {
+
+    public final QuantileSketch sleepDuration = new QuantileSketch();
+    public final QuantileSketch sleepLatency = new QuantileSketch();
+    public final QuantileSketch exerciseDuration = new QuantileSketch();
+
+    public static DistributionStats load(HealthDao dao, Date startDate, Date endDate) {
+        return load(dao, EpochDay.of(startDate), EpochDay.of(endDate));
+    }
+
+    public static DistributionStats load(HealthDao dao, long startDay, long endDay) {
+        DistributionStats stats = new DistributionStats();
+        int firstMonth = EpochDay.monthOf(startDay);
+        if (EpochDay.firstDayOfMonth(firstMonth) < startDay) {
+            firstMonth = EpochDay.nextMonth(firstMonth);
+        }
+        int lastMonth = EpochDay.monthOf(endDay);
+        int afterLast = EpochDay.nextMonth(lastMonth);
+        if (EpochDay.firstDayOfMonth(afterLast) - 1 > endDay) {
+            afterLast = lastMonth;
+        }
+        long monthsStart = EpochDay.firstDayOfMonth(firstMonth);
+        long monthsEnd = EpochDay.firstDayOfMonth(afterLast) - 1;
+
+        if (monthsStart > monthsEnd) {
+            stats.merge(dao.getSketchRollupsBetween(SketchRollup.GRANULARITY_DAY, startDay, endDay));
+            return stats;
+        }
+        if (startDay < monthsStart) {
+            stats.merge(dao.getSketchRollupsBetween(SketchRollup.GRANULARITY_DAY, startDay, monthsStart - 1));
+        }
+        stats.merge(dao.getSketchRollupsBetween(SketchRollup.GRANULARITY_MONTH,
+                EpochDay.monthOf(monthsStart), EpochDay.monthOf(monthsEnd)));
+        if (monthsEnd < endDay) {
+            stats.merge(dao.getSketchRollupsBetween(SketchRollup.GRANULARITY_DAY, monthsEnd + 1, endDay));
+        }
+        return stats;
+    }
+
+    private void merge(List<SketchRollup> rollups) {
+        for (SketchRollup rollup : rollups) {
+            switch (rollup.getMetric()) {
+                case SketchRollup.METRIC_SLEEP_DURATION:
+                    sleepDuration.mergeBytes(rollup.getBuckets());
+                    break;
+                case SketchRollup.METRIC_SLEEP_LATENCY:
+                    sleepLatency.mergeBytes(rollup.getBuckets());
+                    break;
+                case SketchRollup.METRIC_EXERCISE_DURATION:
+                    exerciseDuration.mergeBytes(rollup.getBuckets());
+                    break;
+            }
+        }
+    }
+}
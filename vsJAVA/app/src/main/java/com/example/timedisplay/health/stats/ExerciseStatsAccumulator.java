@@ -0,0 +1,26 @@
+package com.example.timedisplay.health.stats;
+
+import com.example.timedisplay.health.model.DailySummary;
+
+import java.util.Date;
+
+public class ExerciseStatsAccumulator {
+
+    private final DailySeries series;
+
+    public ExerciseStatsAccumulator(Date startDate, Date endDate) {
+        series = new DailySeries(startDate, endDate);
+    }
+
+    public void accept(long startTime, double caloriesBurned, long durationMinutes) {
+        series.addExercise(startTime, caloriesBurned, durationMinutes);
+    }
+
+    public void acceptSummary(DailySummary summary) {
+        series.addSummary(summary);
+    }
+
+    public HealthStatistics.ExerciseStats finish() {
+        return series.toExerciseStats();
+    }
+}
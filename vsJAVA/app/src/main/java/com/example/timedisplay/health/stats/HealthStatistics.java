@@ -1,11 +1,24 @@
 package com.example.timedisplay.health.stats;
 
+import android.database.Cursor;
+
+import com.example.timedisplay.health.database.EpochDay;
+import com.example.timedisplay.health.database.HealthDao;
+import com.example.timedisplay.health.model.DailyDietTotal;
+import com.example.timedisplay.health.model.DailyExerciseTotal;
+import com.example.timedisplay.health.model.DailySleepTotal;
+import com.example.timedisplay.health.model.DailySummary;
 import com.example.timedisplay.health.model.DietRecord;
 import com.example.timedisplay.health.model.ExerciseRecord;
+import com.example.timedisplay.health.model.MonthlyAggregate;
 import com.example.timedisplay.health.model.SleepRecord;
 
+import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
 
 public class HealthStatistics {
     
@@ -63,6 +76,8 @@ public class HealthStatistics {
         public DietStats dietStats;
         public ExerciseStats exerciseStats;
         public SleepStats sleepStats;
+        // 分位数，只有从数据库加载的统计才有，可能为 null
+        public DistributionStats distribution;
         public Date startDate;
         public Date endDate;
         public String periodType;
@@ -74,73 +89,36 @@ public class HealthStatistics {
         }
     }
     
+    // 按记录所在的本地日分桶，天数和日均值都按真实范围计算
     public static DietStats calculateDietStats(List<DietRecord> records, Date startDate, Date endDate) {
-        long daysDiff = (endDate.getTime() - startDate.getTime()) / (1000 * 60 * 60 * 24) + 1;
-        int days = (int) Math.min(daysDiff, 31);
-        DietStats stats = new DietStats(days);
-        
-        stats.recordCount = records.size();
-        
+        DailySeries series = new DailySeries(startDate, endDate);
         for (DietRecord record : records) {
-            stats.totalCalories += record.getCalories();
-            stats.totalProtein += record.getProtein();
-            stats.totalCarbs += record.getCarbs();
-            stats.totalFat += record.getFat();
+            if (record.getIntakeTime() == null) continue;
+            series.addDiet(record.getIntakeTime().getTime(), record.getCalories(),
+                    record.getProtein(), record.getCarbs(), record.getFat());
         }
-        
-        if (days > 0) {
-            stats.avgCaloriesPerDay = stats.totalCalories / days;
-        }
-        
-        return stats;
+        return series.toDietStats();
     }
     
     public static ExerciseStats calculateExerciseStats(List<ExerciseRecord> records, Date startDate, Date endDate) {
-        long daysDiff = (endDate.getTime() - startDate.getTime()) / (1000 * 60 * 60 * 24) + 1;
-        int days = (int) Math.min(daysDiff, 31);
-        ExerciseStats stats = new ExerciseStats(days);
-        
-        stats.recordCount = records.size();
-        
+        DailySeries series = new DailySeries(startDate, endDate);
         for (ExerciseRecord record : records) {
-            stats.totalCaloriesBurned += record.getCaloriesBurned();
-            stats.totalDurationMinutes += record.getDurationMinutes();
+            if (record.getStartTime() == null) continue;
+            series.addExercise(record.getStartTime().getTime(), record.getCaloriesBurned(),
+                    record.getDurationMinutes());
         }
-        
-        if (days > 0) {
-            stats.avgCaloriesPerDay = stats.totalCaloriesBurned / days;
-            stats.avgDurationPerDay = stats.totalDurationMinutes / days;
-        }
-        
-        return stats;
+        return series.toExerciseStats();
     }
     
     public static SleepStats calculateSleepStats(List<SleepRecord> records, Date startDate, Date endDate) {
-        long daysDiff = (endDate.getTime() - startDate.getTime()) / (1000 * 60 * 60 * 24) + 1;
-        int days = (int) Math.min(daysDiff, 31);
-        SleepStats stats = new SleepStats(days);
-        
-        stats.recordCount = records.size();
-        
-        double totalDuration = 0;
-        double totalQuality = 0;
-        
+        DailySeries series = new DailySeries(startDate, endDate);
         for (SleepRecord record : records) {
-            double durationHours = record.getDurationHours();
+            if (record.getRecordDate() == null) continue;
             int qualityScore = record.getSleepQuality() != null ? record.getSleepQuality().getScore() : 0;
-            
-            totalDuration += durationHours;
-            totalQuality += qualityScore;
-            stats.totalWakeUpCount += record.getWakeUpCount();
-        }
-        
-        if (stats.recordCount > 0) {
-            stats.avgDurationHours = totalDuration / stats.recordCount;
-            stats.avgQualityScore = totalQuality / stats.recordCount;
-            stats.avgWakeUpCount = (double) stats.totalWakeUpCount / stats.recordCount;
+            series.addSleep(record.getRecordDate().getTime(), record.getDurationMinutes(),
+                    qualityScore, record.getWakeUpCount());
         }
-        
-        return stats;
+        return series.toSleepStats();
     }
     
     public static ComprehensiveStats generateComprehensiveStats(
@@ -159,6 +137,147 @@ public class HealthStatistics {
         return stats;
     }
     
+    // 基于 daily_summary 汇总行计算，耗时与天数成正比而不是记录数
+    public static ComprehensiveStats generateComprehensiveStats(
+            List<DailySummary> summaries,
+            Date startDate,
+            Date endDate,
+            String periodType) {
+        
+        DailySeries series = new DailySeries(startDate, endDate);
+        for (DailySummary summary : summaries) {
+            series.addSummary(summary);
+        }
+        return series.toComprehensiveStats(startDate, endDate, periodType);
+    }
+    
+    // 基于 SQL 按日分组的结果填充每日序列，不受 31 天限制
+    public static DietStats calculateDailyDietStats(List<DailyDietTotal> totals, Date startDate, Date endDate) {
+        DailySeries series = new DailySeries(startDate, endDate);
+        for (DailyDietTotal total : totals) {
+            series.addDietTotal(total);
+        }
+        return series.toDietStats();
+    }
+    
+    public static ExerciseStats calculateDailyExerciseStats(List<DailyExerciseTotal> totals, Date startDate, Date endDate) {
+        DailySeries series = new DailySeries(startDate, endDate);
+        for (DailyExerciseTotal total : totals) {
+            series.addExerciseTotal(total);
+        }
+        return series.toExerciseStats();
+    }
+    
+    public static SleepStats calculateDailySleepStats(List<DailySleepTotal> totals, Date startDate, Date endDate) {
+        DailySeries series = new DailySeries(startDate, endDate);
+        for (DailySleepTotal total : totals) {
+            series.addSleepTotal(total);
+        }
+        return series.toSleepStats();
+    }
+    
+    public static ComprehensiveStats generateDailyComprehensiveStats(
+            List<DailyDietTotal> dietTotals,
+            List<DailyExerciseTotal> exerciseTotals,
+            List<DailySleepTotal> sleepTotals,
+            Date startDate,
+            Date endDate,
+            String periodType) {
+        
+        ComprehensiveStats stats = new ComprehensiveStats(startDate, endDate, periodType);
+        stats.dietStats = calculateDailyDietStats(dietTotals, startDate, endDate);
+        stats.exerciseStats = calculateDailyExerciseStats(exerciseTotals, startDate, endDate);
+        stats.sleepStats = calculateDailySleepStats(sleepTotals, startDate, endDate);
+        
+        return stats;
+    }
+    
+    // 直接从游标按列读取原始记录，不创建实体和 Date 对象；三类依次在当前线程执行，并行版本见 StatisticsService
+    public static ComprehensiveStats streamComprehensiveStats(
+            HealthDao dao,
+            Date startDate,
+            Date endDate,
+            String periodType) {
+        
+        ComprehensiveStats stats = new ComprehensiveStats(startDate, endDate, periodType);
+        stats.dietStats = streamDietStats(dao, startDate, endDate);
+        stats.exerciseStats = streamExerciseStats(dao, startDate, endDate);
+        stats.sleepStats = streamSleepStats(dao, startDate, endDate);
+        return stats;
+    }
+    
+    // 每读一批行检查一次中断，取消后抛出 CancellationException。
+    // 已归档（或已搬到年份分区）的日期没有原始记录，这部分从 daily_summary 补齐
+    public static DietStats streamDietStats(HealthDao dao, Date startDate, Date endDate) {
+        DietStatsAccumulator diet = new DietStatsAccumulator(startDate, endDate);
+        long firstRawDay = dao.getFirstUnarchivedDay(MonthlyAggregate.TYPE_DIET);
+        for (DailySummary summary : archivedSummaries(dao, startDate, endDate, firstRawDay)) {
+            diet.acceptSummary(summary);
+        }
+        try (Cursor cursor = dao.streamDietRecordsBetween(startDate, endDate, firstRawDay)) {
+            while (cursor.moveToNext()) {
+                checkCancelled(cursor.getPosition());
+                diet.accept(cursor.getLong(0), cursor.getDouble(1), cursor.getDouble(2),
+                        cursor.getDouble(3), cursor.getDouble(4));
+            }
+        }
+        return diet.finish();
+    }
+    
+    public static ExerciseStats streamExerciseStats(HealthDao dao, Date startDate, Date endDate) {
+        ExerciseStatsAccumulator exercise = new ExerciseStatsAccumulator(startDate, endDate);
+        long firstRawDay = dao.getFirstUnarchivedDay(MonthlyAggregate.TYPE_EXERCISE);
+        for (DailySummary summary : archivedSummaries(dao, startDate, endDate, firstRawDay)) {
+            exercise.acceptSummary(summary);
+        }
+        try (Cursor cursor = dao.streamExerciseRecordsBetween(startDate, endDate, firstRawDay)) {
+            while (cursor.moveToNext()) {
+                checkCancelled(cursor.getPosition());
+                exercise.accept(cursor.getLong(0), cursor.getDouble(1), cursor.getLong(2));
+            }
+        }
+        return exercise.finish();
+    }
+    
+    public static SleepStats streamSleepStats(HealthDao dao, Date startDate, Date endDate) {
+        SleepStatsAccumulator sleep = new SleepStatsAccumulator(startDate, endDate);
+        long firstRawDay = dao.getFirstUnarchivedDay(MonthlyAggregate.TYPE_SLEEP);
+        for (DailySummary summary : archivedSummaries(dao, startDate, endDate, firstRawDay)) {
+            sleep.acceptSummary(summary);
+        }
+        try (Cursor cursor = dao.streamSleepRecordsBetween(startDate, endDate, firstRawDay)) {
+            while (cursor.moveToNext()) {
+                checkCancelled(cursor.getPosition());
+                sleep.accept(cursor.getLong(0), cursor.getLong(1), cursor.getInt(2), cursor.getInt(3));
+            }
+        }
+        return sleep.finish();
+    }
+    
+    private static List<DailySummary> archivedSummaries(HealthDao dao, Date startDate, Date endDate, long firstRawDay) {
+        long startDay = EpochDay.of(startDate);
+        long endDay = Math.min(EpochDay.of(endDate), firstRawDay - 1);
+        if (endDay < startDay) return Collections.emptyList();
+        return dao.getDailySummariesBetweenSync(startDay, endDay);
+    }
+    
+    private static void checkCancelled(int row) {
+        if ((row & 0x3FF) == 0 && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException();
+        }
+    }
+    
+    static int dayCount(Date startDate, Date endDate) {
+        return (int) Math.max(EpochDay.of(endDate) - EpochDay.of(startDate) + 1, 1);
+    }
+    
+    static void fillDateLabels(String[] dates, long startDay) {
+        SimpleDateFormat dayFormat = new SimpleDateFormat("MM-dd", Locale.getDefault());
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = dayFormat.format(EpochDay.toDate(startDay + i));
+        }
+    }
+    
     public static String getQualityDescription(double avgScore) {
         if (avgScore >= 4.5) return "优秀";
         if (avgScore >= 3.5) return "良好";
@@ -196,4 +315,50 @@ public class HealthStatistics {
             return "热量摄入适中，请继续保持";
         }
     }
+    
+    // 基于趋势的建议：用近 7 天均值判断水平，再补充近 4 周的走向。近 7 天没有记录时改用近 4 周均值并注明
+    public static String getDietSuggestion(TrendEngine.MetricTrend caloriesIn) {
+        if (!caloriesIn.hasData()) {
+            return "近期没有饮食记录";
+        }
+        if (!caloriesIn.hasRecentData()) {
+            return "近7天没有饮食记录，按近4周计算：" + getDietSuggestion(caloriesIn.getMean28())
+                    + trendNote(caloriesIn, "热量摄入");
+        }
+        return getDietSuggestion(caloriesIn.getMean7()) + trendNote(caloriesIn, "热量摄入");
+    }
+    
+    // 没有运动的日子按 0 计入窗口，近 7 天的均值为 0 就是这周没有运动；28 天内全为 0 才算没有记录
+    public static String getExerciseSuggestion(TrendEngine.MetricTrend caloriesBurned, TrendEngine.MetricTrend minutes) {
+        if (caloriesBurned.getMean28() <= 0 && minutes.getMean28() <= 0) {
+            return "近期没有运动记录";
+        }
+        return getExerciseSuggestion(caloriesBurned.getMean7(), Math.round(minutes.getMean7()))
+                + trendNote(minutes, "运动时长");
+    }
+    
+    public static String getSleepSuggestion(TrendEngine.MetricTrend hours, TrendEngine.MetricTrend quality) {
+        if (!hours.hasData()) {
+            return "近期没有睡眠记录";
+        }
+        String advice = hours.hasRecentData()
+                ? getSleepSuggestion(hours.getMean7())
+                : "近7天没有睡眠记录，按近4周计算：" + getSleepSuggestion(hours.getMean28());
+        advice += trendNote(hours, "睡眠时长");
+        if (quality.getDirection() < 0) {
+            advice += "，睡眠质量有所下降";
+        }
+        return advice;
+    }
+    
+    private static String trendNote(TrendEngine.MetricTrend trend, String name) {
+        switch (trend.getDirection()) {
+            case 1:
+                return "（近4周" + name + "呈上升趋势）";
+            case -1:
+                return "（近4周" + name + "呈下降趋势）";
+            default:
+                return "";
+        }
+    }
 }
@@ -0,0 +1,78 @@
+package com.example.timedisplay.health.stats;
+
+import com.example.timedisplay.health.model.DailySummary;
+
+import java.util.Date;
+
+// 在 DailySeries 之上维护一份 ComprehensiveStats：每个 daily_summary 增量只改所在的那一天和总计，O(1)。
+// 结果与用同样的汇总行重新调用 toComprehensiveStats 相同（浮点累加顺序不同，可能有极小误差）
+public class IncrementalStats {
+
+    private final DailySeries series;
+    private final HealthStatistics.ComprehensiveStats stats;
+    private long totalSleepMinutes;
+    private long totalQuality;
+
+    public IncrementalStats(DailySeries series, Date startDate, Date endDate, String periodType) {
+        this(series, series.toComprehensiveStats(startDate, endDate, periodType));
+    }
+
+    // stats 必须与 series 的逐日数值一致，例如 DailyTotalsIndex.query 的结果
+    public IncrementalStats(DailySeries series, HealthStatistics.ComprehensiveStats stats) {
+        this.series = series;
+        this.stats = stats;
+        for (int i = 0; i < series.days; i++) {
+            totalSleepMinutes += series.sleepMinutes[i];
+            totalQuality += series.qualitySum[i];
+        }
+    }
+
+    public HealthStatistics.ComprehensiveStats getStats() {
+        return stats;
+    }
+
+    // 增量不在区间内时返回 false
+    public boolean apply(DailySummary delta) {
+        int i = series.indexOfDay(delta.getEpochDay());
+        if (i < 0) return false;
+        series.addSummary(delta);
+        int days = series.days;
+
+        HealthStatistics.DietStats diet = stats.dietStats;
+        diet.dailyCalories[i] = series.caloriesIn[i];
+        diet.totalCalories += delta.getCaloriesIn();
+        diet.totalProtein += delta.getProtein();
+        diet.totalCarbs += delta.getCarbs();
+        diet.totalFat += delta.getFat();
+        diet.recordCount += delta.getDietCount();
+        diet.avgCaloriesPerDay = diet.totalCalories / days;
+
+        HealthStatistics.ExerciseStats exercise = stats.exerciseStats;
+        exercise.dailyCalories[i] = series.caloriesBurned[i];
+        exercise.dailyDuration[i] = series.exerciseMinutes[i];
+        exercise.totalCaloriesBurned += delta.getCaloriesBurned();
+        exercise.totalDurationMinutes += delta.getExerciseMinutes();
+        exercise.recordCount += delta.getExerciseCount();
+        exercise.avgCaloriesPerDay = exercise.totalCaloriesBurned / days;
+        exercise.avgDurationPerDay = exercise.totalDurationMinutes / days;
+
+        HealthStatistics.SleepStats sleep = stats.sleepStats;
+        int count = series.sleepCount[i];
+        sleep.dailyDuration[i] = count > 0 ? series.sleepMinutes[i] / 60.0 / count : 0;
+        sleep.dailyQuality[i] = count > 0 ? (double) series.qualitySum[i] / count : 0;
+        totalSleepMinutes += delta.getSleepMinutes();
+        totalQuality += delta.getQualitySum();
+        sleep.totalWakeUpCount += delta.getWakeUpSum();
+        sleep.recordCount += delta.getSleepCount();
+        if (sleep.recordCount > 0) {
+            sleep.avgDurationHours = totalSleepMinutes / 60.0 / sleep.recordCount;
+            sleep.avgQualityScore = (double) totalQuality / sleep.recordCount;
+            sleep.avgWakeUpCount = (double) sleep.totalWakeUpCount / sleep.recordCount;
+        } else {
+            sleep.avgDurationHours = 0;
+            sleep.avgQualityScore = 0;
+            sleep.avgWakeUpCount = 0;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.timedisplay.health.stats;
+
+import com.example.timedisplay.health.model.DailySummary;
+
+import java.util.Date;
+
+// 睡眠按 recordDate 归日；每日时长和质量是当天各条记录的平均值
+public class SleepStatsAccumulator {
+
+    private final DailySeries series;
+
+    public SleepStatsAccumulator(Date startDate, Date endDate) {
+        series = new DailySeries(startDate, endDate);
+    }
+
+    // qualityScore 为 0 表示未评分，与按日汇总时的 IFNULL 一致
+    public void accept(long recordDate, long durationMinutes, int qualityScore, int wakeUpCount) {
+        series.addSleep(recordDate, durationMinutes, qualityScore, wakeUpCount);
+    }
+
+    public void acceptSummary(DailySummary summary) {
+        series.addSummary(summary);
+    }
+
+    public HealthStatistics.SleepStats finish() {
+        return series.toSleepStats();
+    }
+}
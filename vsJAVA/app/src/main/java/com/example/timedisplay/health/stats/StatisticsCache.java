@@ -0,0 +1,144 @@
+package com.example.timedisplay.health.stats;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+
+import com.example.timedisplay.health.database.HealthDatabase;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// 首页统计弹窗的结果缓存，按（类别, 起始, 结束）做 LRU。某张记录表变化时只清掉对应类别的条目；
+// 每个类别有代号，计算前取代号、写入时代号已变说明计算期间表被改过，结果直接丢弃
+public class StatisticsCache {
+
+    public static final int CATEGORY_DIET = 0;
+    public static final int CATEGORY_EXERCISE = 1;
+    public static final int CATEGORY_SLEEP = 2;
+
+    private static final String[] TABLES = {"diet_records", "exercise_records", "sleep_records"};
+    private static final int MAX_ENTRIES = 32;
+
+    public static class Result {
+        public final int count;
+        public final double average;
+        public final String trend;
+        public final List<Float> series;
+
+        public Result(int count, double average, String trend, List<Float> series) {
+            this.count = count;
+            this.average = average;
+            this.trend = trend;
+            this.series = Collections.unmodifiableList(series);
+        }
+    }
+
+    private static volatile StatisticsCache INSTANCE;
+
+    private final Map<String, Result> entries = new LinkedHashMap<String, Result>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final long[] generations = new long[TABLES.length];
+    private final InvalidationTracker.Observer observer;
+    private long hits;
+    private long misses;
+    private long invalidations;
+
+    // 单元测试直接构造，不注册观察者，由测试调用 invalidate(Set)
+    StatisticsCache() {
+        observer = null;
+    }
+
+    private StatisticsCache(HealthDatabase database) {
+        observer = new InvalidationTracker.Observer(TABLES) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidate(tables);
+            }
+        };
+        HealthDatabase.databaseReadExecutor.execute(() ->
+                database.getInvalidationTracker().addObserver(observer));
+    }
+
+    public static StatisticsCache get(Context context) {
+        if (INSTANCE == null) {
+            synchronized (StatisticsCache.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new StatisticsCache(HealthDatabase.getDatabase(context));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public synchronized Result get(int category, long start, long end) {
+        Result result = entries.get(key(category, start, end));
+        if (result != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return result;
+    }
+
+    // 未命中后、开始查询前调用，把返回值传给 put
+    public synchronized long generation(int category) {
+        return generations[category];
+    }
+
+    public synchronized void put(int category, long start, long end, long generation, Result result) {
+        if (generations[category] != generation) return;
+        entries.put(key(category, start, end), result);
+    }
+
+    void invalidate(Set<String> tables) {
+        for (int category = 0; category < TABLES.length; category++) {
+            if (tables.contains(TABLES[category])) {
+                invalidate(category);
+            }
+        }
+    }
+
+    private synchronized void invalidate(int category) {
+        generations[category]++;
+        String prefix = category + ":";
+        boolean removed = false;
+        for (Iterator<String> it = entries.keySet().iterator(); it.hasNext(); ) {
+            if (it.next().startsWith(prefix)) {
+                it.remove();
+                removed = true;
+            }
+        }
+        if (removed) {
+            invalidations++;
+        }
+    }
+
+    public synchronized void resetCounters() {
+        hits = 0;
+        misses = 0;
+        invalidations = 0;
+    }
+
+    public synchronized String describe() {
+        long lookups = hits + misses;
+        return String.format(Locale.getDefault(),
+                "统计结果缓存: 命中 %d, 未命中 %d, 命中率 %.0f%%, 失效 %d, 条目 %d/%d",
+                hits, misses, lookups == 0 ? 0.0 : hits * 100.0 / lookups, invalidations,
+                entries.size(), MAX_ENTRIES);
+    }
+
+    private static String key(int category, long start, long end) {
+        return category + ":" + start + ":" + end;
+    }
+}
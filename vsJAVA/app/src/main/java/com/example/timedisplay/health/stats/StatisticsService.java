@@ -0,0 +1,211 @@
+package com.example.timedisplay.health.stats;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import com.example.timedisplay.health.database.HealthDao;
+import com.example.timedisplay.health.database.HealthDatabase;
+
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 把饮食、运动、睡眠三类的查询和汇总分别放到 databaseReadExecutor 上并行执行，全部完成后合并。
+// WAL 下每个读线程有自己的连接，三条查询互不阻塞。
+// 不要在读线程上调用同步的 compute：三个任务要排在同一个池里，等待方会占住其中一个线程
+public class StatisticsService {
+
+    public interface Callback {
+        // 在最后完成的读线程上调用，只会调用其中一个，取消后都不调用
+        void onComplete(HealthStatistics.ComprehensiveStats stats);
+
+        void onFailure(Exception error);
+    }
+
+    // 一次计算的句柄，可随时取消
+    public static class Request {
+        private final FutureTask<?>[] tasks;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private ScheduledFuture<?> timeout;
+
+        Request(FutureTask<?>... tasks) {
+            this.tasks = tasks;
+        }
+
+        public void cancel() {
+            if (finished.compareAndSet(false, true)) {
+                cancelTasks();
+            }
+        }
+
+        public boolean isFinished() {
+            return finished.get();
+        }
+
+        void cancelTasks() {
+            for (FutureTask<?> task : tasks) {
+                task.cancel(true);
+            }
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
+    }
+
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "health-stats-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static volatile StatisticsService INSTANCE;
+
+    private final HealthDao dao;
+    private final Executor executor;
+
+    StatisticsService(HealthDao dao, Executor executor) {
+        this.dao = dao;
+        this.executor = executor;
+    }
+
+    public static StatisticsService get(Context context) {
+        if (INSTANCE == null) {
+            synchronized (StatisticsService.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new StatisticsService(HealthDatabase.getDatabase(context).healthDao(),
+                            HealthDatabase.databaseReadExecutor);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    // timeoutMs 为 0 表示不限时；超时后取消未完成的任务并回调 TimeoutException
+    public Request computeAsync(Date startDate, Date endDate, String periodType, long timeoutMs, Callback callback) {
+        HealthStatistics.ComprehensiveStats stats = new HealthStatistics.ComprehensiveStats(startDate, endDate, periodType);
+        AtomicInteger remaining = new AtomicInteger(3);
+        Request[] holder = new Request[1];
+
+        Runnable onPartDone = () -> {
+            if (remaining.decrementAndGet() == 0 && holder[0].finished.compareAndSet(false, true)) {
+                holder[0].cancelTasks();
+                callback.onComplete(stats);
+            }
+        };
+        FutureTask<Void> diet = part(() -> stats.dietStats = HealthStatistics.streamDietStats(dao, startDate, endDate),
+                onPartDone, holder, callback);
+        FutureTask<Void> exercise = part(() -> stats.exerciseStats = HealthStatistics.streamExerciseStats(dao, startDate, endDate),
+                onPartDone, holder, callback);
+        FutureTask<Void> sleep = part(() -> stats.sleepStats = HealthStatistics.streamSleepStats(dao, startDate, endDate),
+                onPartDone, holder, callback);
+
+        Request request = new Request(diet, exercise, sleep);
+        holder[0] = request;
+        if (timeoutMs > 0) {
+            request.timeout = timer.schedule(() -> {
+                if (request.finished.compareAndSet(false, true)) {
+                    request.cancelTasks();
+                    callback.onFailure(new TimeoutException("Statistics not ready after " + timeoutMs + "ms"));
+                }
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        executor.execute(diet);
+        executor.execute(exercise);
+        executor.execute(sleep);
+        return request;
+    }
+
+    // 同步版本，供已经在后台线程上的调用方使用
+    public HealthStatistics.ComprehensiveStats compute(Date startDate, Date endDate, String periodType, long timeoutMs)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        HealthStatistics.ComprehensiveStats[] value = new HealthStatistics.ComprehensiveStats[1];
+        Exception[] error = new Exception[1];
+        CountDownLatch done = new CountDownLatch(1);
+        Request request = computeAsync(startDate, endDate, periodType, timeoutMs, new Callback() {
+            @Override
+            public void onComplete(HealthStatistics.ComprehensiveStats stats) {
+                value[0] = stats;
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                error[0] = e;
+                done.countDown();
+            }
+        });
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            request.cancel();
+            throw e;
+        }
+        if (error[0] instanceof TimeoutException) {
+            throw (TimeoutException) error[0];
+        }
+        if (error[0] != null) {
+            throw new ExecutionException(error[0]);
+        }
+        return value[0];
+    }
+
+    private FutureTask<Void> part(Runnable work, Runnable onDone, Request[] holder, Callback callback) {
+        return new FutureTask<Void>(work, null) {
+            @Override
+            protected void done() {
+                if (isCancelled()) return;
+                try {
+                    get();
+                    onDone.run();
+                } catch (InterruptedException | CancellationException e) {
+                    // 已被取消或超时，由取消方负责回调
+                } catch (ExecutionException e) {
+                    if (holder[0].finished.compareAndSet(false, true)) {
+                        holder[0].cancelTasks();
+                        Throwable cause = e.getCause();
+                        callback.onFailure(cause instanceof Exception ? (Exception) cause : e);
+                    }
+                }
+            }
+        };
+    }
+
+    // 在同一范围上交替运行串行版本和并行版本各 rounds 次，返回墙钟耗时对比
+    public String benchmark(Date startDate, Date endDate, int rounds)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        // 先各跑一次预热，让页缓存和 JIT 处于相同状态
+        HealthStatistics.streamComprehensiveStats(dao, startDate, endDate, "");
+        compute(startDate, endDate, "", 0);
+
+        long sequentialNanos = 0;
+        long parallelNanos = 0;
+        int records = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            HealthStatistics.ComprehensiveStats stats =
+                    HealthStatistics.streamComprehensiveStats(dao, startDate, endDate, "");
+            sequentialNanos += SystemClock.elapsedRealtimeNanos() - start;
+            records = stats.dietStats.recordCount + stats.exerciseStats.recordCount + stats.sleepStats.recordCount;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            compute(startDate, endDate, "", 0);
+            parallelNanos += SystemClock.elapsedRealtimeNanos() - start;
+        }
+        double sequentialMs = sequentialNanos / 1e6 / rounds;
+        double parallelMs = parallelNanos / 1e6 / rounds;
+        return String.format(Locale.getDefault(),
+                "记录数: %d, 轮数: %d\n串行: %.1fms\n并行: %.1fms\n加速: %.2fx",
+                records, rounds, sequentialMs, parallelMs, parallelMs > 0 ? sequentialMs / parallelMs : 0);
+    }
+}
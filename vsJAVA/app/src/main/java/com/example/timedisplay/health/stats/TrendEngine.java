@@ -0,0 +1,223 @@
+package com.example.timedisplay.health.stats;
+
+import com.example.timedisplay.health.model.DailySummary;
+
+// 按天推进的趋势引擎：每个指标维护 7 天和 28 天滑动均值、EWMA 以及 28 天线性回归斜率，
+// 每加入一天都是 O(1)，不需要回看历史。没有记录的日子不参与均值和回归（消耗热量按 0 计入）
+public class TrendEngine {
+
+    public static final int SHORT_WINDOW = 7;
+    public static final int LONG_WINDOW = 28;
+    // 相当于 7 天跨度的 EWMA
+    public static final double EWMA_ALPHA = 2.0 / (SHORT_WINDOW + 1);
+
+    // 固定长度的日历窗口，按位置 0..filled-1 记录 x，只对有数据的日子累加回归所需的和
+    static class RollingWindow {
+        private final int size;
+        private final double[] values;
+        private final boolean[] present;
+        private int start;
+        private int filled;
+        private int n;
+        private double sy;
+        private double sx;
+        private double sxx;
+        private double sxy;
+
+        RollingWindow(int size) {
+            this.size = size;
+            this.values = new double[size];
+            this.present = new boolean[size];
+        }
+
+        void add(double value, boolean hasValue) {
+            int x;
+            if (filled == size) {
+                // 移出最旧的一天（x = 0），其余各天 x 减 1
+                if (present[start]) {
+                    n--;
+                    sy -= values[start];
+                }
+                sxx = sxx - 2 * sx + n;
+                sx -= n;
+                sxy -= sy;
+                start = (start + 1) % size;
+                x = size - 1;
+            } else {
+                x = filled;
+                filled++;
+            }
+            int slot = (start + x) % size;
+            values[slot] = value;
+            present[slot] = hasValue;
+            include(x, value, hasValue, 1);
+        }
+
+        // 当天数据变化时替换最后一天
+        void replaceLast(double value, boolean hasValue) {
+            if (filled == 0) {
+                add(value, hasValue);
+                return;
+            }
+            int x = filled - 1;
+            int slot = (start + x) % size;
+            include(x, values[slot], present[slot], -1);
+            values[slot] = value;
+            present[slot] = hasValue;
+            include(x, value, hasValue, 1);
+        }
+
+        private void include(int x, double value, boolean hasValue, int sign) {
+            if (!hasValue) return;
+            n += sign;
+            sy += sign * value;
+            sx += sign * x;
+            sxx += sign * (double) x * x;
+            sxy += sign * x * value;
+        }
+
+        int count() {
+            return n;
+        }
+
+        double mean() {
+            return n > 0 ? sy / n : 0;
+        }
+
+        // 每天的变化量，少于两个点时为 0
+        double slope() {
+            double denominator = n * sxx - sx * sx;
+            return n < 2 || denominator == 0 ? 0 : (n * sxy - sx * sy) / denominator;
+        }
+    }
+
+    public static class MetricTrend {
+        private final RollingWindow shortWindow = new RollingWindow(SHORT_WINDOW);
+        private final RollingWindow longWindow = new RollingWindow(LONG_WINDOW);
+        private double ewma;
+        private boolean hasEwma;
+        private double previousEwma;
+        private boolean hadEwma;
+
+        void add(double value, boolean hasValue) {
+            shortWindow.add(value, hasValue);
+            longWindow.add(value, hasValue);
+            previousEwma = ewma;
+            hadEwma = hasEwma;
+            updateEwma(value, hasValue);
+        }
+
+        void replaceLast(double value, boolean hasValue) {
+            shortWindow.replaceLast(value, hasValue);
+            longWindow.replaceLast(value, hasValue);
+            ewma = previousEwma;
+            hasEwma = hadEwma;
+            updateEwma(value, hasValue);
+        }
+
+        private void updateEwma(double value, boolean hasValue) {
+            if (!hasValue) return;
+            ewma = hasEwma ? EWMA_ALPHA * value + (1 - EWMA_ALPHA) * ewma : value;
+            hasEwma = true;
+        }
+
+        public boolean hasData() {
+            return longWindow.count() > 0;
+        }
+
+        // 近 7 天内是否有数据；没有时 getMean7 为 0，不能当作实际水平
+        public boolean hasRecentData() {
+            return shortWindow.count() > 0;
+        }
+
+        public int getDaysWithData() {
+            return longWindow.count();
+        }
+
+        public double getMean7() {
+            return shortWindow.mean();
+        }
+
+        public double getMean28() {
+            return longWindow.mean();
+        }
+
+        public double getEwma() {
+            return ewma;
+        }
+
+        public double getSlopePerDay() {
+            return longWindow.slope();
+        }
+
+        // 28 天内的变化幅度相对均值不足 5% 视为持平
+        public int getDirection() {
+            double mean = Math.abs(getMean28());
+            double change = getSlopePerDay() * (LONG_WINDOW - 1);
+            if (mean == 0 || Math.abs(change) < mean * 0.05) return 0;
+            return change > 0 ? 1 : -1;
+        }
+    }
+
+    public final MetricTrend caloriesIn = new MetricTrend();
+    public final MetricTrend caloriesBurned = new MetricTrend();
+    public final MetricTrend exerciseMinutes = new MetricTrend();
+    public final MetricTrend sleepHours = new MetricTrend();
+    public final MetricTrend sleepQuality = new MetricTrend();
+
+    private long lastDay = Long.MIN_VALUE;
+
+    public static TrendEngine fromSeries(DailySeries series) {
+        TrendEngine engine = new TrendEngine();
+        for (int i = 0; i < series.days; i++) {
+            engine.addDay(series.startDay + i, series.caloriesIn[i], series.dietCount[i],
+                    series.caloriesBurned[i], series.exerciseMinutes[i],
+                    series.sleepMinutes[i], series.qualitySum[i], series.sleepCount[i]);
+        }
+        return engine;
+    }
+
+    public long getLastDay() {
+        return lastDay;
+    }
+
+    // 日期必须递增；中间跳过的日子按无记录补齐
+    public void addDay(long epochDay, double caloriesIn, int dietCount, double caloriesBurned,
+                       long exerciseMinutes, long sleepMinutes, long qualitySum, int sleepCount) {
+        if (lastDay != Long.MIN_VALUE) {
+            long gap = Math.min(epochDay - lastDay - 1, LONG_WINDOW);
+            for (long i = 0; i < gap; i++) {
+                addEmptyDay();
+            }
+        }
+        this.caloriesIn.add(caloriesIn, dietCount > 0);
+        this.caloriesBurned.add(caloriesBurned, true);
+        this.exerciseMinutes.add(exerciseMinutes, true);
+        this.sleepHours.add(sleepCount > 0 ? sleepMinutes / 60.0 / sleepCount : 0, sleepCount > 0);
+        this.sleepQuality.add(sleepCount > 0 ? (double) qualitySum / sleepCount : 0, sleepCount > 0);
+        lastDay = epochDay;
+    }
+
+    public void addDay(DailySummary day) {
+        addDay(day.getEpochDay(), day.getCaloriesIn(), day.getDietCount(), day.getCaloriesBurned(),
+                day.getExerciseMinutes(), day.getSleepMinutes(), day.getQualitySum(), day.getSleepCount());
+    }
+
+    // day 为最后一天修改后的完整汇总
+    public void replaceLastDay(DailySummary day) {
+        int sleepCount = day.getSleepCount();
+        caloriesIn.replaceLast(day.getCaloriesIn(), day.getDietCount() > 0);
+        caloriesBurned.replaceLast(day.getCaloriesBurned(), true);
+        exerciseMinutes.replaceLast(day.getExerciseMinutes(), true);
+        sleepHours.replaceLast(sleepCount > 0 ? day.getSleepMinutes() / 60.0 / sleepCount : 0, sleepCount > 0);
+        sleepQuality.replaceLast(sleepCount > 0 ? (double) day.getQualitySum() / sleepCount : 0, sleepCount > 0);
+    }
+
+    private void addEmptyDay() {
+        caloriesIn.add(0, false);
+        caloriesBurned.add(0, true);
+        exerciseMinutes.add(0, true);
+        sleepHours.add(0, false);
+        sleepQuality.add(0, false);
+    }
+}
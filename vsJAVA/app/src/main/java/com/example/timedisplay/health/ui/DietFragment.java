@@ -24,15 +24,14 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.timedisplay.R;
 import com.example.timedisplay.health.database.HealthDatabase;
 import com.example.timedisplay.health.model.DietRecord;
-import com.example.timedisplay.health.model.FoodItem;
+import com.example.timedisplay.health.model.DietRecordRow;
 import com.example.timedisplay.health.ui.adapter.DietRecordAdapter;
+import com.example.timedisplay.health.ui.adapter.FoodSuggestionAdapter;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.List;
 
 public class DietFragment extends Fragment {
 
@@ -62,23 +61,32 @@ public class DietFragment extends Fragment {
         adapter = new DietRecordAdapter();
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         recyclerView.setAdapter(adapter);
+        recyclerView.addOnScrollListener(new LoadMoreScrollListener(() -> viewModel.loadMoreRecords(), viewModel::onRecordsVisible));
 
         adapter.setOnItemClickListener(new DietRecordAdapter.OnItemClickListener() {
             @Override
-            public void onItemClick(DietRecord record) {
-                showEditDialog(record);
+            public void onItemClick(DietRecordRow record) {
+                if (record.sealed) {
+                    showSealedNotice();
+                } else {
+                    showEditDialog(record.id);
+                }
             }
 
             @Override
-            public void onItemLongClick(DietRecord record) {
-                showDeleteConfirm(record);
+            public void onItemLongClick(DietRecordRow record) {
+                if (record.sealed) {
+                    showSealedNotice();
+                } else {
+                    showDeleteConfirm(record.id);
+                }
             }
         });
     }
 
     private void setupViewModel() {
         viewModel = new ViewModelProvider(this).get(DietViewModel.class);
-        viewModel.getAllRecords().observe(getViewLifecycleOwner(), records -> {
+        viewModel.getRecords().observe(getViewLifecycleOwner(), records -> {
             adapter.setRecords(records);
             tvEmpty.setVisibility(records.isEmpty() ? View.VISIBLE : View.GONE);
         });
@@ -92,8 +100,19 @@ public class DietFragment extends Fragment {
         showDietDialog(null);
     }
 
-    private void showEditDialog(DietRecord record) {
-        showDietDialog(record);
+    // 已封存年份的记录在只读的分区文件里，主库中没有这一行，编辑和删除都不会生效
+    private void showSealedNotice() {
+        Toast.makeText(getContext(), "该记录所在年份已封存，只能查看", Toast.LENGTH_SHORT).show();
+    }
+
+    private void showEditDialog(long id) {
+        viewModel.loadRecord(id).observe(getViewLifecycleOwner(), record -> {
+            if (record == null) {
+                Toast.makeText(getContext(), "记录不存在", Toast.LENGTH_SHORT).show();
+            } else {
+                showDietDialog(record);
+            }
+        });
     }
 
     private void showDietDialog(DietRecord existingRecord) {
@@ -115,15 +134,9 @@ public class DietFragment extends Fragment {
         mealAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spinnerMealType.setAdapter(mealAdapter);
 
-        viewModel.getAllFoodItems().observe(getViewLifecycleOwner(), foodItems -> {
-            List<String> foodNames = new ArrayList<>();
-            for (FoodItem item : foodItems) {
-                foodNames.add(item.getName());
-            }
-            ArrayAdapter<String> foodAdapter = new ArrayAdapter<>(requireContext(),
-                    android.R.layout.simple_dropdown_item_1line, foodNames);
-            etFoodName.setAdapter(foodAdapter);
-        });
+        etFoodName.setThreshold(1);
+        etFoodName.setAdapter(new FoodSuggestionAdapter(requireContext(),
+                HealthDatabase.getDatabase(requireContext()).healthDao()));
 
         if (existingRecord != null) {
             etFoodName.setText(existingRecord.getFoodName());
@@ -171,26 +184,26 @@ public class DietFragment extends Fragment {
 
             record.setUpdatedAt(new Date());
 
+            // 提交后才提示结果
+            RowWrites.Listener listener = RowWrites.toast(requireContext(), "保存成功", "保存失败");
             if (existingRecord != null) {
-                viewModel.update(record);
+                viewModel.update(record, listener);
             } else {
-                viewModel.insert(record);
+                viewModel.insert(record, listener);
             }
 
             dialog.dismiss();
-            Toast.makeText(getContext(), "保存成功", Toast.LENGTH_SHORT).show();
         });
 
         dialog.show();
     }
 
-    private void showDeleteConfirm(DietRecord record) {
+    private void showDeleteConfirm(long id) {
         new androidx.appcompat.app.AlertDialog.Builder(requireContext())
                 .setTitle("确认删除")
                 .setMessage("确定要删除这条记录吗？")
                 .setPositiveButton("删除", (dialog, which) -> {
-                    viewModel.delete(record);
-                    Toast.makeText(getContext(), "已删除", Toast.LENGTH_SHORT).show();
+                    viewModel.delete(id, RowWrites.toast(requireContext(), "已删除", "删除失败"));
                 })
                 .setNegativeButton("取消", null)
                 .show();
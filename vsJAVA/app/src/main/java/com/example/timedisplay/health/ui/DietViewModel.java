@@ -5,49 +5,73 @@ import android.app.Application;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
 
 import com.example.timedisplay.health.database.HealthDatabase;
+import com.example.timedisplay.health.database.WriteBatcher;
+import com.example.timedisplay.health.database.YearPartitions;
 import com.example.timedisplay.health.model.DietRecord;
-import com.example.timedisplay.health.model.FoodItem;
+import com.example.timedisplay.health.model.DietRecordRow;
 
 import java.util.List;
 
 public class DietViewModel extends AndroidViewModel {
 
+    private static final int PAGE_SIZE = 50;
+
     private final HealthDatabase database;
-    private final LiveData<List<DietRecord>> allRecords;
-    private final LiveData<List<FoodItem>> allFoodItems;
+    private final WriteBatcher writeBatcher;
+    private final KeysetPager<DietRecordRow> recordPager;
 
     public DietViewModel(@NonNull Application application) {
         super(application);
         database = HealthDatabase.getDatabase(application);
-        allRecords = database.healthDao().getAllDietRecords();
-        allFoodItems = database.healthDao().getAllFoodItems();
+        writeBatcher = WriteBatcher.get(application);
+        YearPartitions partitions = new YearPartitions(application);
+        recordPager = new KeysetPager<>(database, PAGE_SIZE, (last, limit) -> last == null
+                ? partitions.getDietRecordRowsPageBefore(Long.MAX_VALUE, Long.MAX_VALUE, limit)
+                : partitions.getDietRecordRowsPageBefore(last.intakeTime, last.id, limit),
+                "diet_records");
+    }
+
+    public LiveData<List<DietRecordRow>> getRecords() {
+        return recordPager.getItems();
+    }
+
+    // 点击列表行时再按 id 加载完整记录
+    public LiveData<DietRecord> loadRecord(long id) {
+        MutableLiveData<DietRecord> result = new MutableLiveData<>();
+        HealthDatabase.databaseReadExecutor.execute(() ->
+                result.postValue(database.healthDao().getDietRecordById(id)));
+        return result;
+    }
+
+    public void loadMoreRecords() {
+        recordPager.loadMore();
     }
 
-    public LiveData<List<DietRecord>> getAllRecords() {
-        return allRecords;
+    public void onRecordsVisible(int lastVisible) {
+        recordPager.setLastVisible(lastVisible);
     }
 
-    public LiveData<List<FoodItem>> getAllFoodItems() {
-        return allFoodItems;
+    public void insert(DietRecord record, RowWrites.Listener listener) {
+        RowWrites.submit(writeBatcher, dao -> {
+            dao.addDietRecord(record);
+            return true;
+        }, listener);
     }
 
-    public void insert(DietRecord record) {
-        HealthDatabase.databaseWriteExecutor.execute(() -> {
-            database.healthDao().insertDietRecord(record);
-        });
+    public void update(DietRecord record, RowWrites.Listener listener) {
+        RowWrites.submit(writeBatcher, dao -> dao.editDietRecord(record), listener);
     }
 
-    public void update(DietRecord record) {
-        HealthDatabase.databaseWriteExecutor.execute(() -> {
-            database.healthDao().updateDietRecord(record);
-        });
+    public void delete(long id, RowWrites.Listener listener) {
+        RowWrites.submit(writeBatcher, dao -> dao.removeDietRecord(id), listener);
     }
 
-    public void delete(DietRecord record) {
-        HealthDatabase.databaseWriteExecutor.execute(() -> {
-            database.healthDao().deleteDietRecord(record);
-        });
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        recordPager.release();
     }
 }
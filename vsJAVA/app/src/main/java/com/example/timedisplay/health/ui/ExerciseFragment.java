@@ -22,6 +22,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.timedisplay.R;
 import com.example.timedisplay.health.model.ExerciseRecord;
+import com.example.timedisplay.health.model.ExerciseRecordRow;
 import com.example.timedisplay.health.ui.adapter.ExerciseRecordAdapter;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
@@ -57,23 +58,32 @@ public class ExerciseFragment extends Fragment {
         adapter = new ExerciseRecordAdapter();
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         recyclerView.setAdapter(adapter);
+        recyclerView.addOnScrollListener(new LoadMoreScrollListener(() -> viewModel.loadMoreRecords(), viewModel::onRecordsVisible));
 
         adapter.setOnItemClickListener(new ExerciseRecordAdapter.OnItemClickListener() {
             @Override
-            public void onItemClick(ExerciseRecord record) {
-                showEditDialog(record);
+            public void onItemClick(ExerciseRecordRow record) {
+                if (record.sealed) {
+                    showSealedNotice();
+                } else {
+                    showEditDialog(record.id);
+                }
             }
 
             @Override
-            public void onItemLongClick(ExerciseRecord record) {
-                showDeleteConfirm(record);
+            public void onItemLongClick(ExerciseRecordRow record) {
+                if (record.sealed) {
+                    showSealedNotice();
+                } else {
+                    showDeleteConfirm(record.id);
+                }
             }
         });
     }
 
     private void setupViewModel() {
         viewModel = new ViewModelProvider(this).get(ExerciseViewModel.class);
-        viewModel.getAllRecords().observe(getViewLifecycleOwner(), records -> {
+        viewModel.getRecords().observe(getViewLifecycleOwner(), records -> {
             adapter.setRecords(records);
             tvEmpty.setVisibility(records.isEmpty() ? View.VISIBLE : View.GONE);
         });
@@ -87,8 +97,19 @@ public class ExerciseFragment extends Fragment {
         showExerciseDialog(null);
     }
 
-    private void showEditDialog(ExerciseRecord record) {
-        showExerciseDialog(record);
+    // 已封存年份的记录在只读的分区文件里，主库中没有这一行，编辑和删除都不会生效
+    private void showSealedNotice() {
+        Toast.makeText(getContext(), "该记录所在年份已封存，只能查看", Toast.LENGTH_SHORT).show();
+    }
+
+    private void showEditDialog(long id) {
+        viewModel.loadRecord(id).observe(getViewLifecycleOwner(), record -> {
+            if (record == null) {
+                Toast.makeText(getContext(), "记录不存在", Toast.LENGTH_SHORT).show();
+            } else {
+                showExerciseDialog(record);
+            }
+        });
     }
 
     private void showExerciseDialog(ExerciseRecord existingRecord) {
@@ -196,26 +217,26 @@ public class ExerciseFragment extends Fragment {
             record.setNote(etNote.getText().toString().trim());
             record.setUpdatedAt(new Date());
 
+            // 提交后才提示结果
+            RowWrites.Listener listener = RowWrites.toast(requireContext(), "保存成功", "保存失败");
             if (existingRecord != null) {
-                viewModel.update(record);
+                viewModel.update(record, listener);
             } else {
-                viewModel.insert(record);
+                viewModel.insert(record, listener);
             }
 
             dialog.dismiss();
-            Toast.makeText(getContext(), "保存成功", Toast.LENGTH_SHORT).show();
         });
 
         dialog.show();
     }
 
-    private void showDeleteConfirm(ExerciseRecord record) {
+    private void showDeleteConfirm(long id) {
         new androidx.appcompat.app.AlertDialog.Builder(requireContext())
                 .setTitle("确认删除")
                 .setMessage("确定要删除这条记录吗？")
                 .setPositiveButton("删除", (dialog, which) -> {
-                    viewModel.delete(record);
-                    Toast.makeText(getContext(), "已删除", Toast.LENGTH_SHORT).show();
+                    viewModel.delete(id, RowWrites.toast(requireContext(), "已删除", "删除失败"));
                 })
                 .setNegativeButton("取消", null)
                 .show();
@@ -5,42 +5,72 @@ import android.app.Application;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
 
 import com.example.timedisplay.health.database.HealthDatabase;
+import com.example.timedisplay.health.database.WriteBatcher;
+import com.example.timedisplay.health.database.YearPartitions;
 import com.example.timedisplay.health.model.ExerciseRecord;
+import com.example.timedisplay.health.model.ExerciseRecordRow;
 
 import java.util.List;
 
 public class ExerciseViewModel extends AndroidViewModel {
 
+    private static final int PAGE_SIZE = 50;
+
     private final HealthDatabase database;
-    private final LiveData<List<ExerciseRecord>> allRecords;
+    private final WriteBatcher writeBatcher;
+    private final KeysetPager<ExerciseRecordRow> recordPager;
 
     public ExerciseViewModel(@NonNull Application application) {
         super(application);
         database = HealthDatabase.getDatabase(application);
-        allRecords = database.healthDao().getAllExerciseRecords();
+        writeBatcher = WriteBatcher.get(application);
+        YearPartitions partitions = new YearPartitions(application);
+        recordPager = new KeysetPager<>(database, PAGE_SIZE, (last, limit) -> last == null
+                ? partitions.getExerciseRecordRowsPageBefore(Long.MAX_VALUE, Long.MAX_VALUE, limit)
+                : partitions.getExerciseRecordRowsPageBefore(last.startTime, last.id, limit),
+                "exercise_records");
+    }
+
+    public LiveData<List<ExerciseRecordRow>> getRecords() {
+        return recordPager.getItems();
+    }
+
+    public LiveData<ExerciseRecord> loadRecord(long id) {
+        MutableLiveData<ExerciseRecord> result = new MutableLiveData<>();
+        HealthDatabase.databaseReadExecutor.execute(() ->
+                result.postValue(database.healthDao().getExerciseRecordById(id)));
+        return result;
+    }
+
+    public void loadMoreRecords() {
+        recordPager.loadMore();
+    }
+
+    public void onRecordsVisible(int lastVisible) {
+        recordPager.setLastVisible(lastVisible);
     }
 
-    public LiveData<List<ExerciseRecord>> getAllRecords() {
-        return allRecords;
+    public void insert(ExerciseRecord record, RowWrites.Listener listener) {
+        RowWrites.submit(writeBatcher, dao -> {
+            dao.addExerciseRecord(record);
+            return true;
+        }, listener);
     }
 
-    public void insert(ExerciseRecord record) {
-        HealthDatabase.databaseWriteExecutor.execute(() -> {
-            database.healthDao().insertExerciseRecord(record);
-        });
+    public void update(ExerciseRecord record, RowWrites.Listener listener) {
+        RowWrites.submit(writeBatcher, dao -> dao.editExerciseRecord(record), listener);
     }
 
-    public void update(ExerciseRecord record) {
-        HealthDatabase.databaseWriteExecutor.execute(() -> {
-            database.healthDao().updateExerciseRecord(record);
-        });
+    public void delete(long id, RowWrites.Listener listener) {
+        RowWrites.submit(writeBatcher, dao -> dao.removeExerciseRecord(id), listener);
     }
 
-    public void delete(ExerciseRecord record) {
-        HealthDatabase.databaseWriteExecutor.execute(() -> {
-            database.healthDao().deleteExerciseRecord(record);
-        });
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        recordPager.release();
     }
 }
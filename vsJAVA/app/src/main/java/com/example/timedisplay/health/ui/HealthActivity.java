@@ -3,19 +3,37 @@ package com.example.timedisplay.health.ui;
 import android.os.Bundle;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.widget.ScrollView;
+import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.viewpager2.widget.ViewPager2;
 
 import com.example.timedisplay.R;
 import com.example.timedisplay.health.database.EncryptionUtil;
+import com.example.timedisplay.health.database.HealthDatabase;
+import com.example.timedisplay.health.database.QueryStats;
+import com.example.timedisplay.health.database.RecordArchiver;
+import com.example.timedisplay.health.database.WriteBatcher;
+import com.example.timedisplay.health.database.YearPartitions;
+import com.example.timedisplay.health.stats.StatisticsCache;
+import com.example.timedisplay.health.stats.StatisticsService;
 import com.example.timedisplay.health.ui.adapter.ViewPagerAdapter;
 import com.google.android.material.tabs.TabLayout;
 import com.google.android.material.tabs.TabLayoutMediator;
 
+import java.util.Calendar;
+import java.util.Date;
+
 public class HealthActivity extends AppCompatActivity {
 
+    private static final long FLUSH_TIMEOUT_MS = 500;
+    private static final int BENCHMARK_YEARS = 10;
+    private static final int BENCHMARK_ROUNDS = 5;
+
     private ViewPager2 viewPager;
     private TabLayout tabLayout;
 
@@ -38,12 +56,20 @@ public class HealthActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        WriteBatcher.get(this).flushAndWait(FLUSH_TIMEOUT_MS);
+        new RecordArchiver(this).compactIfIdle();
+    }
+
     private void setupViewPager() {
         ViewPagerAdapter adapter = new ViewPagerAdapter(this);
         adapter.addFragment(new DietFragment(), "饮食");
         adapter.addFragment(new ExerciseFragment(), "运动");
         adapter.addFragment(new SleepFragment(), "睡眠");
         adapter.addFragment(new StatisticsFragment(), "统计");
+        adapter.addFragment(new TimelineFragment(), "时间线");
         viewPager.setAdapter(adapter);
     }
 
@@ -58,9 +84,84 @@ public class HealthActivity extends AppCompatActivity {
         ).attach();
     }
 
+    private void showQueryStats() {
+        String text = HealthDatabase.databaseWriteExecutor.describe() + "\n"
+                + HealthDatabase.databaseReadExecutor.describe() + "\n"
+                + StatisticsCache.get(this).describe() + "\n\n"
+                + QueryStats.get().dump();
+        TextView content = new TextView(this);
+        content.setText(text);
+        content.setTextIsSelectable(true);
+        content.setTextSize(12);
+        int padding = (int) (16 * getResources().getDisplayMetrics().density);
+        content.setPadding(padding, padding, padding, padding);
+        ScrollView scrollView = new ScrollView(this);
+        scrollView.addView(content);
+
+        new AlertDialog.Builder(this)
+                .setTitle("数据库查询统计")
+                .setView(scrollView)
+                .setPositiveButton("关闭", null)
+                .setNeutralButton("清空", (dialog, which) -> {
+                    QueryStats.get().reset();
+                    StatisticsCache.get(this).resetCounters();
+                })
+                .show();
+    }
+
+    private void showArchiveReport() {
+        RecordArchiver archiver = new RecordArchiver(this);
+        String report = archiver.getLastReport();
+        String text = "保留最近 " + archiver.getRetentionMonths() + " 个月的原始记录，更早的按月汇总\n\n"
+                + (report != null ? report : "尚未归档过记录");
+        new AlertDialog.Builder(this)
+                .setTitle("归档报告")
+                .setMessage(text)
+                .setPositiveButton("关闭", null)
+                .show();
+    }
+
+    // 在最近十年的原始记录上对比串行和并行统计的耗时，结果弹窗显示
+    private void runStatsBenchmark() {
+        Toast.makeText(this, "正在运行基准测试...", Toast.LENGTH_SHORT).show();
+        Date end = new Date();
+        Calendar start = Calendar.getInstance();
+        start.add(Calendar.YEAR, -BENCHMARK_YEARS);
+        // 不能放在读线程池上：并行版本本身要占用读线程
+        new Thread(() -> {
+            String result;
+            try {
+                result = StatisticsService.get(this).benchmark(start.getTime(), end, BENCHMARK_ROUNDS);
+            } catch (Exception e) {
+                result = "基准测试失败: " + e;
+            }
+            String text = result;
+            runOnUiThread(() -> {
+                if (isFinishing()) return;
+                new AlertDialog.Builder(this)
+                        .setTitle("统计计算基准测试")
+                        .setMessage(text)
+                        .setPositiveButton("关闭", null)
+                        .show();
+            });
+        }, "health-stats-benchmark").start();
+    }
+
+    // 开启后立即在后台搬移已结束的年份，之后每天检查一次
+    private void toggleYearPartitions(MenuItem item) {
+        YearPartitions partitions = new YearPartitions(this);
+        boolean enabled = !partitions.isEnabled();
+        partitions.setEnabled(enabled);
+        item.setChecked(enabled);
+        if (enabled) {
+            partitions.runIfDue();
+        }
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.health_menu, menu);
+        menu.findItem(R.id.action_year_partitions).setChecked(new YearPartitions(this).isEnabled());
         return true;
     }
 
@@ -73,6 +174,18 @@ public class HealthActivity extends AppCompatActivity {
         } else if (id == R.id.action_export) {
             viewPager.setCurrentItem(3);
             return true;
+        } else if (id == R.id.action_query_stats) {
+            showQueryStats();
+            return true;
+        } else if (id == R.id.action_stats_benchmark) {
+            runStatsBenchmark();
+            return true;
+        } else if (id == R.id.action_archive_report) {
+            showArchiveReport();
+            return true;
+        } else if (id == R.id.action_year_partitions) {
+            toggleYearPartitions(item);
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
@@ -0,0 +1,120 @@
+package com.example.timedisplay.health.ui;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.room.InvalidationTracker;
+import androidx.room.RoomDatabase;
+
+import com.example.timedisplay.health.database.HealthDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class KeysetPager<T> {
+
+    public interface PageLoader<T> {
+        // last 为已加载的最后一条，为 null 时加载第一页
+        List<T> loadPage(@Nullable T last, int limit);
+    }
+
+    // 数据变化时重新加载到最后一个可见行之后再多一页，更下面的行丢掉，滚动到时由 loadMore 重新取
+    private static final int REFRESH_MARGIN_PAGES = 1;
+
+    private final RoomDatabase database;
+    private final PageLoader<T> loader;
+    private final int pageSize;
+    private final MutableLiveData<List<T>> items = new MutableLiveData<>();
+    private final InvalidationTracker.Observer observer;
+    private final Object lock = new Object();
+
+    private List<T> loaded = new ArrayList<>();
+    private boolean loading;
+    private boolean endReached;
+    private int generation;
+    private int lastVisible = -1;
+
+    public KeysetPager(RoomDatabase database, int pageSize, PageLoader<T> loader, String... tables) {
+        this.database = database;
+        this.pageSize = pageSize;
+        this.loader = loader;
+        this.observer = new InvalidationTracker.Observer(tables) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                refresh();
+            }
+        };
+        HealthDatabase.databaseReadExecutor.execute(() ->
+                database.getInvalidationTracker().addObserver(observer));
+        refresh();
+    }
+
+    public LiveData<List<T>> getItems() {
+        return items;
+    }
+
+    public void loadMore() {
+        final T last;
+        final int gen;
+        synchronized (lock) {
+            if (loading || endReached) return;
+            loading = true;
+            last = loaded.isEmpty() ? null : loaded.get(loaded.size() - 1);
+            gen = generation;
+        }
+        HealthDatabase.databaseReadExecutor.execute(() -> {
+            List<T> page = loader.loadPage(last, pageSize);
+            synchronized (lock) {
+                if (gen != generation) return;
+                loading = false;
+                endReached = page.size() < pageSize;
+                List<T> merged = new ArrayList<>(loaded.size() + page.size());
+                merged.addAll(loaded);
+                merged.addAll(page);
+                loaded = merged;
+                items.postValue(merged);
+            }
+        });
+    }
+
+    // 列表滚动时由界面告知最后一个可见行的位置
+    public void setLastVisible(int position) {
+        synchronized (lock) {
+            lastVisible = position;
+        }
+    }
+
+    // 数据变化时从头重新加载，只取到可见区域之下一页为止，不按已加载的条数整段重查
+    public void refresh() {
+        final int limit;
+        final int gen;
+        synchronized (lock) {
+            generation++;
+            gen = generation;
+            loading = true;
+            limit = refreshLimit();
+        }
+        HealthDatabase.databaseReadExecutor.execute(() -> {
+            List<T> rows = loader.loadPage(null, limit);
+            synchronized (lock) {
+                if (gen != generation) return;
+                loading = false;
+                endReached = rows.size() < limit;
+                loaded = rows;
+                items.postValue(rows);
+            }
+        });
+    }
+
+    private int refreshLimit() {
+        int pages = (lastVisible + 1 + pageSize - 1) / pageSize + REFRESH_MARGIN_PAGES;
+        return Math.max(pageSize, Math.min(loaded.size(), pages * pageSize));
+    }
+
+    public void release() {
+        HealthDatabase.databaseReadExecutor.execute(() ->
+                database.getInvalidationTracker().removeObserver(observer));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.timedisplay.health.ui;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+public class LoadMoreScrollListener extends RecyclerView.OnScrollListener {
+
+    private static final int PREFETCH_DISTANCE = 10;
+
+    public interface VisibleListener {
+        void onVisible(int lastVisible);
+    }
+
+    private final Runnable onLoadMore;
+    private final VisibleListener onVisible;
+
+    public LoadMoreScrollListener(Runnable onLoadMore, VisibleListener onVisible) {
+        this.onLoadMore = onLoadMore;
+        this.onVisible = onVisible;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        RecyclerView.Adapter<?> adapter = recyclerView.getAdapter();
+        if (!(layoutManager instanceof LinearLayoutManager) || adapter == null) return;
+
+        // 向上滚动也要告知，数据变化时按可见位置决定重新加载多少行
+        int lastVisible = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+        onVisible.onVisible(lastVisible);
+        if (dy <= 0) return;
+        if (lastVisible >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+            onLoadMore.run();
+        }
+    }
+}
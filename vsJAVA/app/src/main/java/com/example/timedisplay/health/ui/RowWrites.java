@@ -0,0 +1,63 @@
+package com.example.timedisplay.health.ui;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.Toast;
+
+import com.example.timedisplay.health.database.HealthDao;
+import com.example.timedisplay.health.database.WriteBatcher;
+
+// 列表页的保存、编辑和删除经过 WriteBatcher 合并提交，结果在提交之后才知道。
+// 记录已不在主库（被删除或所在年份已封存到分区文件）时编辑和删除不影响任何行，不能提示成功
+final class RowWrites {
+
+    interface Write {
+        // 返回是否有记录受影响
+        boolean apply(HealthDao dao);
+    }
+
+    // 都在主线程上调用
+    interface Listener {
+        void onDone(boolean affected);
+
+        void onFailed();
+    }
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private RowWrites() {
+    }
+
+    static void submit(WriteBatcher batcher, Write write, Listener listener) {
+        // 只在写线程上读写；整批失败逐条重试时以最后一次执行为准
+        boolean[] affected = new boolean[1];
+        batcher.submit(dao -> affected[0] = write.apply(dao), new WriteBatcher.Callback() {
+            @Override
+            public void onCommitted() {
+                boolean result = affected[0];
+                mainHandler.post(() -> listener.onDone(result));
+            }
+
+            @Override
+            public void onFailed(RuntimeException error) {
+                mainHandler.post(listener::onFailed);
+            }
+        });
+    }
+
+    static Listener toast(Context context, String success, String failure) {
+        Context app = context.getApplicationContext();
+        return new Listener() {
+            @Override
+            public void onDone(boolean affected) {
+                Toast.makeText(app, affected ? success : "记录不存在或所在年份已封存", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onFailed() {
+                Toast.makeText(app, failure, Toast.LENGTH_LONG).show();
+            }
+        };
+    }
+}
@@ -5,42 +5,72 @@ import android.app.Application;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
 
 import com.example.timedisplay.health.database.HealthDatabase;
+import com.example.timedisplay.health.database.WriteBatcher;
+import com.example.timedisplay.health.database.YearPartitions;
 import com.example.timedisplay.health.model.SleepRecord;
+import com.example.timedisplay.health.model.SleepRecordRow;
 
 import java.util.List;
 
 public class SleepViewModel extends AndroidViewModel {
 
+    private static final int PAGE_SIZE = 50;
+
     private final HealthDatabase database;
-    private final LiveData<List<SleepRecord>> allRecords;
+    private final WriteBatcher writeBatcher;
+    private final KeysetPager<SleepRecordRow> recordPager;
 
     public SleepViewModel(@NonNull Application application) {
         super(application);
         database = HealthDatabase.getDatabase(application);
-        allRecords = database.healthDao().getAllSleepRecords();
+        writeBatcher = WriteBatcher.get(application);
+        YearPartitions partitions = new YearPartitions(application);
+        recordPager = new KeysetPager<>(database, PAGE_SIZE, (last, limit) -> last == null
+                ? partitions.getSleepRecordRowsPageBefore(Long.MAX_VALUE, Long.MAX_VALUE, limit)
+                : partitions.getSleepRecordRowsPageBefore(last.recordDate, last.id, limit),
+                "sleep_records");
+    }
+
+    public LiveData<List<SleepRecordRow>> getRecords() {
+        return recordPager.getItems();
+    }
+
+    public LiveData<SleepRecord> loadRecord(long id) {
+        MutableLiveData<SleepRecord> result = new MutableLiveData<>();
+        HealthDatabase.databaseReadExecutor.execute(() ->
+                result.postValue(database.healthDao().getSleepRecordById(id)));
+        return result;
+    }
+
+    public void loadMoreRecords() {
+        recordPager.loadMore();
+    }
+
+    public void onRecordsVisible(int lastVisible) {
+        recordPager.setLastVisible(lastVisible);
     }
 
-    public LiveData<List<SleepRecord>> getAllRecords() {
-        return allRecords;
+    public void insert(SleepRecord record, RowWrites.Listener listener) {
+        RowWrites.submit(writeBatcher, dao -> {
+            dao.addSleepRecord(record);
+            return true;
+        }, listener);
     }
 
-    public void insert(SleepRecord record) {
-        HealthDatabase.databaseWriteExecutor.execute(() -> {
-            database.healthDao().insertSleepRecord(record);
-        });
+    public void update(SleepRecord record, RowWrites.Listener listener) {
+        RowWrites.submit(writeBatcher, dao -> dao.editSleepRecord(record), listener);
     }
 
-    public void update(SleepRecord record) {
-        HealthDatabase.databaseWriteExecutor.execute(() -> {
-            database.healthDao().updateSleepRecord(record);
-        });
+    public void delete(long id, RowWrites.Listener listener) {
+        RowWrites.submit(writeBatcher, dao -> dao.removeSleepRecord(id), listener);
     }
 
-    public void delete(SleepRecord record) {
-        HealthDatabase.databaseWriteExecutor.execute(() -> {
-            database.healthDao().deleteSleepRecord(record);
-        });
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        recordPager.release();
     }
 }
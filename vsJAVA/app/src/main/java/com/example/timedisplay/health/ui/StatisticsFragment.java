@@ -18,16 +18,13 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.example.timedisplay.R;
 import com.example.timedisplay.health.database.EncryptionUtil;
-import com.example.timedisplay.health.model.DietRecord;
-import com.example.timedisplay.health.model.ExerciseRecord;
-import com.example.timedisplay.health.model.SleepRecord;
 import com.example.timedisplay.health.pdf.PdfReportGenerator;
 import com.example.timedisplay.health.stats.HealthStatistics;
+import com.example.timedisplay.health.stats.TrendEngine;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 
 public class StatisticsFragment extends Fragment {
@@ -65,13 +62,15 @@ public class StatisticsFragment extends Fragment {
         setupViewModel();
         setupListeners();
         setDefaultDateRange();
+        loadStatistics();
 
         return view;
     }
 
     private void setupViewModel() {
         viewModel = new ViewModelProvider(this).get(StatisticsViewModel.class);
-        loadStatistics();
+        viewModel.getStatistics().observe(getViewLifecycleOwner(), this::updateStatistics);
+        viewModel.getTrends().observe(getViewLifecycleOwner(), this::updateSuggestions);
     }
 
     private void setupListeners() {
@@ -127,22 +126,10 @@ public class StatisticsFragment extends Fragment {
     }
 
     private void loadStatistics() {
-        Date start = startDate.getTime();
-        Date end = endDate.getTime();
-
-        viewModel.getDietRecords(start, end).observe(getViewLifecycleOwner(), dietRecords -> {
-            viewModel.getExerciseRecords(start, end).observe(getViewLifecycleOwner(), exerciseRecords -> {
-                viewModel.getSleepRecords(start, end).observe(getViewLifecycleOwner(), sleepRecords -> {
-                    updateStatistics(dietRecords, exerciseRecords, sleepRecords);
-                });
-            });
-        });
+        viewModel.setRange(startDate.getTime(), endDate.getTime(), getPeriodType());
     }
 
-    private void updateStatistics(List<DietRecord> dietRecords, List<ExerciseRecord> exerciseRecords, List<SleepRecord> sleepRecords) {
-        HealthStatistics.ComprehensiveStats stats = HealthStatistics.generateComprehensiveStats(
-                dietRecords, exerciseRecords, sleepRecords, startDate.getTime(), endDate.getTime(), getPeriodType());
-
+    private void updateStatistics(HealthStatistics.ComprehensiveStats stats) {
         String dietText = String.format("饮食统计:\n" +
                         "  记录数: %d\n" +
                         "  总热量: %.0f kcal\n" +
@@ -167,6 +154,11 @@ public class StatisticsFragment extends Fragment {
                 stats.exerciseStats.avgCaloriesPerDay,
                 stats.exerciseStats.totalDurationMinutes,
                 stats.exerciseStats.avgDurationPerDay);
+        if (stats.distribution != null && !stats.distribution.exerciseDuration.isEmpty()) {
+            exerciseText += String.format("\n  单次时长中位数: %.0f分钟  P90: %.0f分钟",
+                    stats.distribution.exerciseDuration.median(),
+                    stats.distribution.exerciseDuration.quantile(0.9));
+        }
         tvExerciseStats.setText(exerciseText);
 
         String sleepText = String.format("睡眠统计:\n" +
@@ -179,12 +171,22 @@ public class StatisticsFragment extends Fragment {
                 HealthStatistics.getQualityDescription(stats.sleepStats.avgQualityScore),
                 stats.sleepStats.avgQualityScore,
                 stats.sleepStats.totalWakeUpCount);
+        if (stats.distribution != null && !stats.distribution.sleepDuration.isEmpty()) {
+            sleepText += String.format("\n  时长中位数: %.1f小时  P90: %.1f小时\n  入睡用时中位数: %.0f分钟  P90: %.0f分钟",
+                    stats.distribution.sleepDuration.median() / 60,
+                    stats.distribution.sleepDuration.quantile(0.9) / 60,
+                    stats.distribution.sleepLatency.median(),
+                    stats.distribution.sleepLatency.quantile(0.9));
+        }
         tvSleepStats.setText(sleepText);
+    }
 
+    // 建议跟随最近几周的趋势，与所选统计区间无关
+    private void updateSuggestions(TrendEngine trends) {
         StringBuilder suggestions = new StringBuilder("健康建议:\n");
-        suggestions.append("• ").append(HealthStatistics.getDietSuggestion(stats.dietStats.avgCaloriesPerDay)).append("\n");
-        suggestions.append("• ").append(HealthStatistics.getExerciseSuggestion(stats.exerciseStats.avgCaloriesPerDay, stats.exerciseStats.avgDurationPerDay)).append("\n");
-        suggestions.append("• ").append(HealthStatistics.getSleepSuggestion(stats.sleepStats.avgDurationHours));
+        suggestions.append("• ").append(HealthStatistics.getDietSuggestion(trends.caloriesIn)).append("\n");
+        suggestions.append("• ").append(HealthStatistics.getExerciseSuggestion(trends.caloriesBurned, trends.exerciseMinutes)).append("\n");
+        suggestions.append("• ").append(HealthStatistics.getSleepSuggestion(trends.sleepHours, trends.sleepQuality));
         tvSuggestions.setText(suggestions.toString());
     }
 
@@ -202,36 +204,28 @@ public class StatisticsFragment extends Fragment {
         Date start = startDate.getTime();
         Date end = endDate.getTime();
 
-        viewModel.getDietRecords(start, end).observe(getViewLifecycleOwner(), dietRecords -> {
-            viewModel.getExerciseRecords(start, end).observe(getViewLifecycleOwner(), exerciseRecords -> {
-                viewModel.getSleepRecords(start, end).observe(getViewLifecycleOwner(), sleepRecords -> {
-                    PdfReportGenerator.generateHealthReport(
-                            requireContext(),
-                            dietRecords,
-                            exerciseRecords,
-                            sleepRecords,
-                            start,
-                            end,
-                            getPeriodType(),
-                            password.isEmpty() ? null : password,
-                            new PdfReportGenerator.PdfGenerationCallback() {
-                                @Override
-                                public void onSuccess(String filePath) {
-                                    requireActivity().runOnUiThread(() -> {
-                                        Toast.makeText(getContext(), "PDF已生成: " + filePath, Toast.LENGTH_LONG).show();
-                                    });
-                                }
-
-                                @Override
-                                public void onError(String error) {
-                                    requireActivity().runOnUiThread(() -> {
-                                        Toast.makeText(getContext(), "生成失败: " + error, Toast.LENGTH_LONG).show();
-                                    });
-                                }
-                            }
-                    );
-                });
-            });
-        });
+        // 统计和明细都由生成器在自己的线程上读取
+        PdfReportGenerator.generateHealthReport(
+                requireContext(),
+                start,
+                end,
+                getPeriodType(),
+                password.isEmpty() ? null : password,
+                new PdfReportGenerator.PdfGenerationCallback() {
+                    @Override
+                    public void onSuccess(String filePath) {
+                        requireActivity().runOnUiThread(() -> {
+                            Toast.makeText(getContext(), "PDF已生成: " + filePath, Toast.LENGTH_LONG).show();
+                        });
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        requireActivity().runOnUiThread(() -> {
+                            Toast.makeText(getContext(), "生成失败: " + error, Toast.LENGTH_LONG).show();
+                        });
+                    }
+                }
+        );
     }
 }
@@ -1,37 +1,417 @@
 package com.example.timedisplay.health.ui;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
 
+import com.example.timedisplay.health.database.EpochDay;
 import com.example.timedisplay.health.database.HealthDatabase;
-import com.example.timedisplay.health.model.DietRecord;
-import com.example.timedisplay.health.model.ExerciseRecord;
-import com.example.timedisplay.health.model.SleepRecord;
+import com.example.timedisplay.health.database.SummaryDeltas;
+import com.example.timedisplay.health.database.SummarySnapshot;
+import com.example.timedisplay.health.model.DailySummary;
+import com.example.timedisplay.health.stats.DailySeries;
+import com.example.timedisplay.health.stats.DailyTotalsIndex;
+import com.example.timedisplay.health.stats.DistributionStats;
+import com.example.timedisplay.health.stats.HealthStatistics;
+import com.example.timedisplay.health.stats.IncrementalStats;
+import com.example.timedisplay.health.stats.StatisticsService;
+import com.example.timedisplay.health.stats.TrendEngine;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class StatisticsViewModel extends AndroidViewModel {
 
+    private static final String TAG = "StatisticsViewModel";
+    private static final long RANGE_DEBOUNCE_MS = 300;
+    // 索引构建前直接查询区间的超时
+    private static final long COMPUTE_TIMEOUT_MS = 10_000;
+    private static final int MAX_CACHED_RANGES = 4;
+    // 多取几周让 EWMA 稳定下来
+    private static final int TREND_DAYS = TrendEngine.LONG_WINDOW * 3;
+
     private final HealthDatabase database;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final MediatorLiveData<HealthStatistics.ComprehensiveStats> statistics = new MediatorLiveData<>();
+    private final DailyTotalsIndex totalsIndex;
+    private final StatisticsService statisticsService;
+    private final DailyTotalsIndex.Listener indexListener;
+    private final SummaryDeltas.Listener deltaListener;
+
+    // 以下字段只在主线程访问；按访问顺序排列，超过上限时淘汰最久未用的非当前区间
+    private final Map<String, RangeStats> rangeCache = new LinkedHashMap<>(MAX_CACHED_RANGES + 1, 0.75f, true);
+    private RangeStats current;
+    private Runnable pendingRange;
+    private Runnable pendingDistribution;
+    private long distributionRequest;
+    private final MutableLiveData<TrendEngine> trends = new MutableLiveData<>();
+    private TrendEngine trendEngine;
+    private DailySummary trendLastDay;
+    private long trendSequence;
+    private boolean trendsLoading;
+    // 加载期间收到的增量，加载完成后按序号筛选套用
+    private List<SequencedDeltas> pendingTrendDeltas = new ArrayList<>();
+
+    private static class SequencedDeltas {
+        final List<DailySummary> deltas;
+        final long sequence;
+
+        SequencedDeltas(List<DailySummary> deltas, long sequence) {
+            this.deltas = deltas;
+            this.sequence = sequence;
+        }
+    }
 
     public StatisticsViewModel(@NonNull Application application) {
         super(application);
         database = HealthDatabase.getDatabase(application);
+        totalsIndex = DailyTotalsIndex.get(application);
+        statisticsService = StatisticsService.get(application);
+        // 缓存的区间不再监听 daily_summary 的 InvalidationTracker 重新查询：SummaryDeltas 的增量经由索引转发，
+        // 带着索引套用后的版本号，与 query 返回的版本对齐，直接套用到各区间的 IncrementalStats 上
+        indexListener = (deltas, version) -> mainHandler.post(() -> applyRangeDeltas(deltas, version));
+        totalsIndex.addListener(indexListener);
+        // daily_summary 只由 DAO 的 apply*Summary 修改，提交后的增量直接套用到趋势上，不再整段重算。
+        // 先注册再加载，加载期间提交的增量不会漏掉
+        deltaListener = (deltas, sequence) -> mainHandler.post(() -> applyTrendDeltas(deltas, sequence));
+        SummaryDeltas.addListener(deltaListener);
+    }
+
+    public LiveData<HealthStatistics.ComprehensiveStats> getStatistics() {
+        return statistics;
+    }
+
+    // 截至今天的趋势，首次调用时加载，之后随增量更新
+    public LiveData<TrendEngine> getTrends() {
+        if (trendEngine == null && !trendsLoading) {
+            loadTrends();
+        }
+        return trends;
+    }
+
+    // 在读线程上加载，不占用写线程；快照序号之后的增量在加载完成后补上
+    private void loadTrends() {
+        trendsLoading = true;
+        long today = EpochDay.of(System.currentTimeMillis());
+        long startDay = today - TREND_DAYS + 1;
+        SummarySnapshot.load(database.healthDao(),
+                dao -> dao.getDailySummariesBetweenSync(startDay, today),
+                (summaries, sequence) -> {
+                    DailySeries series = new DailySeries(startDay, TREND_DAYS);
+                    for (DailySummary summary : summaries) {
+                        series.addSummary(summary);
+                    }
+                    TrendEngine engine = TrendEngine.fromSeries(series);
+                    DailySummary lastDay = lastDayOf(series);
+                    mainHandler.post(() -> onTrendsLoaded(engine, lastDay, sequence));
+                });
+    }
+
+    private void onTrendsLoaded(TrendEngine engine, DailySummary lastDay, long sequence) {
+        trendsLoading = false;
+        trendEngine = engine;
+        trendLastDay = lastDay;
+        trendSequence = sequence;
+        List<SequencedDeltas> pending = pendingTrendDeltas;
+        pendingTrendDeltas = new ArrayList<>();
+        for (SequencedDeltas batch : pending) {
+            applyTrendDeltas(batch.deltas, batch.sequence);
+        }
+        if (trendEngine != null) {
+            trends.setValue(trendEngine);
+        }
+    }
+
+    private static DailySummary lastDayOf(DailySeries series) {
+        int i = series.days - 1;
+        DailySummary day = new DailySummary(series.startDay + i);
+        day.setCaloriesIn(series.caloriesIn[i]);
+        day.setProtein(series.protein[i]);
+        day.setCarbs(series.carbs[i]);
+        day.setFat(series.fat[i]);
+        day.setDietCount(series.dietCount[i]);
+        day.setCaloriesBurned(series.caloriesBurned[i]);
+        day.setExerciseMinutes(series.exerciseMinutes[i]);
+        day.setExerciseCount(series.exerciseCount[i]);
+        day.setSleepMinutes(series.sleepMinutes[i]);
+        day.setQualitySum(series.qualitySum[i]);
+        day.setWakeUpSum(series.wakeUpSum[i]);
+        day.setSleepCount(series.sleepCount[i]);
+        return day;
+    }
+
+    // 当天的增量替换最后一天，跨过零点的新日期直接追加；改动更早的日子才重新加载
+    private void applyTrendDeltas(List<DailySummary> deltas, long sequence) {
+        if (trendsLoading) {
+            pendingTrendDeltas.add(new SequencedDeltas(deltas, sequence));
+            return;
+        }
+        // 已包含在快照里
+        if (trendEngine == null || sequence <= trendSequence) return;
+        trendSequence = sequence;
+        for (DailySummary delta : deltas) {
+            long day = delta.getEpochDay();
+            if (day < trendLastDay.getEpochDay()) {
+                if (day > trendLastDay.getEpochDay() - TREND_DAYS) {
+                    trendEngine = null;
+                    loadTrends();
+                    return;
+                }
+                continue;
+            }
+            if (day > trendLastDay.getEpochDay()) {
+                trendLastDay = new DailySummary(day);
+                trendEngine.addDay(trendLastDay);
+            }
+            addInto(trendLastDay, delta);
+            trendEngine.replaceLastDay(trendLastDay);
+        }
+        trends.setValue(trendEngine);
+    }
+
+    private static void addInto(DailySummary total, DailySummary delta) {
+        total.setCaloriesIn(total.getCaloriesIn() + delta.getCaloriesIn());
+        total.setProtein(total.getProtein() + delta.getProtein());
+        total.setCarbs(total.getCarbs() + delta.getCarbs());
+        total.setFat(total.getFat() + delta.getFat());
+        total.setDietCount(total.getDietCount() + delta.getDietCount());
+        total.setCaloriesBurned(total.getCaloriesBurned() + delta.getCaloriesBurned());
+        total.setExerciseMinutes(total.getExerciseMinutes() + delta.getExerciseMinutes());
+        total.setExerciseCount(total.getExerciseCount() + delta.getExerciseCount());
+        total.setSleepMinutes(total.getSleepMinutes() + delta.getSleepMinutes());
+        total.setQualitySum(total.getQualitySum() + delta.getQualitySum());
+        total.setWakeUpSum(total.getWakeUpSum() + delta.getWakeUpSum());
+        total.setSleepCount(total.getSleepCount() + delta.getSleepCount());
+    }
+
+    // 连续点选日期时只切换到最后一次选择的区间，首次立即切换
+    public void setRange(Date startDate, Date endDate, String periodType) {
+        Date start = new Date(startDate.getTime());
+        Date end = new Date(endDate.getTime());
+        if (pendingRange != null) {
+            mainHandler.removeCallbacks(pendingRange);
+        }
+        pendingRange = () -> {
+            pendingRange = null;
+            showRange(start, end, periodType);
+        };
+        mainHandler.postDelayed(pendingRange, current == null ? 0 : RANGE_DEBOUNCE_MS);
+    }
+
+    // 区间统计从内存索引取出，之后随增量 O(1) 更新；分布草图需要读库
+    private void showRange(Date start, Date end, String periodType) {
+        String key = EpochDay.of(start) + ":" + EpochDay.of(end) + ":" + periodType;
+        RangeStats range = rangeCache.get(key);
+        if (range == null) {
+            range = new RangeStats(start, end, periodType);
+            rangeCache.put(key, range);
+        }
+        if (range != current) {
+            if (current != null) {
+                statistics.removeSource(current.data);
+                current.cancelCompute();
+            }
+            current = range;
+            statistics.addSource(range.data, statistics::setValue);
+        }
+        trimCache();
+        if (range.incremental == null) {
+            range.refresh();
+        }
+        scheduleDistribution(0);
+    }
+
+    private void trimCache() {
+        Iterator<RangeStats> it = rangeCache.values().iterator();
+        while (rangeCache.size() > MAX_CACHED_RANGES && it.hasNext()) {
+            if (it.next() != current) {
+                it.remove();
+            }
+        }
+    }
+
+    private void scheduleDistribution(long delayMs) {
+        if (pendingDistribution != null) {
+            mainHandler.removeCallbacks(pendingDistribution);
+        }
+        pendingDistribution = () -> {
+            pendingDistribution = null;
+            loadDistribution();
+        };
+        mainHandler.postDelayed(pendingDistribution, delayMs);
+    }
+
+    // 草图按月合并，只需读几十行，在读线程上执行，不排在批量写入后面。区间内每次睡眠或运动增量都会
+    // 重新加载一次，所以只要显示最后发起的那次请求的结果；读线程池并发执行，较早的请求可能后完成，按请求号丢弃
+    private void loadDistribution() {
+        RangeStats range = current;
+        long request = ++distributionRequest;
+        HealthDatabase.databaseReadExecutor.execute(() -> {
+            DistributionStats loaded = DistributionStats.load(database.healthDao(), range.start, range.end);
+            mainHandler.post(() -> {
+                if (request != distributionRequest) return;
+                range.distribution = loaded;
+                range.publish();
+            });
+        });
+    }
+
+    // 正在查询的区间先缓存增量，结果到达后按版本号补上。索引构建完成时 deltas 为空，此时补上还没取到的当前区间
+    private void applyRangeDeltas(List<DailySummary> deltas, long version) {
+        for (RangeStats range : rangeCache.values()) {
+            if (range.pending != null) {
+                range.pending.add(new SequencedDeltas(deltas, version));
+            } else if (range.incremental != null && range.apply(deltas, version) && range == current) {
+                scheduleDistribution(0);
+            }
+        }
+        if (current != null && current.incremental == null) {
+            current.refresh();
+        }
     }
 
-    public LiveData<List<DietRecord>> getDietRecords(Date startDate, Date endDate) {
-        return database.healthDao().getDietRecordsBetween(startDate, endDate);
+    // 分布草图只随睡眠和运动记录变化；只改入睡潜伏期的编辑产生全零增量，也要重新合并
+    private static boolean isDietOnly(DailySummary delta) {
+        boolean dietChanged = delta.getDietCount() != 0 || delta.getCaloriesIn() != 0;
+        return dietChanged && delta.getExerciseCount() == 0 && delta.getExerciseMinutes() == 0
+                && delta.getSleepCount() == 0 && delta.getSleepMinutes() == 0;
     }
 
-    public LiveData<List<ExerciseRecord>> getExerciseRecords(Date startDate, Date endDate) {
-        return database.healthDao().getExerciseRecordsBetween(startDate, endDate);
+    private class RangeStats {
+        final Date start;
+        final Date end;
+        final String periodType;
+        final MutableLiveData<HealthStatistics.ComprehensiveStats> data = new MutableLiveData<>();
+        IncrementalStats incremental;
+        // 已包含的最后一批增量的序号
+        long version;
+        // 查询进行中时不为空
+        List<SequencedDeltas> pending;
+        DistributionStats distribution;
+        // 索引构建完成前由 StatisticsService 直接查询得到的结果，索引结果到达后丢弃
+        HealthStatistics.ComprehensiveStats provisional;
+        StatisticsService.Request computing;
+        long computeRequest;
+
+        RangeStats(Date start, Date end, String periodType) {
+            this.start = start;
+            this.end = end;
+            this.periodType = periodType;
+        }
+
+        // 索引查询在读线程上执行，不占用主线程
+        void refresh() {
+            if (pending != null) return;
+            pending = new ArrayList<>();
+            HealthDatabase.databaseReadExecutor.execute(() -> {
+                DailyTotalsIndex.Range result = totalsIndex.query(start, end, periodType);
+                mainHandler.post(() -> onLoaded(result));
+            });
+        }
+
+        // 索引还没构建完成时结果为空；索引只在构建完成后才发通知，查询期间收到过通知就重新查询，
+        // 否则当前区间先直接查询一次，索引就绪后由通知触发的 refresh 取代
+        private void onLoaded(DailyTotalsIndex.Range result) {
+            List<SequencedDeltas> buffered = pending;
+            pending = null;
+            if (result == null) {
+                if (!buffered.isEmpty()) {
+                    refresh();
+                } else if (this == current && computing == null && provisional == null) {
+                    computeUntilIndexReady();
+                }
+                return;
+            }
+            cancelCompute();
+            provisional = null;
+            incremental = new IncrementalStats(result.series, result.stats);
+            version = result.version;
+            for (SequencedDeltas batch : buffered) {
+                apply(batch.deltas, batch.sequence);
+            }
+            publish();
+        }
+
+        // 跳过已包含在快照里的增量；返回区间内的睡眠或运动是否有变化
+        boolean apply(List<DailySummary> deltas, long sequence) {
+            if (sequence <= version) return false;
+            version = sequence;
+            boolean changed = false;
+            boolean distributionChanged = false;
+            for (DailySummary delta : deltas) {
+                if (incremental.apply(delta)) {
+                    changed = true;
+                    distributionChanged |= !isDietOnly(delta);
+                }
+            }
+            if (changed) {
+                publish();
+            }
+            return distributionChanged;
+        }
+
+        // 三类查询在读线程池上并行执行；切换区间、索引就绪或 ViewModel 清除时取消
+        void computeUntilIndexReady() {
+            long request = ++computeRequest;
+            computing = statisticsService.computeAsync(start, end, periodType, COMPUTE_TIMEOUT_MS,
+                    new StatisticsService.Callback() {
+                        @Override
+                        public void onComplete(HealthStatistics.ComprehensiveStats stats) {
+                            mainHandler.post(() -> onComputed(request, stats));
+                        }
+
+                        @Override
+                        public void onFailure(Exception error) {
+                            Log.w(TAG, "Range statistics failed", error);
+                            mainHandler.post(() -> onComputed(request, null));
+                        }
+                    });
+        }
+
+        // 取消后已经投递到主线程的结果按请求号丢弃
+        private void onComputed(long request, HealthStatistics.ComprehensiveStats stats) {
+            if (request != computeRequest) return;
+            computing = null;
+            if (stats == null || incremental != null) return;
+            provisional = stats;
+            publish();
+        }
+
+        void cancelCompute() {
+            computeRequest++;
+            if (computing != null) {
+                computing.cancel();
+                computing = null;
+            }
+        }
+
+        void publish() {
+            HealthStatistics.ComprehensiveStats stats = incremental != null ? incremental.getStats() : provisional;
+            if (stats == null) return;
+            stats.distribution = distribution;
+            data.setValue(stats);
+        }
     }
 
-    public LiveData<List<SleepRecord>> getSleepRecords(Date startDate, Date endDate) {
-        return database.healthDao().getSleepRecordsBetween(startDate, endDate);
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        SummaryDeltas.removeListener(deltaListener);
+        totalsIndex.removeListener(indexListener);
+        mainHandler.removeCallbacksAndMessages(null);
+        for (RangeStats range : rangeCache.values()) {
+            range.cancelCompute();
+        }
     }
 }
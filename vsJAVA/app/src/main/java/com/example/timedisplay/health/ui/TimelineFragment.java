@@ -0,0 +1,55 @@
+package com.example.timedisplay.health.ui;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.timedisplay.R;
+import com.example.timedisplay.health.ui.adapter.TimelineAdapter;
+
+// 饮食、运动、睡眠记录按时间交错显示
+public class TimelineFragment extends Fragment {
+
+    private RecyclerView recyclerView;
+    private TimelineAdapter adapter;
+    private TextView tvEmpty;
+    private TimelineViewModel viewModel;
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.fragment_timeline, container, false);
+
+        recyclerView = view.findViewById(R.id.recyclerView);
+        tvEmpty = view.findViewById(R.id.tvEmpty);
+
+        setupRecyclerView();
+        setupViewModel();
+
+        return view;
+    }
+
+    private void setupRecyclerView() {
+        adapter = new TimelineAdapter();
+        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        recyclerView.setAdapter(adapter);
+        recyclerView.addOnScrollListener(new LoadMoreScrollListener(() -> viewModel.loadMoreEntries(), viewModel::onEntriesVisible));
+    }
+
+    private void setupViewModel() {
+        viewModel = new ViewModelProvider(this).get(TimelineViewModel.class);
+        viewModel.getEntries().observe(getViewLifecycleOwner(), entries -> {
+            adapter.setEntries(entries);
+            tvEmpty.setVisibility(entries.isEmpty() ? View.VISIBLE : View.GONE);
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.timedisplay.health.ui;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+
+import com.example.timedisplay.health.database.HealthDatabase;
+import com.example.timedisplay.health.database.YearPartitions;
+import com.example.timedisplay.health.model.TimelineEntry;
+
+import java.util.List;
+
+public class TimelineViewModel extends AndroidViewModel {
+
+    private static final int PAGE_SIZE = 50;
+
+    private final KeysetPager<TimelineEntry> entryPager;
+
+    public TimelineViewModel(@NonNull Application application) {
+        super(application);
+        HealthDatabase database = HealthDatabase.getDatabase(application);
+        YearPartitions partitions = new YearPartitions(application);
+        entryPager = new KeysetPager<>(database, PAGE_SIZE, (last, limit) -> last == null
+                ? partitions.getTimelinePageBefore(Long.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, limit)
+                : partitions.getTimelinePageBefore(last.time, last.kind, last.id, limit),
+                "diet_records", "exercise_records", "sleep_records");
+    }
+
+    public LiveData<List<TimelineEntry>> getEntries() {
+        return entryPager.getItems();
+    }
+
+    public void loadMoreEntries() {
+        entryPager.loadMore();
+    }
+
+    public void onEntriesVisible(int lastVisible) {
+        entryPager.setLastVisible(lastVisible);
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        entryPager.release();
+    }
+}
@@ -9,7 +9,7 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.timedisplay.R;
-import com.example.timedisplay.health.model.DietRecord;
+import com.example.timedisplay.health.model.DietRecordRow;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -18,20 +18,20 @@ import java.util.Locale;
 
 public class DietRecordAdapter extends RecyclerView.Adapter<DietRecordAdapter.ViewHolder> {
 
-    private List<DietRecord> records = new ArrayList<>();
+    private List<DietRecordRow> records = new ArrayList<>();
     private OnItemClickListener listener;
     private SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
 
     public interface OnItemClickListener {
-        void onItemClick(DietRecord record);
-        void onItemLongClick(DietRecord record);
+        void onItemClick(DietRecordRow record);
+        void onItemLongClick(DietRecordRow record);
     }
 
     public void setOnItemClickListener(OnItemClickListener listener) {
         this.listener = listener;
     }
 
-    public void setRecords(List<DietRecord> records) {
+    public void setRecords(List<DietRecordRow> records) {
         this.records = records;
         notifyDataSetChanged();
     }
@@ -46,7 +46,7 @@ public class DietRecordAdapter extends RecyclerView.Adapter<DietRecordAdapter.Vi
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        DietRecord record = records.get(position);
+        DietRecordRow record = records.get(position);
         holder.bind(record);
     }
 
@@ -85,13 +85,13 @@ public class DietRecordAdapter extends RecyclerView.Adapter<DietRecordAdapter.Vi
             });
         }
 
-        void bind(DietRecord record) {
-            tvFoodName.setText(record.getFoodName());
+        void bind(DietRecordRow record) {
+            tvFoodName.setText(record.foodName);
             tvMealType.setText(record.getMealTypeDisplay());
-            if (record.getIntakeTime() != null) {
-                tvTime.setText(timeFormat.format(record.getIntakeTime()));
+            if (record.intakeTime > 0) {
+                tvTime.setText(timeFormat.format(record.intakeTime));
             }
-            tvCalories.setText(String.format(Locale.getDefault(), "%.0f kcal", record.getCalories()));
+            tvCalories.setText(String.format(Locale.getDefault(), "%.0f kcal", record.calories));
         }
     }
 }
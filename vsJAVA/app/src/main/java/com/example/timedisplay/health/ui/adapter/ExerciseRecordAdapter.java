@@ -9,7 +9,7 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.timedisplay.R;
-import com.example.timedisplay.health.model.ExerciseRecord;
+import com.example.timedisplay.health.model.ExerciseRecordRow;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -18,20 +18,20 @@ import java.util.Locale;
 
 public class ExerciseRecordAdapter extends RecyclerView.Adapter<ExerciseRecordAdapter.ViewHolder> {
 
-    private List<ExerciseRecord> records = new ArrayList<>();
+    private List<ExerciseRecordRow> records = new ArrayList<>();
     private OnItemClickListener listener;
     private SimpleDateFormat timeFormat = new SimpleDateFormat("MM-dd HH:mm", Locale.getDefault());
 
     public interface OnItemClickListener {
-        void onItemClick(ExerciseRecord record);
-        void onItemLongClick(ExerciseRecord record);
+        void onItemClick(ExerciseRecordRow record);
+        void onItemLongClick(ExerciseRecordRow record);
     }
 
     public void setOnItemClickListener(OnItemClickListener listener) {
         this.listener = listener;
     }
 
-    public void setRecords(List<ExerciseRecord> records) {
+    public void setRecords(List<ExerciseRecordRow> records) {
         this.records = records;
         notifyDataSetChanged();
     }
@@ -46,7 +46,7 @@ public class ExerciseRecordAdapter extends RecyclerView.Adapter<ExerciseRecordAd
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        ExerciseRecord record = records.get(position);
+        ExerciseRecordRow record = records.get(position);
         holder.bind(record);
     }
 
@@ -87,14 +87,14 @@ public class ExerciseRecordAdapter extends RecyclerView.Adapter<ExerciseRecordAd
             });
         }
 
-        void bind(ExerciseRecord record) {
+        void bind(ExerciseRecordRow record) {
             tvExerciseType.setText(record.getExerciseTypeDisplay());
             tvIntensity.setText(record.getIntensityDisplay());
-            if (record.getStartTime() != null) {
-                tvTime.setText(timeFormat.format(record.getStartTime()));
+            if (record.startTime > 0) {
+                tvTime.setText(timeFormat.format(record.startTime));
             }
             tvDuration.setText(record.getFormattedDuration());
-            tvCalories.setText(String.format(Locale.getDefault(), "-%.0f kcal", record.getCaloriesBurned()));
+            tvCalories.setText(String.format(Locale.getDefault(), "-%.0f kcal", record.caloriesBurned));
         }
     }
 }
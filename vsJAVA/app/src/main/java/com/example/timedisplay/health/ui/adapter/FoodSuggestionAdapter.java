@@ -0,0 +1,57 @@
+package com.example.timedisplay.health.ui.adapter;
+
+import android.content.Context;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+
+import androidx.annotation.NonNull;
+
+import com.example.timedisplay.health.database.HealthDao;
+import com.example.timedisplay.health.model.FoodItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 食物名称自动补全：在 Filter 的后台线程里查 FTS，只取排名靠前的少量结果
+public class FoodSuggestionAdapter extends ArrayAdapter<String> {
+
+    private static final int MAX_SUGGESTIONS = 20;
+
+    private final HealthDao dao;
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            List<String> names = new ArrayList<>();
+            if (constraint != null) {
+                for (FoodItem item : dao.findFoodItems(constraint.toString(), MAX_SUGGESTIONS)) {
+                    names.add(item.getName());
+                }
+            }
+            FilterResults results = new FilterResults();
+            results.values = names;
+            results.count = names.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            clear();
+            if (results.values != null) {
+                addAll((List<String>) results.values);
+            }
+            notifyDataSetChanged();
+        }
+    };
+
+    public FoodSuggestionAdapter(@NonNull Context context, HealthDao dao) {
+        super(context, android.R.layout.simple_dropdown_item_1line, new ArrayList<>());
+        this.dao = dao;
+    }
+
+    @NonNull
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+}
@@ -9,7 +9,7 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.timedisplay.R;
-import com.example.timedisplay.health.model.SleepRecord;
+import com.example.timedisplay.health.model.SleepRecordRow;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -18,20 +18,20 @@ import java.util.Locale;
 
 public class SleepRecordAdapter extends RecyclerView.Adapter<SleepRecordAdapter.ViewHolder> {
 
-    private List<SleepRecord> records = new ArrayList<>();
+    private List<SleepRecordRow> records = new ArrayList<>();
     private OnItemClickListener listener;
     private SimpleDateFormat dateFormat = new SimpleDateFormat("MM-dd", Locale.getDefault());
 
     public interface OnItemClickListener {
-        void onItemClick(SleepRecord record);
-        void onItemLongClick(SleepRecord record);
+        void onItemClick(SleepRecordRow record);
+        void onItemLongClick(SleepRecordRow record);
     }
 
     public void setOnItemClickListener(OnItemClickListener listener) {
         this.listener = listener;
     }
 
-    public void setRecords(List<SleepRecord> records) {
+    public void setRecords(List<SleepRecordRow> records) {
         this.records = records;
         notifyDataSetChanged();
     }
@@ -46,7 +46,7 @@ public class SleepRecordAdapter extends RecyclerView.Adapter<SleepRecordAdapter.
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        SleepRecord record = records.get(position);
+        SleepRecordRow record = records.get(position);
         holder.bind(record);
     }
 
@@ -85,13 +85,13 @@ public class SleepRecordAdapter extends RecyclerView.Adapter<SleepRecordAdapter.
             });
         }
 
-        void bind(SleepRecord record) {
-            if (record.getRecordDate() != null) {
-                tvDate.setText(dateFormat.format(record.getRecordDate()));
+        void bind(SleepRecordRow record) {
+            if (record.recordDate > 0) {
+                tvDate.setText(dateFormat.format(record.recordDate));
             }
             tvDuration.setText(record.getFormattedDuration());
             tvQuality.setText(record.getSleepQualityDisplay());
-            tvWakeUpCount.setText(String.format(Locale.getDefault(), "夜醒%d次", record.getWakeUpCount()));
+            tvWakeUpCount.setText(String.format(Locale.getDefault(), "夜醒%d次", record.wakeUpCount));
         }
     }
 }
@@ -0,0 +1,69 @@
+package com.example.timedisplay.health.ui.adapter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.timedisplay.R;
+import com.example.timedisplay.health.model.TimelineEntry;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class TimelineAdapter extends RecyclerView.Adapter<TimelineAdapter.ViewHolder> {
+
+    private List<TimelineEntry> entries = new ArrayList<>();
+    private SimpleDateFormat timeFormat = new SimpleDateFormat("MM-dd HH:mm", Locale.getDefault());
+
+    public void setEntries(List<TimelineEntry> entries) {
+        this.entries = entries;
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_timeline, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        TimelineEntry entry = entries.get(position);
+        holder.bind(entry);
+    }
+
+    @Override
+    public int getItemCount() {
+        return entries.size();
+    }
+
+    class ViewHolder extends RecyclerView.ViewHolder {
+        private TextView tvTitle;
+        private TextView tvCategory;
+        private TextView tvTime;
+        private TextView tvValue;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvTitle = itemView.findViewById(R.id.tvTitle);
+            tvCategory = itemView.findViewById(R.id.tvCategory);
+            tvTime = itemView.findViewById(R.id.tvTime);
+            tvValue = itemView.findViewById(R.id.tvValue);
+        }
+
+        void bind(TimelineEntry entry) {
+            tvTitle.setText(entry.getTitle());
+            tvCategory.setText(entry.getKindDisplay());
+            tvTime.setText(timeFormat.format(entry.time));
+            tvValue.setText(entry.getValueDisplay());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.timedisplay.health.database;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// 用 sqlite-jdbc 建出与 Room 相同的记录表和索引，对 HealthDao 的范围查询执行 EXPLAIN QUERY PLAN，
+// 确认按时间索引查找，而不是全表扫描再排序
+public class HealthIndexPlanTest {
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE `diet_records` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`foodName` TEXT, `mealType` INTEGER, `intakeTime` INTEGER, `calories` REAL NOT NULL, "
+                    + "`protein` REAL NOT NULL, `carbs` REAL NOT NULL, `fat` REAL NOT NULL, `amount` REAL NOT NULL, "
+                    + "`unit` TEXT, `note` TEXT, `createdAt` INTEGER, `updatedAt` INTEGER, "
+                    + "`epochDay` INTEGER NOT NULL, `minuteOfDay` INTEGER NOT NULL)",
+            "CREATE INDEX `index_diet_records_intakeTime` ON `diet_records` (`intakeTime`)",
+            "CREATE INDEX `index_diet_records_epochDay` ON `diet_records` (`epochDay`)",
+            "CREATE TABLE `exercise_records` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`exerciseType` INTEGER, `customTypeName` TEXT, `startTime` INTEGER, `endTime` INTEGER, "
+                    + "`durationMinutes` INTEGER NOT NULL, `intensity` INTEGER, `caloriesBurned` REAL NOT NULL, "
+                    + "`distance` REAL NOT NULL, `steps` INTEGER NOT NULL, `note` TEXT, `createdAt` INTEGER, "
+                    + "`updatedAt` INTEGER, `epochDay` INTEGER NOT NULL, `minuteOfDay` INTEGER NOT NULL)",
+            "CREATE INDEX `index_exercise_records_startTime` ON `exercise_records` (`startTime`)",
+            "CREATE INDEX `index_exercise_records_epochDay` ON `exercise_records` (`epochDay`)",
+            "CREATE TABLE `sleep_records` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`sleepTime` INTEGER, `wakeTime` INTEGER, `durationMinutes` INTEGER NOT NULL, "
+                    + "`sleepQuality` INTEGER, `wakeUpCount` INTEGER NOT NULL, `sleepLatencyMinutes` INTEGER NOT NULL, "
+                    + "`hasDream` INTEGER NOT NULL, `dreamDescription` TEXT, `note` TEXT, `recordDate` INTEGER, "
+                    + "`createdAt` INTEGER, `updatedAt` INTEGER, `epochDay` INTEGER NOT NULL, `minuteOfDay` INTEGER NOT NULL)",
+            "CREATE INDEX `index_sleep_records_recordDate` ON `sleep_records` (`recordDate`)",
+            "CREATE INDEX `index_sleep_records_epochDay` ON `sleep_records` (`epochDay`)",
+    };
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : SCHEMA) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void dietRangeQueriesUseTimeIndex() throws SQLException {
+        assertUsesIndex(HealthDao.DIET_RECORDS_BETWEEN, "diet_records", "index_diet_records_intakeTime");
+        assertUsesIndex(HealthDao.DIET_ROWS_BETWEEN, "diet_records", "index_diet_records_intakeTime");
+        assertUsesIndex(HealthDao.DIET_CALORIES_BETWEEN, "diet_records", "index_diet_records_intakeTime");
+    }
+
+    @Test
+    public void exerciseRangeQueriesUseTimeIndex() throws SQLException {
+        assertUsesIndex(HealthDao.EXERCISE_RECORDS_BETWEEN, "exercise_records", "index_exercise_records_startTime");
+        assertUsesIndex(HealthDao.EXERCISE_ROWS_BETWEEN, "exercise_records", "index_exercise_records_startTime");
+        assertUsesIndex(HealthDao.EXERCISE_CALORIES_BETWEEN, "exercise_records", "index_exercise_records_startTime");
+        assertUsesIndex(HealthDao.EXERCISE_DURATION_BETWEEN, "exercise_records", "index_exercise_records_startTime");
+    }
+
+    @Test
+    public void sleepRangeQueriesUseTimeIndex() throws SQLException {
+        assertUsesIndex(HealthDao.SLEEP_RECORDS_BETWEEN, "sleep_records", "index_sleep_records_recordDate");
+        assertUsesIndex(HealthDao.SLEEP_ROWS_BETWEEN, "sleep_records", "index_sleep_records_recordDate");
+        assertUsesIndex(HealthDao.SLEEP_AVG_DURATION_BETWEEN, "sleep_records", "index_sleep_records_recordDate");
+        assertUsesIndex(HealthDao.SLEEP_AVG_QUALITY_BETWEEN, "sleep_records", "index_sleep_records_recordDate");
+    }
+
+    private void assertUsesIndex(String query, String table, String index) throws SQLException {
+        List<String> plan = explain(query);
+        String text = String.join("\n", plan);
+        assertTrue(query + "\n" + text, text.contains("USING INDEX " + index)
+                || text.contains("USING COVERING INDEX " + index));
+        for (String step : plan) {
+            assertFalse(query + "\n" + text, step.startsWith("SCAN " + table));
+            assertFalse(query + "\n" + text, step.contains("USE TEMP B-TREE FOR ORDER BY"));
+        }
+    }
+
+    // Room 的 :name 参数换成 ?，EXPLAIN 不需要绑定值
+    private List<String> explain(String query) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        String sql = "EXPLAIN QUERY PLAN " + query.replaceAll(":[A-Za-z]+", "?");
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(sql)) {
+            while (rows.next()) {
+                plan.add(rows.getString("detail"));
+            }
+        }
+        return plan;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.timedisplay.health.database;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class QueryStatsTest {
+
+    private QueryStats stats;
+
+    @Before
+    public void setUp() {
+        stats = new QueryStats();
+    }
+
+    @Test
+    public void normalizeReplacesLiterals() {
+        assertEquals("SELECT * FROM diet_records WHERE intakeTime >= ? AND foodName = ?",
+                QueryStats.normalize("SELECT * FROM diet_records WHERE intakeTime >= 1700000000000 AND foodName = 'it''s'"));
+        assertEquals("SELECT * FROM t WHERE id IN (?)",
+                QueryStats.normalize("SELECT * FROM t WHERE id IN (1, 2, 3)"));
+        assertEquals("SELECT * FROM t WHERE id IN (?)",
+                QueryStats.normalize("SELECT * FROM t WHERE id IN (?,?, ?)"));
+        assertEquals("SELECT x FROM t WHERE a = ? AND b = -?",
+                QueryStats.normalize("SELECT  x\n FROM t WHERE a = ?1 AND b = -2.5"));
+    }
+
+    @Test
+    public void normalizeKeepsIdentifiers() {
+        assertEquals("SELECT * FROM y2019.diet_records WHERE `col2` = ?",
+                QueryStats.normalize("SELECT * FROM y2019.diet_records WHERE `col2` = 7"));
+        assertEquals("SELECT \"a 1\" FROM t",
+                QueryStats.normalize("SELECT \"a 1\" FROM t"));
+    }
+
+    @Test
+    public void statementsWithDifferentLiteralsShareOneEntry() {
+        for (int i = 0; i < 1000; i++) {
+            stats.record("SELECT * FROM sleep_records WHERE recordDate < " + i, 1_000_000L, 1, "main", true);
+        }
+        List<QueryStats.StatementStats> list = stats.getStatements();
+        assertEquals(1, list.size());
+        assertEquals(1000, list.get(0).count);
+        assertEquals(1000, list.get(0).mainThreadCount);
+        assertEquals(1000, stats.getMainThreadAccesses());
+    }
+
+    @Test
+    public void statementMapIsBounded() {
+        for (int i = 0; i < QueryStats.MAX_STATEMENTS * 2; i++) {
+            stats.record("SELECT * FROM table_" + i, 1000, 0, "worker", false);
+        }
+        assertEquals(QueryStats.MAX_STATEMENTS, stats.getStatements().size());
+    }
+
+    @Test
+    public void slowQueriesKeepRawSqlNewestFirst() {
+        long slow = QueryStats.SLOW_QUERY_MS * 1_000_000L;
+        stats.record("SELECT 1", slow, 1, "a", false);
+        stats.record("SELECT 2", slow, 1, "b", false);
+        stats.record("SELECT 3", 1000, 1, "c", false);
+        List<QueryStats.SlowQuery> slowQueries = stats.getSlowQueries();
+        assertEquals(2, slowQueries.size());
+        assertEquals("SELECT 2", slowQueries.get(0).sql);
+        assertEquals("SELECT 1", slowQueries.get(1).sql);
+    }
+}
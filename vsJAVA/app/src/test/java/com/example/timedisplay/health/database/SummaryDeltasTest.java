@@ -0,0 +1,141 @@
+package com.example.timedisplay.health.database;
+
+import com.example.timedisplay.health.model.DailySummary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// 按 HealthDatabase 的调用顺序驱动事务边界回调，检查增量只在最外层提交后发布一次、
+// 失败的事务不占用序号，以及提交期间 stamp() 返回 -1
+public class SummaryDeltasTest {
+
+    private static final long DAY = 20000;
+
+    private final List<List<DailySummary>> batches = new ArrayList<>();
+    private final List<Long> sequences = new ArrayList<>();
+    private final SummaryDeltas.Listener listener = (deltas, sequence) -> {
+        batches.add(deltas);
+        sequences.add(sequence);
+    };
+    private long base;
+
+    @Before
+    public void register() {
+        SummaryDeltas.addListener(listener);
+        base = SummaryDeltas.stamp();
+    }
+
+    @After
+    public void unregister() {
+        SummaryDeltas.removeListener(listener);
+    }
+
+    @Test
+    public void nestedTransactionPublishesOnceAfterOutermostCommit() {
+        SummaryDeltas.onBegin();
+        SummaryDeltas.diet(DAY, 300, 10, 40, 5, 1);
+        SummaryDeltas.onBegin();
+        SummaryDeltas.exercise(DAY + 1, 200, 30, 1);
+        SummaryDeltas.diet(DAY, 100, 2, 10, 1, 1);
+        SummaryDeltas.onSuccessful();
+        SummaryDeltas.onEnd(true);
+        assertTrue(batches.isEmpty());
+
+        SummaryDeltas.onSuccessful();
+        SummaryDeltas.onCommitting();
+        assertEquals(-1, SummaryDeltas.stamp());
+        SummaryDeltas.onEnd(true);
+
+        assertEquals(1, batches.size());
+        assertEquals(base + 1, (long) sequences.get(0));
+        assertEquals(base + 1, SummaryDeltas.stamp());
+        // 同一天合并，按第一次出现的顺序
+        List<DailySummary> deltas = batches.get(0);
+        assertEquals(2, deltas.size());
+        assertEquals(DAY, deltas.get(0).getEpochDay());
+        assertEquals(400, deltas.get(0).getCaloriesIn(), 0);
+        assertEquals(2, deltas.get(0).getDietCount());
+        assertEquals(DAY + 1, deltas.get(1).getEpochDay());
+        assertEquals(30, deltas.get(1).getExerciseMinutes());
+    }
+
+    @Test
+    public void failedInnerTransactionDiscardsBatch() {
+        SummaryDeltas.onBegin();
+        SummaryDeltas.diet(DAY, 300, 10, 40, 5, 1);
+        SummaryDeltas.onBegin();
+        SummaryDeltas.sleep(DAY, 420, 4, 1, 1);
+        SummaryDeltas.onEnd(true);
+        SummaryDeltas.onSuccessful();
+        SummaryDeltas.onCommitting();
+        SummaryDeltas.onEnd(true);
+        assertTrue(batches.isEmpty());
+        assertEquals(base, SummaryDeltas.stamp());
+
+        // 丢弃的增量不会混进下一个事务，序号也没有被占用
+        SummaryDeltas.onBegin();
+        SummaryDeltas.exercise(DAY, 150, 20, 1);
+        SummaryDeltas.onSuccessful();
+        SummaryDeltas.onCommitting();
+        SummaryDeltas.onEnd(true);
+        assertEquals(1, batches.size());
+        assertEquals(base + 1, (long) sequences.get(0));
+        DailySummary delta = batches.get(0).get(0);
+        assertEquals(0, delta.getDietCount());
+        assertEquals(0, delta.getSleepCount());
+        assertEquals(1, delta.getExerciseCount());
+    }
+
+    @Test
+    public void failedCommitDiscardsBatch() {
+        SummaryDeltas.onBegin();
+        SummaryDeltas.diet(DAY, 300, 10, 40, 5, 1);
+        SummaryDeltas.onSuccessful();
+        SummaryDeltas.onCommitting();
+        SummaryDeltas.onEnd(false);
+        assertTrue(batches.isEmpty());
+        assertEquals(base, SummaryDeltas.stamp());
+    }
+
+    @Test
+    public void writesOutsideTransactionPublishInOrder() {
+        SummaryDeltas.diet(DAY, 300, 10, 40, 5, 1);
+        SummaryDeltas.diet(DAY, -300, -10, -40, -5, -1);
+        assertEquals(2, batches.size());
+        assertEquals(base + 1, (long) sequences.get(0));
+        assertEquals(base + 2, (long) sequences.get(1));
+        assertEquals(-1, batches.get(1).get(0).getDietCount());
+        assertEquals(base + 2, SummaryDeltas.stamp());
+    }
+
+    // 另一个线程的最外层事务提交期间，本线程的 stamp() 不能给出序号；提交完成后给出它发布的序号
+    @Test
+    public void stampIsUnavailableWhileAnotherThreadCommits() throws Exception {
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            writer.submit(() -> {
+                SummaryDeltas.onBegin();
+                SummaryDeltas.diet(DAY, 300, 10, 40, 5, 1);
+                SummaryDeltas.onSuccessful();
+                SummaryDeltas.onCommitting();
+            }).get();
+            assertEquals(-1, SummaryDeltas.stamp());
+            assertTrue(batches.isEmpty());
+
+            writer.submit(() -> SummaryDeltas.onEnd(true)).get();
+            assertEquals(base + 1, SummaryDeltas.stamp());
+            assertEquals(1, batches.size());
+        } finally {
+            writer.shutdown();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.timedisplay.health.model;
+
+import com.example.timedisplay.health.database.EpochDay;
+import com.example.timedisplay.health.database.HealthDao;
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// 条件聚合查询只给出两个周期的计数和合计，平均值、变化比例和趋势文字都在这里计算；
+// 查询本身用 sqlite-jdbc 执行 HealthDao 里的同一份 SQL，检查跨过归档截止日的周期
+public class PeriodComparisonTest {
+
+    private static final long TODAY = 20000;
+
+    @Test
+    public void averagesAndChangeUsePerRecordMeans() {
+        PeriodComparison comparison = comparison(4, 2000, 5, 2000);
+        assertEquals(500, comparison.getCurrentAverage(), 0);
+        assertEquals(400, comparison.getPreviousAverage(), 0);
+        assertEquals(25, comparison.getChangePercent(), 1e-9);
+        assertTrue(comparison.getTrendText().startsWith("↑"));
+
+        assertTrue(comparison(5, 1500, 5, 2000).getTrendText().startsWith("↓"));
+    }
+
+    // 变化不足 5% 视为持平，仍显示比例
+    @Test
+    public void smallChangeIsFlat() {
+        PeriodComparison comparison = comparison(10, 1040, 10, 1000);
+        assertEquals(4, comparison.getChangePercent(), 1e-9);
+        assertTrue(comparison.getTrendText().startsWith("→ "));
+    }
+
+    @Test
+    public void emptyPreviousPeriodHasNoChange() {
+        PeriodComparison comparison = comparison(3, 900, 0, 0);
+        assertTrue(Double.isNaN(comparison.getChangePercent()));
+        assertEquals(0, comparison.getPreviousAverage(), 0);
+        assertEquals("新", comparison.getTrendText());
+
+        PeriodComparison empty = comparison(0, 0, 0, 0);
+        assertEquals(0, empty.getCurrentAverage(), 0);
+        assertEquals("→", empty.getTrendText());
+    }
+
+    // 上一周期有记录但合计为 0（例如都是零热量饮品），比例没有意义
+    @Test
+    public void zeroPreviousAverageHasNoChange() {
+        PeriodComparison comparison = comparison(2, 300, 3, 0);
+        assertTrue(Double.isNaN(comparison.getChangePercent()));
+        assertEquals("新", comparison.getTrendText());
+    }
+
+    // 上一周期全部、当前周期前三天已归档，原始记录只剩截止日之后的；截止日之后的 daily_summary 不能重复计入
+    @Test
+    public void queryCombinesArchivedDaysWithRawRecords() throws SQLException {
+        long firstRawDay = TODAY - 4;
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE diet_records (id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                        + "intakeTime INTEGER, calories REAL NOT NULL, epochDay INTEGER NOT NULL)");
+                statement.execute("CREATE TABLE daily_summary (epochDay INTEGER PRIMARY KEY NOT NULL, "
+                        + "caloriesIn REAL NOT NULL, dietCount INTEGER NOT NULL)");
+                statement.execute("CREATE TABLE monthly_aggregates (recordType TEXT NOT NULL, lastDay INTEGER NOT NULL)");
+                statement.execute("INSERT INTO monthly_aggregates VALUES ('diet', " + (firstRawDay - 1) + ")");
+            }
+            double previousTotal = 0;
+            double currentTotal = 0;
+            for (long day = TODAY - 14; day <= TODAY; day++) {
+                double breakfast = 100 + (day % 7) * 10;
+                double dinner = 300;
+                if (day >= firstRawDay) {
+                    insertDiet(connection, day, 8, breakfast);
+                    insertDiet(connection, day, 19, dinner);
+                }
+                execute(connection, "INSERT INTO daily_summary VALUES (" + day + ", " + (breakfast + dinner) + ", 2)");
+                if (day < TODAY - 7) {
+                    previousTotal += breakfast + dinner;
+                } else if (day < TODAY) {
+                    currentTotal += breakfast + dinner;
+                }
+            }
+
+            long start = EpochDay.toStartMillis(TODAY - 7);
+            long end = EpochDay.toStartMillis(TODAY) - 1;
+            PeriodComparison comparison = query(connection, HealthDao.DIET_COMPARE_PERIODS, 2 * start - end, start, end);
+            assertEquals(14, comparison.currentCount);
+            assertEquals(currentTotal, comparison.currentTotal, 1e-9);
+            assertEquals(14, comparison.previousCount);
+            assertEquals(previousTotal, comparison.previousTotal, 1e-9);
+
+            // 没有归档时全部来自原始记录
+            execute(connection, "DELETE FROM monthly_aggregates");
+            comparison = query(connection, HealthDao.DIET_COMPARE_PERIODS, 2 * start - end, start, end);
+            assertEquals(8, comparison.currentCount);
+            assertEquals(0, comparison.previousCount);
+        }
+    }
+
+    private static void insertDiet(Connection connection, long day, int hour, double calories) throws SQLException {
+        execute(connection, "INSERT INTO diet_records (intakeTime, calories, epochDay) VALUES ("
+                + (EpochDay.toStartMillis(day) + hour * 3600_000L) + ", " + calories + ", " + day + ")");
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    // 具名参数按出现顺序换成 ?，Date 参数按 DateConverter 存成毫秒
+    private static PeriodComparison query(Connection connection, String sql,
+                                          long previousStart, long start, long end) throws SQLException {
+        List<Long> values = new ArrayList<>();
+        StringBuffer bound = new StringBuffer();
+        Matcher matcher = Pattern.compile(":(\\w+)").matcher(sql);
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            values.add("previousStart".equals(name) ? previousStart : "start".equals(name) ? start : end);
+            matcher.appendReplacement(bound, "?");
+        }
+        matcher.appendTail(bound);
+        try (PreparedStatement statement = connection.prepareStatement(bound.toString())) {
+            for (int i = 0; i < values.size(); i++) {
+                statement.setLong(i + 1, values.get(i));
+            }
+            try (ResultSet rows = statement.executeQuery()) {
+                rows.next();
+                PeriodComparison comparison = new PeriodComparison();
+                comparison.currentCount = rows.getInt("currentCount");
+                comparison.currentTotal = rows.getDouble("currentTotal");
+                comparison.previousCount = rows.getInt("previousCount");
+                comparison.previousTotal = rows.getDouble("previousTotal");
+                return comparison;
+            }
+        }
+    }
+
+    private static PeriodComparison comparison(int currentCount, double currentTotal,
+                                               int previousCount, double previousTotal) {
+        PeriodComparison comparison = new PeriodComparison();
+        comparison.currentCount = currentCount;
+        comparison.currentTotal = currentTotal;
+        comparison.previousCount = previousCount;
+        comparison.previousTotal = previousTotal;
+        return comparison;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.timedisplay.health.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class QuantileSketchTest {
+
+    private static final double MAX_RELATIVE_ERROR = 1.0 / 32;
+    private static final double[] QUANTILES = {0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1};
+
+    @Test
+    public void everyValueMapsToBucketWithinErrorBound() {
+        int previous = -1;
+        for (long value = 0; value <= QuantileSketch.MAX_VALUE; value++) {
+            int bucket = QuantileSketch.bucketOf(value);
+            assertTrue(bucket >= previous && bucket < QuantileSketch.BUCKETS);
+            double estimate = QuantileSketch.valueOf(bucket);
+            if (value < 64) {
+                assertEquals(value, estimate, 0);
+            } else {
+                assertTrue(value + " -> " + estimate, Math.abs(estimate - value) <= value * MAX_RELATIVE_ERROR);
+            }
+            previous = bucket;
+        }
+        assertEquals(QuantileSketch.BUCKETS - 1, QuantileSketch.bucketOf(QuantileSketch.MAX_VALUE));
+    }
+
+    // 超过 MAX_VALUE 的值计入最后一桶，高分位会被低估
+    @Test
+    public void valuesAboveMaxAreClamped() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(10_000, 1);
+        sketch.add(-5, 1);
+        assertEquals(QuantileSketch.valueOf(QuantileSketch.BUCKETS - 1), sketch.quantile(1), 0);
+        assertTrue(sketch.quantile(1) <= QuantileSketch.MAX_VALUE);
+        assertEquals(0, sketch.quantile(0), 0);
+    }
+
+    @Test
+    public void quantilesMatchExactWithinErrorBound() {
+        Random random = new Random(3);
+        for (int trial = 0; trial < 50; trial++) {
+            int n = 1 + random.nextInt(2000);
+            long[] values = new long[n];
+            QuantileSketch sketch = new QuantileSketch();
+            for (int i = 0; i < n; i++) {
+                // 对数均匀分布，覆盖逐分钟区间和各个倍程
+                values[i] = (long) Math.exp(random.nextDouble() * Math.log(QuantileSketch.MAX_VALUE + 1)) - 1;
+                sketch.add(values[i], 1);
+            }
+            Arrays.sort(values);
+            assertEquals(n, sketch.getCount());
+            for (double q : QUANTILES) {
+                long exact = values[(int) Math.max(1, Math.ceil(q * n)) - 1];
+                double estimate = sketch.quantile(q);
+                assertTrue("q=" + q + " exact=" + exact + " estimate=" + estimate,
+                        Math.abs(estimate - exact) <= exact * MAX_RELATIVE_ERROR);
+            }
+        }
+    }
+
+    @Test
+    public void mergeEqualsSketchOfUnion() {
+        Random random = new Random(5);
+        QuantileSketch left = new QuantileSketch();
+        QuantileSketch right = new QuantileSketch();
+        QuantileSketch union = new QuantileSketch();
+        for (int i = 0; i < 5000; i++) {
+            long value = random.nextInt((int) QuantileSketch.MAX_VALUE + 1);
+            (random.nextBoolean() ? left : right).add(value, 1);
+            union.add(value, 1);
+        }
+        left.merge(right);
+        assertEquals(union.getCount(), left.getCount());
+        assertArrayEquals(union.toBytes(), left.toBytes());
+
+        QuantileSketch fromBytes = QuantileSketch.fromBytes(left.toBytes());
+        fromBytes.mergeBytes(null);
+        assertArrayEquals(union.toBytes(), fromBytes.toBytes());
+    }
+
+    @Test
+    public void removingEverythingLeavesEmptySketch() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(480, 1);
+        sketch.add(30, 2);
+        sketch.add(480, -1);
+        sketch.add(30, -2);
+        assertTrue(sketch.isEmpty());
+        assertNull(sketch.toBytes());
+        assertEquals(0, sketch.quantile(0.5), 0);
+    }
+
+    @Test
+    public void bytesRoundTripKeepsEveryBucket() {
+        Random random = new Random(9);
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(random.nextInt(5000), random.nextInt(7) - 2);
+        }
+        byte[] bytes = sketch.toBytes();
+        QuantileSketch copy = QuantileSketch.fromBytes(bytes);
+        assertEquals(sketch.getCount(), copy.getCount());
+        assertArrayEquals(bytes, copy.toBytes());
+        for (double q : QUANTILES) {
+            assertEquals(sketch.quantile(q), copy.quantile(q), 0);
+        }
+        assertTrue(QuantileSketch.fromBytes(null).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownFormatIsRejected() {
+        new QuantileSketch().mergeBytes(new byte[]{99, 0, 2});
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.timedisplay.health.stats;
+
+import com.example.timedisplay.health.database.EpochDay;
+import com.example.timedisplay.health.model.DailyDietTotal;
+import com.example.timedisplay.health.model.DailySummary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+// 逐条记录按本地日分桶（包括夏令时切换的那一周），按日汇总行与逐条累加结果一致，
+// 以及转换成统计时平均值的分母：饮食和运动按天数，睡眠按记录数
+public class DailySeriesTest {
+
+    private TimeZone original;
+
+    @Before
+    public void useZoneWithDaylightSaving() {
+        original = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+    }
+
+    @After
+    public void restoreZone() {
+        TimeZone.setDefault(original);
+    }
+
+    // 2021-03-14 凌晨 2 点切换到夏令时，当天只有 23 小时
+    @Test
+    public void recordsLandOnLocalDayAcrossDaylightSaving() {
+        Date start = local(2021, Calendar.MARCH, 12, 0, 0);
+        Date end = local(2021, Calendar.MARCH, 16, 23, 59);
+        DailySeries series = new DailySeries(start, end);
+        assertEquals(5, series.days);
+        assertEquals(EpochDay.of(start), series.startDay);
+
+        series.addDiet(local(2021, Calendar.MARCH, 14, 0, 5).getTime(), 100, 0, 0, 0);
+        series.addDiet(local(2021, Calendar.MARCH, 14, 23, 55).getTime(), 200, 0, 0, 0);
+        series.addDiet(local(2021, Calendar.MARCH, 15, 0, 5).getTime(), 400, 0, 0, 0);
+        // 区间外的记录被忽略
+        series.addDiet(local(2021, Calendar.MARCH, 11, 23, 59).getTime(), 800, 0, 0, 0);
+        series.addDiet(local(2021, Calendar.MARCH, 17, 0, 0).getTime(), 1600, 0, 0, 0);
+
+        assertArrayEquals(new double[]{0, 0, 300, 400, 0}, series.caloriesIn, 0);
+        assertArrayEquals(new int[]{0, 0, 2, 1, 0}, series.dietCount);
+    }
+
+    @Test
+    public void summaryRowsMatchPerRecordTotals() {
+        Date start = local(2021, Calendar.JUNE, 1, 0, 0);
+        Date end = local(2021, Calendar.JUNE, 3, 23, 59);
+        DailySeries records = new DailySeries(start, end);
+        records.addDiet(local(2021, Calendar.JUNE, 2, 8, 0).getTime(), 350, 12, 50, 8);
+        records.addDiet(local(2021, Calendar.JUNE, 2, 19, 0).getTime(), 650, 30, 70, 20);
+        records.addExercise(local(2021, Calendar.JUNE, 3, 7, 0).getTime(), 250, 40);
+        records.addSleep(local(2021, Calendar.JUNE, 1, 7, 0).getTime(), 420, 4, 2);
+
+        long day = records.startDay;
+        DailySummary diet = new DailySummary(day + 1);
+        diet.setCaloriesIn(1000);
+        diet.setProtein(42);
+        diet.setCarbs(120);
+        diet.setFat(28);
+        diet.setDietCount(2);
+        DailySummary exercise = new DailySummary(day + 2);
+        exercise.setCaloriesBurned(250);
+        exercise.setExerciseMinutes(40);
+        exercise.setExerciseCount(1);
+        DailySummary sleep = new DailySummary(day);
+        sleep.setSleepMinutes(420);
+        sleep.setQualitySum(4);
+        sleep.setWakeUpSum(2);
+        sleep.setSleepCount(1);
+        DailySeries summaries = new DailySeries(start, end);
+        summaries.addSummary(diet);
+        summaries.addSummary(exercise);
+        summaries.addSummary(sleep);
+        summaries.addSummary(new DailySummary(day + 3));
+
+        DailyDietTotal total = new DailyDietTotal();
+        total.epochDay = day + 1;
+        total.calories = 1000;
+        total.protein = 42;
+        total.carbs = 120;
+        total.fat = 28;
+        total.recordCount = 2;
+        DailySeries totals = new DailySeries(start, end);
+        totals.addDietTotal(total);
+
+        for (DailySeries other : new DailySeries[]{summaries, totals}) {
+            assertArrayEquals(records.caloriesIn, other.caloriesIn, 1e-9);
+            assertArrayEquals(records.protein, other.protein, 1e-9);
+            assertArrayEquals(records.carbs, other.carbs, 1e-9);
+            assertArrayEquals(records.fat, other.fat, 1e-9);
+            assertArrayEquals(records.dietCount, other.dietCount);
+        }
+        assertArrayEquals(records.caloriesBurned, summaries.caloriesBurned, 1e-9);
+        assertArrayEquals(records.exerciseMinutes, summaries.exerciseMinutes);
+        assertArrayEquals(records.exerciseCount, summaries.exerciseCount);
+        assertArrayEquals(records.sleepMinutes, summaries.sleepMinutes);
+        assertArrayEquals(records.qualitySum, summaries.qualitySum);
+        assertArrayEquals(records.wakeUpSum, summaries.wakeUpSum);
+        assertArrayEquals(records.sleepCount, summaries.sleepCount);
+    }
+
+    @Test
+    public void statsAverageOverDaysAndSleepOverRecords() {
+        DailySeries series = new DailySeries(20000, 4);
+        long day0 = EpochDay.toStartMillis(20000);
+        series.addDiet(day0 + 3600_000L, 800, 0, 0, 0);
+        series.addExercise(day0 + 3600_000L, 200, 60);
+        // 第二天两条睡眠，第四天一条
+        series.addSleep(EpochDay.toStartMillis(20001) + 3600_000L, 480, 5, 1);
+        series.addSleep(EpochDay.toStartMillis(20001) + 7200_000L, 60, 3, 0);
+        series.addSleep(EpochDay.toStartMillis(20003) + 3600_000L, 360, 4, 2);
+
+        HealthStatistics.ComprehensiveStats stats = series.toComprehensiveStats(
+                EpochDay.toDate(20000), EpochDay.toDate(20003), "周");
+        assertEquals(200, stats.dietStats.avgCaloriesPerDay, 1e-9);
+        assertEquals(1, stats.dietStats.recordCount);
+        assertEquals(4, stats.dietStats.dates.length);
+        assertEquals(50, stats.exerciseStats.avgCaloriesPerDay, 1e-9);
+        assertEquals(15, stats.exerciseStats.avgDurationPerDay);
+
+        assertEquals(3, stats.sleepStats.recordCount);
+        assertEquals(5, stats.sleepStats.avgDurationHours, 1e-9);
+        assertEquals(4, stats.sleepStats.avgQualityScore, 1e-9);
+        assertEquals(1, stats.sleepStats.avgWakeUpCount, 1e-9);
+        assertArrayEquals(new double[]{0, 4.5, 0, 6}, stats.sleepStats.dailyDuration, 1e-9);
+        assertArrayEquals(new double[]{0, 4, 0, 4}, stats.sleepStats.dailyQuality, 1e-9);
+    }
+
+    private static Date local(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute);
+        return calendar.getTime();
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.timedisplay.health.stats;
+
+import com.example.timedisplay.health.database.EpochDay;
+import com.example.timedisplay.health.model.DailySummary;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+// 随机增量（包括构建范围之前和预留容量之后、触发扩容的日子）套用到索引上，
+// 任意区间的总计和逐日数组与按当前全部汇总行逐天相加的结果比较
+public class DailyTotalsIndexTest {
+
+    private static final long TODAY = 20000;
+    private static final double EPSILON = 1e-6;
+
+    @Test
+    public void rangesMatchBruteForceAfterResize() {
+        Random random = new Random(13);
+        TreeMap<Long, DailySummary> rows = new TreeMap<>();
+        for (int i = 0; i < 200; i++) {
+            addTo(rows, randomDelta(random, TODAY - 400 + random.nextInt(401)));
+        }
+        DailyTotalsIndex index = new DailyTotalsIndex(null);
+        index.load(new ArrayList<>(rows.values()), TODAY, 0);
+        assertRangesMatch(random, index, rows);
+
+        long sequence = 0;
+        for (int step = 0; step < 300; step++) {
+            long day;
+            int where = random.nextInt(10);
+            if (where == 0) {
+                // 最早一天之前，扩容时起始日前移
+                day = rows.firstKey() - 1 - random.nextInt(800);
+            } else if (where == 1) {
+                // 预留的一年之后
+                day = rows.lastKey() + 1 + random.nextInt(800);
+            } else {
+                day = rows.firstKey() + random.nextInt((int) (rows.lastKey() - rows.firstKey() + 1));
+            }
+            List<DailySummary> deltas = new ArrayList<>();
+            deltas.add(randomDelta(random, day));
+            if (random.nextBoolean() && rows.containsKey(day - 1)) {
+                deltas.add(negate(rows.get(day - 1)));
+            }
+            for (DailySummary delta : deltas) {
+                addTo(rows, delta);
+            }
+            index.applyDeltas(deltas, ++sequence);
+            if (step % 10 == 0) {
+                assertRangesMatch(random, index, rows);
+            }
+        }
+        assertRangesMatch(random, index, rows);
+    }
+
+    @Test
+    public void queryBeforeLoadReturnsNull() {
+        DailyTotalsIndex index = new DailyTotalsIndex(null);
+        assertNull(index.query(date(TODAY), date(TODAY), ""));
+        index.load(Collections.<DailySummary>emptyList(), TODAY, 0);
+        DailyTotalsIndex.Range range = index.query(date(TODAY - 6), date(TODAY), "");
+        assertNotNull(range);
+        assertEquals(0, range.stats.dietStats.totalCalories, 0);
+        assertEquals(7, range.stats.dietStats.dailyCalories.length);
+    }
+
+    // 构建前收到的增量：序号不大于快照的已包含在快照里，只补上之后的；构建后旧序号的增量被丢弃
+    @Test
+    public void deltasBeforeLoadAreFilteredBySnapshotSequence() {
+        DailyTotalsIndex index = new DailyTotalsIndex(null);
+        final List<Long> versions = new ArrayList<>();
+        index.addListener((deltas, version) -> versions.add(version));
+
+        index.applyDeltas(Collections.singletonList(calories(TODAY, 100)), 4);
+        index.applyDeltas(Collections.singletonList(calories(TODAY, 20)), 5);
+        index.applyDeltas(Collections.singletonList(calories(TODAY, 3)), 6);
+        index.load(Collections.singletonList(calories(TODAY, 120)), TODAY, 5);
+
+        DailyTotalsIndex.Range range = index.query(date(TODAY), date(TODAY), "");
+        assertEquals(123, range.stats.dietStats.totalCalories, EPSILON);
+        assertEquals(6, range.version);
+
+        index.applyDeltas(Collections.singletonList(calories(TODAY, 1000)), 6);
+        index.applyDeltas(Collections.singletonList(calories(TODAY, 7)), 7);
+        range = index.query(date(TODAY), date(TODAY), "");
+        assertEquals(130, range.stats.dietStats.totalCalories, EPSILON);
+        assertEquals(7, range.version);
+        assertEquals(2, versions.size());
+        assertEquals(6L, (long) versions.get(0));
+        assertEquals(7L, (long) versions.get(1));
+    }
+
+    private void assertRangesMatch(Random random, DailyTotalsIndex index, TreeMap<Long, DailySummary> rows) {
+        long first = rows.firstKey() - 30;
+        int span = (int) (rows.lastKey() - first + 60);
+        for (int i = 0; i < 20; i++) {
+            long startDay = first + random.nextInt(span);
+            long endDay = startDay + random.nextInt(120);
+            Date start = date(startDay);
+            Date end = new Date(EpochDay.toStartMillis(endDay + 1) - 1);
+            DailySeries expected = new DailySeries(start, end);
+            for (DailySummary row : rows.subMap(startDay, true, endDay, true).values()) {
+                expected.addSummary(row);
+            }
+            DailyTotalsIndex.Range range = index.query(start, end, "");
+            assertSeries(expected, range.series);
+            assertStats(expected.toComprehensiveStats(start, end, ""), range.stats);
+        }
+    }
+
+    private static void assertSeries(DailySeries expected, DailySeries actual) {
+        assertEquals(expected.startDay, actual.startDay);
+        assertArrayEquals(expected.caloriesIn, actual.caloriesIn, EPSILON);
+        assertArrayEquals(expected.protein, actual.protein, EPSILON);
+        assertArrayEquals(expected.dietCount, actual.dietCount);
+        assertArrayEquals(expected.caloriesBurned, actual.caloriesBurned, EPSILON);
+        assertArrayEquals(expected.exerciseMinutes, actual.exerciseMinutes);
+        assertArrayEquals(expected.sleepMinutes, actual.sleepMinutes);
+        assertArrayEquals(expected.wakeUpSum, actual.wakeUpSum);
+        assertArrayEquals(expected.sleepCount, actual.sleepCount);
+    }
+
+    private static void assertStats(HealthStatistics.ComprehensiveStats expected,
+                                    HealthStatistics.ComprehensiveStats actual) {
+        assertEquals(expected.dietStats.recordCount, actual.dietStats.recordCount);
+        assertEquals(expected.dietStats.totalCalories, actual.dietStats.totalCalories, EPSILON);
+        assertEquals(expected.dietStats.totalProtein, actual.dietStats.totalProtein, EPSILON);
+        assertEquals(expected.dietStats.totalCarbs, actual.dietStats.totalCarbs, EPSILON);
+        assertEquals(expected.dietStats.totalFat, actual.dietStats.totalFat, EPSILON);
+        assertEquals(expected.dietStats.avgCaloriesPerDay, actual.dietStats.avgCaloriesPerDay, EPSILON);
+        assertArrayEquals(expected.dietStats.dailyCalories, actual.dietStats.dailyCalories, EPSILON);
+        assertArrayEquals(expected.dietStats.dates, actual.dietStats.dates);
+
+        assertEquals(expected.exerciseStats.recordCount, actual.exerciseStats.recordCount);
+        assertEquals(expected.exerciseStats.totalCaloriesBurned, actual.exerciseStats.totalCaloriesBurned, EPSILON);
+        assertEquals(expected.exerciseStats.totalDurationMinutes, actual.exerciseStats.totalDurationMinutes);
+        assertEquals(expected.exerciseStats.avgDurationPerDay, actual.exerciseStats.avgDurationPerDay);
+        assertArrayEquals(expected.exerciseStats.dailyCalories, actual.exerciseStats.dailyCalories, EPSILON);
+        assertArrayEquals(expected.exerciseStats.dailyDuration, actual.exerciseStats.dailyDuration);
+        assertArrayEquals(expected.exerciseStats.dates, actual.exerciseStats.dates);
+
+        assertEquals(expected.sleepStats.recordCount, actual.sleepStats.recordCount);
+        assertEquals(expected.sleepStats.totalWakeUpCount, actual.sleepStats.totalWakeUpCount);
+        assertEquals(expected.sleepStats.avgDurationHours, actual.sleepStats.avgDurationHours, EPSILON);
+        assertEquals(expected.sleepStats.avgQualityScore, actual.sleepStats.avgQualityScore, EPSILON);
+        assertArrayEquals(expected.sleepStats.dailyDuration, actual.sleepStats.dailyDuration, EPSILON);
+        assertArrayEquals(expected.sleepStats.dailyQuality, actual.sleepStats.dailyQuality, EPSILON);
+        assertArrayEquals(expected.sleepStats.dates, actual.sleepStats.dates);
+    }
+
+    // 每个增量代表当天新增一两条记录，计数和数值保持非负
+    private static DailySummary randomDelta(Random random, long day) {
+        DailySummary delta = new DailySummary(day);
+        int diet = random.nextInt(3);
+        delta.setDietCount(diet);
+        delta.setCaloriesIn(diet * random.nextInt(8000) / 10.0);
+        delta.setProtein(diet * random.nextInt(500) / 10.0);
+        delta.setCarbs(diet * random.nextInt(1000) / 10.0);
+        delta.setFat(diet * random.nextInt(300) / 10.0);
+        int exercise = random.nextInt(2);
+        delta.setExerciseCount(exercise);
+        delta.setCaloriesBurned(exercise * random.nextInt(6000) / 10.0);
+        delta.setExerciseMinutes(exercise * random.nextInt(120));
+        int sleep = random.nextInt(2);
+        delta.setSleepCount(sleep);
+        delta.setSleepMinutes(sleep * (240 + random.nextInt(360)));
+        delta.setQualitySum(sleep * random.nextInt(6));
+        delta.setWakeUpSum(sleep * random.nextInt(5));
+        return delta;
+    }
+
+    // 删除当天全部记录
+    private static DailySummary negate(DailySummary row) {
+        DailySummary delta = new DailySummary(row.getEpochDay());
+        delta.setCaloriesIn(-row.getCaloriesIn());
+        delta.setProtein(-row.getProtein());
+        delta.setCarbs(-row.getCarbs());
+        delta.setFat(-row.getFat());
+        delta.setDietCount(-row.getDietCount());
+        delta.setCaloriesBurned(-row.getCaloriesBurned());
+        delta.setExerciseMinutes(-row.getExerciseMinutes());
+        delta.setExerciseCount(-row.getExerciseCount());
+        delta.setSleepMinutes(-row.getSleepMinutes());
+        delta.setQualitySum(-row.getQualitySum());
+        delta.setWakeUpSum(-row.getWakeUpSum());
+        delta.setSleepCount(-row.getSleepCount());
+        return delta;
+    }
+
+    private static void addTo(TreeMap<Long, DailySummary> rows, DailySummary delta) {
+        DailySummary row = rows.get(delta.getEpochDay());
+        if (row == null) {
+            row = new DailySummary(delta.getEpochDay());
+            rows.put(delta.getEpochDay(), row);
+        }
+        row.setCaloriesIn(row.getCaloriesIn() + delta.getCaloriesIn());
+        row.setProtein(row.getProtein() + delta.getProtein());
+        row.setCarbs(row.getCarbs() + delta.getCarbs());
+        row.setFat(row.getFat() + delta.getFat());
+        row.setDietCount(row.getDietCount() + delta.getDietCount());
+        row.setCaloriesBurned(row.getCaloriesBurned() + delta.getCaloriesBurned());
+        row.setExerciseMinutes(row.getExerciseMinutes() + delta.getExerciseMinutes());
+        row.setExerciseCount(row.getExerciseCount() + delta.getExerciseCount());
+        row.setSleepMinutes(row.getSleepMinutes() + delta.getSleepMinutes());
+        row.setQualitySum(row.getQualitySum() + delta.getQualitySum());
+        row.setWakeUpSum(row.getWakeUpSum() + delta.getWakeUpSum());
+        row.setSleepCount(row.getSleepCount() + delta.getSleepCount());
+    }
+
+    private static DailySummary calories(long day, double calories) {
+        DailySummary summary = new DailySummary(day);
+        summary.setCaloriesIn(calories);
+        summary.setDietCount(1);
+        return summary;
+    }
+
+    private static Date date(long epochDay) {
+        return new Date(EpochDay.toStartMillis(epochDay));
+    }
+}
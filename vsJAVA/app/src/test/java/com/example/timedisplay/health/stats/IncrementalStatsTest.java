@@ -0,0 +1,235 @@
+package com.example.timedisplay.health.stats;
+
+import com.example.timedisplay.health.database.EpochDay;
+import com.example.timedisplay.health.model.DailySummary;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+// 随机增、改、删记录，按 HealthDao.apply*Summary 的方式生成按天合并的增量喂给 IncrementalStats，
+// 每一步都与用当前全部记录重新计算的结果比较
+public class IncrementalStatsTest {
+
+    private static final long START_DAY = 19723; // 2024-01-01
+    private static final int DAYS = 31;
+    private static final double EPSILON = 1e-6;
+
+    private static final int DIET = 0;
+    private static final int EXERCISE = 1;
+    private static final int SLEEP = 2;
+
+    private static class Record {
+        int kind;
+        long time;
+        double calories;
+        double protein;
+        double carbs;
+        double fat;
+        long minutes;
+        int quality;
+        int wakeUps;
+    }
+
+    private final Date startDate = new Date(EpochDay.toStartMillis(START_DAY));
+    private final Date endDate = new Date(EpochDay.toStartMillis(START_DAY + DAYS) - 1);
+
+    @Test
+    public void incrementalMatchesFullRecompute() {
+        for (long seed = 1; seed <= 20; seed++) {
+            runSequence(new Random(seed), 400);
+        }
+    }
+
+    @Test
+    public void deletingEverythingResetsAverages() {
+        Random random = new Random(7);
+        List<Record> records = new ArrayList<>();
+        IncrementalStats incremental = new IncrementalStats(new DailySeries(startDate, endDate), startDate, endDate, "");
+        for (int i = 0; i < 50; i++) {
+            Record record = randomRecord(random);
+            records.add(record);
+            applyAll(incremental, deltas(null, record));
+        }
+        while (!records.isEmpty()) {
+            Record removed = records.remove(records.size() - 1);
+            applyAll(incremental, deltas(removed, null));
+            assertMatches(recompute(records), incremental.getStats());
+        }
+        assertEquals(0, incremental.getStats().sleepStats.recordCount);
+        assertEquals(0, incremental.getStats().sleepStats.avgDurationHours, 0);
+        assertEquals(0, incremental.getStats().dietStats.totalCalories, EPSILON);
+    }
+
+    @Test
+    public void deltaOutsideRangeIsRejected() {
+        IncrementalStats incremental = new IncrementalStats(new DailySeries(startDate, endDate), startDate, endDate, "");
+        DailySummary before = new DailySummary(START_DAY - 1);
+        before.setCaloriesIn(100);
+        before.setDietCount(1);
+        DailySummary after = new DailySummary(START_DAY + DAYS);
+        after.setSleepCount(1);
+        assertFalse(incremental.apply(before));
+        assertFalse(incremental.apply(after));
+        assertEquals(0, incremental.getStats().dietStats.recordCount);
+    }
+
+    private void runSequence(Random random, int steps) {
+        List<Record> records = new ArrayList<>();
+        // 从非空的初始数据开始，检验构造时的总计
+        for (int i = 0; i < 20; i++) {
+            records.add(randomRecord(random));
+        }
+        IncrementalStats incremental = new IncrementalStats(load(records), startDate, endDate, "");
+        assertMatches(recompute(records), incremental.getStats());
+
+        for (int step = 0; step < steps; step++) {
+            int op = random.nextInt(3);
+            if (op == 0 || records.isEmpty()) {
+                Record added = randomRecord(random);
+                records.add(added);
+                applyAll(incremental, deltas(null, added));
+            } else if (op == 1) {
+                int index = random.nextInt(records.size());
+                Record old = records.get(index);
+                Record edited = randomRecord(random);
+                edited.kind = old.kind;
+                // 一半的编辑留在同一天，另一半换到别的日子
+                if (random.nextBoolean()) {
+                    edited.time = old.time;
+                }
+                records.set(index, edited);
+                applyAll(incremental, deltas(old, edited));
+            } else {
+                Record removed = records.remove(random.nextInt(records.size()));
+                applyAll(incremental, deltas(removed, null));
+            }
+            assertMatches(recompute(records), incremental.getStats());
+        }
+    }
+
+    // 时间落在区间前后各 3 天内，覆盖区间外的增量
+    private Record randomRecord(Random random) {
+        Record record = new Record();
+        record.kind = random.nextInt(3);
+        long day = START_DAY - 3 + random.nextInt(DAYS + 6);
+        record.time = EpochDay.toStartMillis(day) + random.nextInt((int) EpochDay.MILLIS_PER_DAY);
+        record.calories = random.nextInt(8000) / 10.0;
+        record.protein = random.nextInt(500) / 10.0;
+        record.carbs = random.nextInt(1000) / 10.0;
+        record.fat = random.nextInt(300) / 10.0;
+        record.minutes = random.nextInt(600);
+        record.quality = random.nextInt(6);
+        record.wakeUps = random.nextInt(5);
+        return record;
+    }
+
+    // 与一次写事务相同：旧记录记 -1，新记录记 +1，同一天的调整合并成一条
+    private List<DailySummary> deltas(Record old, Record updated) {
+        Map<Long, DailySummary> pending = new LinkedHashMap<>();
+        if (old != null) {
+            adjust(pending, old, -1);
+        }
+        if (updated != null) {
+            adjust(pending, updated, 1);
+        }
+        return new ArrayList<>(pending.values());
+    }
+
+    private void adjust(Map<Long, DailySummary> pending, Record record, int sign) {
+        long day = EpochDay.of(record.time);
+        DailySummary delta = pending.get(day);
+        if (delta == null) {
+            delta = new DailySummary(day);
+            pending.put(day, delta);
+        }
+        switch (record.kind) {
+            case DIET:
+                delta.setCaloriesIn(delta.getCaloriesIn() + sign * record.calories);
+                delta.setProtein(delta.getProtein() + sign * record.protein);
+                delta.setCarbs(delta.getCarbs() + sign * record.carbs);
+                delta.setFat(delta.getFat() + sign * record.fat);
+                delta.setDietCount(delta.getDietCount() + sign);
+                break;
+            case EXERCISE:
+                delta.setCaloriesBurned(delta.getCaloriesBurned() + sign * record.calories);
+                delta.setExerciseMinutes(delta.getExerciseMinutes() + sign * record.minutes);
+                delta.setExerciseCount(delta.getExerciseCount() + sign);
+                break;
+            default:
+                delta.setSleepMinutes(delta.getSleepMinutes() + sign * record.minutes);
+                delta.setQualitySum(delta.getQualitySum() + sign * record.quality);
+                delta.setWakeUpSum(delta.getWakeUpSum() + sign * record.wakeUps);
+                delta.setSleepCount(delta.getSleepCount() + sign);
+                break;
+        }
+    }
+
+    private void applyAll(IncrementalStats incremental, List<DailySummary> deltas) {
+        for (DailySummary delta : deltas) {
+            long index = delta.getEpochDay() - START_DAY;
+            assertEquals(index >= 0 && index < DAYS, incremental.apply(delta));
+        }
+    }
+
+    private DailySeries load(List<Record> records) {
+        DailySeries series = new DailySeries(startDate, endDate);
+        for (Record record : records) {
+            switch (record.kind) {
+                case DIET:
+                    series.addDiet(record.time, record.calories, record.protein, record.carbs, record.fat);
+                    break;
+                case EXERCISE:
+                    series.addExercise(record.time, record.calories, record.minutes);
+                    break;
+                default:
+                    series.addSleep(record.time, record.minutes, record.quality, record.wakeUps);
+                    break;
+            }
+        }
+        return series;
+    }
+
+    private HealthStatistics.ComprehensiveStats recompute(List<Record> records) {
+        return load(records).toComprehensiveStats(startDate, endDate, "");
+    }
+
+    private static void assertMatches(HealthStatistics.ComprehensiveStats expected,
+                                      HealthStatistics.ComprehensiveStats actual) {
+        HealthStatistics.DietStats diet = actual.dietStats;
+        assertEquals(expected.dietStats.recordCount, diet.recordCount);
+        assertEquals(expected.dietStats.totalCalories, diet.totalCalories, EPSILON);
+        assertEquals(expected.dietStats.totalProtein, diet.totalProtein, EPSILON);
+        assertEquals(expected.dietStats.totalCarbs, diet.totalCarbs, EPSILON);
+        assertEquals(expected.dietStats.totalFat, diet.totalFat, EPSILON);
+        assertEquals(expected.dietStats.avgCaloriesPerDay, diet.avgCaloriesPerDay, EPSILON);
+        assertArrayEquals(expected.dietStats.dailyCalories, diet.dailyCalories, EPSILON);
+
+        HealthStatistics.ExerciseStats exercise = actual.exerciseStats;
+        assertEquals(expected.exerciseStats.recordCount, exercise.recordCount);
+        assertEquals(expected.exerciseStats.totalCaloriesBurned, exercise.totalCaloriesBurned, EPSILON);
+        assertEquals(expected.exerciseStats.totalDurationMinutes, exercise.totalDurationMinutes);
+        assertEquals(expected.exerciseStats.avgCaloriesPerDay, exercise.avgCaloriesPerDay, EPSILON);
+        assertEquals(expected.exerciseStats.avgDurationPerDay, exercise.avgDurationPerDay);
+        assertArrayEquals(expected.exerciseStats.dailyCalories, exercise.dailyCalories, EPSILON);
+        assertArrayEquals(expected.exerciseStats.dailyDuration, exercise.dailyDuration);
+
+        HealthStatistics.SleepStats sleep = actual.sleepStats;
+        assertEquals(expected.sleepStats.recordCount, sleep.recordCount);
+        assertEquals(expected.sleepStats.totalWakeUpCount, sleep.totalWakeUpCount);
+        assertEquals(expected.sleepStats.avgDurationHours, sleep.avgDurationHours, EPSILON);
+        assertEquals(expected.sleepStats.avgQualityScore, sleep.avgQualityScore, EPSILON);
+        assertEquals(expected.sleepStats.avgWakeUpCount, sleep.avgWakeUpCount, EPSILON);
+        assertArrayEquals(expected.sleepStats.dailyDuration, sleep.dailyDuration, EPSILON);
+        assertArrayEquals(expected.sleepStats.dailyQuality, sleep.dailyQuality, EPSILON);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.timedisplay.health.stats;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+// 不经过 InvalidationTracker，直接以表名集合调用失效入口：只清对应类别、
+// 计算期间表变化的结果不写入、按访问顺序淘汰，以及命中和失效计数
+public class StatisticsCacheTest {
+
+    private static final long START = 1_600_000_000_000L;
+    private static final long END = START + 7 * 86_400_000L;
+
+    @Test
+    public void invalidationClearsOnlyChangedCategory() {
+        StatisticsCache cache = new StatisticsCache();
+        StatisticsCache.Result diet = result(3);
+        StatisticsCache.Result sleep = result(5);
+        cache.put(StatisticsCache.CATEGORY_DIET, START, END, cache.generation(StatisticsCache.CATEGORY_DIET), diet);
+        cache.put(StatisticsCache.CATEGORY_SLEEP, START, END, cache.generation(StatisticsCache.CATEGORY_SLEEP), sleep);
+
+        cache.invalidate(Collections.singleton("diet_records"));
+        assertNull(cache.get(StatisticsCache.CATEGORY_DIET, START, END));
+        assertSame(sleep, cache.get(StatisticsCache.CATEGORY_SLEEP, START, END));
+
+        // 一次通知里多张表
+        cache.invalidate(new HashSet<>(Arrays.asList("exercise_records", "sleep_records")));
+        assertNull(cache.get(StatisticsCache.CATEGORY_SLEEP, START, END));
+    }
+
+    // 取代号之后表被改过，旧代号的结果不能写入；用新代号重新计算的可以
+    @Test
+    public void resultComputedBeforeInvalidationIsDropped() {
+        StatisticsCache cache = new StatisticsCache();
+        long generation = cache.generation(StatisticsCache.CATEGORY_EXERCISE);
+        cache.invalidate(Collections.singleton("exercise_records"));
+        cache.put(StatisticsCache.CATEGORY_EXERCISE, START, END, generation, result(1));
+        assertNull(cache.get(StatisticsCache.CATEGORY_EXERCISE, START, END));
+
+        // 其它类别的变化不影响本类别的代号
+        generation = cache.generation(StatisticsCache.CATEGORY_EXERCISE);
+        cache.invalidate(Collections.singleton("diet_records"));
+        cache.put(StatisticsCache.CATEGORY_EXERCISE, START, END, generation, result(2));
+        assertNotNull(cache.get(StatisticsCache.CATEGORY_EXERCISE, START, END));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        StatisticsCache cache = new StatisticsCache();
+        long generation = cache.generation(StatisticsCache.CATEGORY_DIET);
+        for (int i = 0; i < 32; i++) {
+            cache.put(StatisticsCache.CATEGORY_DIET, START + i, END, generation, result(i));
+        }
+        // 访问最早的一条，下一次写入淘汰的是第二条
+        assertNotNull(cache.get(StatisticsCache.CATEGORY_DIET, START, END));
+        cache.put(StatisticsCache.CATEGORY_DIET, START + 32, END, generation, result(32));
+        assertNotNull(cache.get(StatisticsCache.CATEGORY_DIET, START, END));
+        assertNull(cache.get(StatisticsCache.CATEGORY_DIET, START + 1, END));
+        assertNotNull(cache.get(StatisticsCache.CATEGORY_DIET, START + 32, END));
+    }
+
+    // 没有清掉任何条目的通知不计入失效次数
+    @Test
+    public void countersTrackHitsMissesAndInvalidations() {
+        StatisticsCache cache = new StatisticsCache();
+        cache.invalidate(Collections.singleton("diet_records"));
+        cache.get(StatisticsCache.CATEGORY_DIET, START, END);
+        cache.put(StatisticsCache.CATEGORY_DIET, START, END, cache.generation(StatisticsCache.CATEGORY_DIET), result(1));
+        cache.get(StatisticsCache.CATEGORY_DIET, START, END);
+        cache.get(StatisticsCache.CATEGORY_DIET, START, END);
+        cache.invalidate(Collections.singleton("diet_records"));
+
+        String description = cache.describe();
+        assertTrue(description, description.contains("命中 2,"));
+        assertTrue(description, description.contains("未命中 1,"));
+        assertTrue(description, description.contains("失效 1,"));
+        assertTrue(description, description.contains("条目 0/32"));
+
+        cache.resetCounters();
+        description = cache.describe();
+        assertTrue(description, description.contains("命中 0,"));
+        assertTrue(description, description.contains("失效 0,"));
+    }
+
+    private static StatisticsCache.Result result(int count) {
+        return new StatisticsCache.Result(count, count * 100.0, "→", Collections.singletonList((float) count));
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.timedisplay.health.stats;
+
+import android.database.Cursor;
+
+import com.example.timedisplay.health.database.EpochDay;
+import com.example.timedisplay.health.database.HealthDao;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+// 在固定种子生成的十年数据上对比 streamComprehensiveStats（串行）和 StatisticsService（三类并行）的耗时。
+// 数据写进 WAL 模式的 sqlite-jdbc 文件库，执行 HealthDao 里同一份 *_ROWS_BETWEEN 查询，
+// 每个线程一个连接，与 Room 的读连接池相同，测的是查询加累加的整条路径。
+// 数字打印到标准输出，断言只检查两种方式结果一致
+public class StatisticsParallelBenchmarkTest {
+
+    private static final long START_DAY = 16436; // 2015-01-01
+    private static final int DAYS = 3653;
+    private static final int DIET_PER_DAY = 6;
+    private static final int EXERCISE_PER_DAY = 2;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+
+    private static File file;
+    private static Date startDate;
+    private static Date endDate;
+    private static HealthDao dao;
+    private static ExecutorService pool;
+    private static final List<Connection> connections = new ArrayList<>();
+    private static final ThreadLocal<Connection> connection = new ThreadLocal<Connection>() {
+        @Override
+        protected Connection initialValue() {
+            try {
+                Connection c = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+                synchronized (connections) {
+                    connections.add(c);
+                }
+                return c;
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE diet_records (id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, intakeTime INTEGER, "
+                    + "calories REAL NOT NULL, protein REAL NOT NULL, carbs REAL NOT NULL, fat REAL NOT NULL, "
+                    + "epochDay INTEGER NOT NULL)",
+            "CREATE INDEX index_diet_records_intakeTime ON diet_records (intakeTime)",
+            "CREATE TABLE exercise_records (id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, startTime INTEGER, "
+                    + "durationMinutes INTEGER NOT NULL, caloriesBurned REAL NOT NULL, epochDay INTEGER NOT NULL)",
+            "CREATE INDEX index_exercise_records_startTime ON exercise_records (startTime)",
+            "CREATE TABLE sleep_records (id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, recordDate INTEGER, "
+                    + "durationMinutes INTEGER NOT NULL, sleepQuality INTEGER, wakeUpCount INTEGER NOT NULL, "
+                    + "epochDay INTEGER NOT NULL)",
+            "CREATE INDEX index_sleep_records_recordDate ON sleep_records (recordDate)",
+    };
+
+    @BeforeClass
+    public static void generate() throws Exception {
+        file = File.createTempFile("stats-benchmark", ".db");
+        startDate = new Date(EpochDay.toStartMillis(START_DAY));
+        endDate = new Date(EpochDay.toStartMillis(START_DAY + DAYS) - 1);
+
+        Connection c = connection.get();
+        try (Statement statement = c.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            for (String sql : SCHEMA) {
+                statement.execute(sql);
+            }
+        }
+        c.setAutoCommit(false);
+        Random random = new Random(42);
+        try (PreparedStatement diet = c.prepareStatement("INSERT INTO diet_records "
+                + "(intakeTime, calories, protein, carbs, fat, epochDay) VALUES (?, ?, ?, ?, ?, ?)");
+             PreparedStatement exercise = c.prepareStatement("INSERT INTO exercise_records "
+                     + "(startTime, caloriesBurned, durationMinutes, epochDay) VALUES (?, ?, ?, ?)");
+             PreparedStatement sleep = c.prepareStatement("INSERT INTO sleep_records "
+                     + "(recordDate, durationMinutes, sleepQuality, wakeUpCount, epochDay) VALUES (?, ?, ?, ?, ?)")) {
+            for (int day = 0; day < DAYS; day++) {
+                long epochDay = START_DAY + day;
+                long dayStart = EpochDay.toStartMillis(epochDay);
+                for (int j = 0; j < DIET_PER_DAY; j++) {
+                    diet.setLong(1, dayStart + random.nextInt((int) EpochDay.MILLIS_PER_DAY));
+                    diet.setDouble(2, 100 + random.nextInt(700));
+                    diet.setDouble(3, random.nextInt(40));
+                    diet.setDouble(4, random.nextInt(100));
+                    diet.setDouble(5, random.nextInt(30));
+                    diet.setLong(6, epochDay);
+                    diet.addBatch();
+                }
+                for (int j = 0; j < EXERCISE_PER_DAY; j++) {
+                    exercise.setLong(1, dayStart + random.nextInt((int) EpochDay.MILLIS_PER_DAY));
+                    exercise.setDouble(2, 50 + random.nextInt(500));
+                    exercise.setLong(3, 10 + random.nextInt(90));
+                    exercise.setLong(4, epochDay);
+                    exercise.addBatch();
+                }
+                sleep.setLong(1, dayStart + random.nextInt((int) EpochDay.MILLIS_PER_DAY));
+                sleep.setLong(2, 300 + random.nextInt(240));
+                sleep.setInt(3, random.nextInt(6));
+                sleep.setInt(4, random.nextInt(4));
+                sleep.setLong(5, epochDay);
+                sleep.addBatch();
+            }
+            diet.executeBatch();
+            exercise.executeBatch();
+            sleep.executeBatch();
+        }
+        c.commit();
+        c.setAutoCommit(true);
+
+        dao = (HealthDao) Proxy.newProxyInstance(HealthDao.class.getClassLoader(),
+                new Class<?>[]{HealthDao.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getFirstUnarchivedDay":
+                            return 0L;
+                        case "streamDietRecordsBetween":
+                            return query(HealthDao.DIET_ROWS_BETWEEN, args);
+                        case "streamExerciseRecordsBetween":
+                            return query(HealthDao.EXERCISE_ROWS_BETWEEN, args);
+                        case "streamSleepRecordsBetween":
+                            return query(HealthDao.SLEEP_ROWS_BETWEEN, args);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        pool = Executors.newFixedThreadPool(3);
+    }
+
+    @AfterClass
+    public static void shutdown() throws SQLException {
+        pool.shutdownNow();
+        synchronized (connections) {
+            for (Connection c : connections) {
+                c.close();
+            }
+        }
+        new File(file.getPath() + "-wal").delete();
+        new File(file.getPath() + "-shm").delete();
+        file.delete();
+    }
+
+    @Test
+    public void parallelMatchesSerial() throws Exception {
+        StatisticsService service = new StatisticsService(dao, pool);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            HealthStatistics.streamComprehensiveStats(dao, startDate, endDate, "");
+            service.compute(startDate, endDate, "", 0);
+        }
+        long serialNanos = 0;
+        long parallelNanos = 0;
+        HealthStatistics.ComprehensiveStats serial = null;
+        HealthStatistics.ComprehensiveStats parallel = null;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            serial = HealthStatistics.streamComprehensiveStats(dao, startDate, endDate, "");
+            serialNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            parallel = service.compute(startDate, endDate, "", 0);
+            parallelNanos += System.nanoTime() - start;
+        }
+
+        assertEquals(DAYS * DIET_PER_DAY, serial.dietStats.recordCount);
+        assertEquals(serial.dietStats.recordCount, parallel.dietStats.recordCount);
+        assertArrayEquals(serial.dietStats.dailyCalories, parallel.dietStats.dailyCalories, 1e-9);
+        assertEquals(serial.exerciseStats.totalDurationMinutes, parallel.exerciseStats.totalDurationMinutes);
+        assertArrayEquals(serial.exerciseStats.dailyCalories, parallel.exerciseStats.dailyCalories, 1e-9);
+        assertEquals(serial.sleepStats.avgDurationHours, parallel.sleepStats.avgDurationHours, 1e-9);
+        assertArrayEquals(serial.sleepStats.dailyQuality, parallel.sleepStats.dailyQuality, 1e-9);
+
+        double serialMs = serialNanos / 1e6 / ROUNDS;
+        double parallelMs = parallelNanos / 1e6 / ROUNDS;
+        System.out.println(String.format(Locale.ROOT,
+                "stats benchmark: %d days, %d rows, %d rounds, %d cpus, serial %.2fms, parallel %.2fms, speedup %.2fx",
+                DAYS, DAYS * (DIET_PER_DAY + EXERCISE_PER_DAY + 1), ROUNDS,
+                Runtime.getRuntime().availableProcessors(), serialMs, parallelMs, serialMs / parallelMs));
+    }
+
+    // Room 生成的查询把具名参数按出现顺序换成 ?，这里同样处理；Date 按 DateConverter 存成毫秒
+    private static Cursor query(String sql, Object[] args) throws SQLException {
+        PreparedStatement statement = connection.get().prepareStatement(sql.replaceAll(":\\w+", "?"));
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            statement.setLong(i + 1, arg instanceof Date ? ((Date) arg).getTime() : (Long) arg);
+        }
+        ResultSet rows = statement.executeQuery();
+        int[] position = {-1};
+        return (Cursor) Proxy.newProxyInstance(Cursor.class.getClassLoader(),
+                new Class<?>[]{Cursor.class}, (proxy, method, cursorArgs) -> {
+                    switch (method.getName()) {
+                        case "moveToNext":
+                            position[0]++;
+                            return rows.next();
+                        case "getPosition":
+                            return position[0];
+                        case "getLong":
+                            return rows.getLong((Integer) cursorArgs[0] + 1);
+                        case "getDouble":
+                            return rows.getDouble((Integer) cursorArgs[0] + 1);
+                        case "getInt":
+                            return rows.getInt((Integer) cursorArgs[0] + 1);
+                        case "close":
+                            rows.close();
+                            statement.close();
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.timedisplay.health.stats;
+
+import com.example.timedisplay.health.model.DailySummary;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// 增量维护的滑动均值、EWMA 和斜率与按定义逐天重算的结果比较，包括中间缺天和替换最后一天
+public class TrendEngineTest {
+
+    private static final double EPSILON = 1e-6;
+
+    // 参考实现：完整保存每个日历日的值，每次从头计算
+    private static class Reference {
+        final List<Double> values = new ArrayList<>();
+        final List<Boolean> present = new ArrayList<>();
+
+        void add(double value, boolean hasValue) {
+            values.add(value);
+            present.add(hasValue);
+        }
+
+        void replaceLast(double value, boolean hasValue) {
+            values.set(values.size() - 1, value);
+            present.set(present.size() - 1, hasValue);
+        }
+
+        double mean(int window) {
+            double sum = 0;
+            int n = 0;
+            for (int i = Math.max(0, values.size() - window); i < values.size(); i++) {
+                if (!present.get(i)) continue;
+                sum += values.get(i);
+                n++;
+            }
+            return n > 0 ? sum / n : 0;
+        }
+
+        // 窗口内按位置 0..27 作 x，只用有数据的日子做最小二乘
+        double slope() {
+            int from = Math.max(0, values.size() - TrendEngine.LONG_WINDOW);
+            double n = 0, sx = 0, sy = 0, sxx = 0, sxy = 0;
+            for (int i = from; i < values.size(); i++) {
+                if (!present.get(i)) continue;
+                double x = i - from;
+                double y = values.get(i);
+                n++;
+                sx += x;
+                sy += y;
+                sxx += x * x;
+                sxy += x * y;
+            }
+            double denominator = n * sxx - sx * sx;
+            return n < 2 || denominator == 0 ? 0 : (n * sxy - sx * sy) / denominator;
+        }
+
+        double ewma() {
+            double ewma = 0;
+            boolean started = false;
+            for (int i = 0; i < values.size(); i++) {
+                if (!present.get(i)) continue;
+                ewma = started ? TrendEngine.EWMA_ALPHA * values.get(i) + (1 - TrendEngine.EWMA_ALPHA) * ewma : values.get(i);
+                started = true;
+            }
+            return ewma;
+        }
+    }
+
+    @Test
+    public void linearSeriesHasExactSlope() {
+        TrendEngine engine = new TrendEngine();
+        for (int day = 0; day < 40; day++) {
+            engine.addDay(summary(day, 2000 + 10 * day, 1, 300, 30, 480, 4, 1));
+        }
+        assertEquals(10, engine.caloriesIn.getSlopePerDay(), EPSILON);
+        // 最近 28 天是第 12..39 天，均值是中间那天的值
+        assertEquals(2000 + 10 * 25.5, engine.caloriesIn.getMean28(), EPSILON);
+        assertEquals(2000 + 10 * 36, engine.caloriesIn.getMean7(), EPSILON);
+        assertEquals(1, engine.caloriesIn.getDirection());
+        assertEquals(0, engine.caloriesBurned.getSlopePerDay(), EPSILON);
+        assertEquals(0, engine.caloriesBurned.getDirection());
+        assertEquals(8, engine.sleepHours.getMean28(), EPSILON);
+    }
+
+    @Test
+    public void missingDaysAreSkippedForIntakeAndZeroForBurned() {
+        TrendEngine engine = new TrendEngine();
+        // 隔天一条饮食和运动记录，斜率按日历位置计算，仍是每天 +5
+        for (int day = 0; day < 60; day += 2) {
+            engine.addDay(summary(day, 1000 + 5 * day, 1, 400, 40, 0, 0, 0));
+        }
+        assertEquals(58, engine.getLastDay());
+        assertEquals(5, engine.caloriesIn.getSlopePerDay(), EPSILON);
+        assertEquals(14, engine.caloriesIn.getDaysWithData());
+        // 消耗热量没有记录的日子按 0 计入
+        assertEquals(28, engine.caloriesBurned.getDaysWithData());
+        assertEquals(400 * 14 / 28.0, engine.caloriesBurned.getMean28(), EPSILON);
+        assertFalse(engine.sleepHours.hasData());
+        assertEquals(0, engine.sleepHours.getSlopePerDay(), 0);
+    }
+
+    @Test
+    public void ewmaIgnoresMissingDays() {
+        TrendEngine engine = new TrendEngine();
+        engine.addDay(summary(0, 100, 1, 0, 0, 0, 0, 0));
+        engine.addDay(summary(5, 200, 1, 0, 0, 0, 0, 0));
+        double alpha = TrendEngine.EWMA_ALPHA;
+        assertEquals(alpha * 200 + (1 - alpha) * 100, engine.caloriesIn.getEwma(), EPSILON);
+    }
+
+    @Test
+    public void replaceLastDayMatchesAddingFinalValue() {
+        TrendEngine replaced = new TrendEngine();
+        TrendEngine direct = new TrendEngine();
+        for (int day = 0; day < 35; day++) {
+            replaced.addDay(summary(day, 1500 + day, 1, 200, 20, 420, 3, 1));
+            direct.addDay(summary(day, 1500 + day, 1, 200, 20, 420, 3, 1));
+        }
+        replaced.addDay(summary(35, 900, 1, 100, 10, 0, 0, 0));
+        replaced.replaceLastDay(summary(35, 1800, 2, 250, 25, 0, 0, 0));
+        replaced.replaceLastDay(summary(35, 2400, 3, 300, 30, 450, 5, 1));
+        direct.addDay(summary(35, 2400, 3, 300, 30, 450, 5, 1));
+
+        assertSameTrend(direct.caloriesIn, replaced.caloriesIn);
+        assertSameTrend(direct.caloriesBurned, replaced.caloriesBurned);
+        assertSameTrend(direct.exerciseMinutes, replaced.exerciseMinutes);
+        assertSameTrend(direct.sleepHours, replaced.sleepHours);
+        assertSameTrend(direct.sleepQuality, replaced.sleepQuality);
+    }
+
+    @Test
+    public void randomDaysMatchReference() {
+        Random random = new Random(11);
+        TrendEngine engine = new TrendEngine();
+        Reference intake = new Reference();
+        Reference burned = new Reference();
+        Reference sleep = new Reference();
+        long day = 0;
+        for (int step = 0; step < 2000; step++) {
+            boolean replace = step > 0 && random.nextInt(4) == 0;
+            if (!replace) {
+                // 最多缺 4 天，缺的日子按无记录补齐；第一天之前不补
+                long gap = step == 0 ? 0 : random.nextInt(5);
+                for (long i = 0; i < gap; i++) {
+                    intake.add(0, false);
+                    burned.add(0, true);
+                    sleep.add(0, false);
+                }
+                day += gap + 1;
+            }
+            boolean hasDiet = random.nextInt(5) > 0;
+            boolean hasSleep = random.nextInt(3) > 0;
+            double caloriesIn = hasDiet ? 1200 + random.nextInt(1500) : 0;
+            double caloriesBurned = random.nextInt(600);
+            long sleepMinutes = hasSleep ? 300 + random.nextInt(240) : 0;
+            DailySummary summary = summary(day, caloriesIn, hasDiet ? 1 : 0, caloriesBurned, 30,
+                    sleepMinutes, hasSleep ? 3 : 0, hasSleep ? 1 : 0);
+            if (replace) {
+                engine.replaceLastDay(summary);
+                intake.replaceLast(caloriesIn, hasDiet);
+                burned.replaceLast(caloriesBurned, true);
+                sleep.replaceLast(sleepMinutes / 60.0, hasSleep);
+            } else {
+                engine.addDay(summary);
+                intake.add(caloriesIn, hasDiet);
+                burned.add(caloriesBurned, true);
+                sleep.add(sleepMinutes / 60.0, hasSleep);
+            }
+            assertMatches(intake, engine.caloriesIn);
+            assertMatches(burned, engine.caloriesBurned);
+            assertMatches(sleep, engine.sleepHours);
+        }
+        assertTrue(engine.caloriesIn.hasData());
+    }
+
+    // 只有 8-28 天前有记录：7 天均值为 0，建议按 28 天均值给出，不能当成摄入或睡眠不足
+    @Test
+    public void suggestionsFallBackWhenLastWeekIsEmpty() {
+        TrendEngine engine = new TrendEngine();
+        for (int day = 0; day < 21; day++) {
+            engine.addDay(summary(day, 1800, 3, 300, 40, 450, 4, 1));
+        }
+        engine.addDay(summary(27, 0, 0, 0, 0, 0, 0, 0));
+        assertTrue(engine.caloriesIn.hasData());
+        assertFalse(engine.caloriesIn.hasRecentData());
+        assertFalse(engine.sleepHours.hasRecentData());
+
+        String diet = HealthStatistics.getDietSuggestion(engine.caloriesIn);
+        assertTrue(diet, diet.startsWith("近7天没有饮食记录"));
+        assertTrue(diet, diet.contains("热量摄入适中"));
+        String sleep = HealthStatistics.getSleepSuggestion(engine.sleepHours, engine.sleepQuality);
+        assertTrue(sleep, sleep.startsWith("近7天没有睡眠记录"));
+        assertTrue(sleep, sleep.contains("睡眠时间适中"));
+        // 运动按天计 0，这一周确实没有运动
+        String exercise = HealthStatistics.getExerciseSuggestion(engine.caloriesBurned, engine.exerciseMinutes);
+        assertTrue(exercise, exercise.startsWith("运动量偏少"));
+    }
+
+    @Test
+    public void suggestionsWithoutAnyRecords() {
+        TrendEngine engine = new TrendEngine();
+        for (int day = 0; day < 28; day++) {
+            engine.addDay(summary(day, 0, 0, 0, 0, 0, 0, 0));
+        }
+        assertEquals("近期没有饮食记录", HealthStatistics.getDietSuggestion(engine.caloriesIn));
+        assertEquals("近期没有运动记录",
+                HealthStatistics.getExerciseSuggestion(engine.caloriesBurned, engine.exerciseMinutes));
+        assertEquals("近期没有睡眠记录", HealthStatistics.getSleepSuggestion(engine.sleepHours, engine.sleepQuality));
+    }
+
+    private static void assertMatches(Reference expected, TrendEngine.MetricTrend actual) {
+        assertEquals(expected.mean(TrendEngine.SHORT_WINDOW), actual.getMean7(), EPSILON);
+        assertEquals(expected.mean(TrendEngine.LONG_WINDOW), actual.getMean28(), EPSILON);
+        assertEquals(expected.slope(), actual.getSlopePerDay(), EPSILON);
+        assertEquals(expected.ewma(), actual.getEwma(), EPSILON);
+    }
+
+    private static void assertSameTrend(TrendEngine.MetricTrend expected, TrendEngine.MetricTrend actual) {
+        assertEquals(expected.getDaysWithData(), actual.getDaysWithData());
+        assertEquals(expected.getMean7(), actual.getMean7(), EPSILON);
+        assertEquals(expected.getMean28(), actual.getMean28(), EPSILON);
+        assertEquals(expected.getSlopePerDay(), actual.getSlopePerDay(), EPSILON);
+        assertEquals(expected.getEwma(), actual.getEwma(), EPSILON);
+    }
+
+    private static DailySummary summary(long day, double caloriesIn, int dietCount, double caloriesBurned,
+                                        long exerciseMinutes, long sleepMinutes, long qualitySum, int sleepCount) {
+        DailySummary summary = new DailySummary(day);
+        summary.setCaloriesIn(caloriesIn);
+        summary.setDietCount(dietCount);
+        summary.setCaloriesBurned(caloriesBurned);
+        summary.setExerciseMinutes(exerciseMinutes);
+        summary.setExerciseCount(exerciseMinutes > 0 ? 1 : 0);
+        summary.setSleepMinutes(sleepMinutes);
+        summary.setQualitySum(qualitySum);
+        summary.setSleepCount(sleepCount);
+        return summary;
+    }
+}